@@ -0,0 +1,334 @@
+/* Folio Batch Renamer
+ *
+ * BatchRename applies one set of rules to every manuscript folder under a root folder,
+ * e.g. a shelf-level delivery with one sub-folder per manuscript. A manuscript folder is
+ * any folder below the root, at any depth, that directly holds files. Each one is renamed
+ * by its own RenameJob, with its own prefix:
+ *  - from a mapping file, one "folder<TAB>prefix" line per manuscript, where folder is
+ *    the path relative to the root or just the folder name (folders missing from the
+ *    mapping are left alone). A line may go on with the start of the manuscript (a
+ *    folio, 12, a side, 12v, or a whole foliation) and the name of a RuleProfiles
+ *    profile giving its other rules, so that manuscripts of several series, each
+ *    starting where it does, are renamed in one unattended batch;
+ *  - otherwise from the folder name: "{folder}" in the prefix of the rules is replaced by
+ *    the folder name, and a prefix without "{folder}" is placed after it.
+ * The folders are processed side by side by a configurable number of workers, and a
+ * report gives the result of each folder and the totals.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchRename {
+
+       public static final String FOLDER_NAME = "{folder}";
+
+       //what happened to one manuscript folder
+       public static final class FolderResult {
+               public final String folder;      //relative to the root
+               public int files = 0;
+               public int failures = 0;
+               public int left = 0;             //files not reached because the batch was stopped
+               public boolean cancelled = false;
+               public String error;             //why the folder was not renamed, or null
+               public RunMetrics metrics;       //of the pass over the folder, or null
+
+               FolderResult(String folder){
+                       this.folder = folder;
+               }
+
+               public boolean isSuccess(){
+                       return error == null && failures == 0 && cancelled == false;
+               }
+       }
+
+       //one line of the mapping file
+       private static final class Mapping {
+               final String prefix;
+               final String start;              //folio, side or foliation, or "" to keep that of the rules
+               final String profile;            //name of a rule profile, or ""
+
+               Mapping(String prefix, String start, String profile){
+                       this.prefix = prefix;
+                       this.start = start;
+                       this.profile = profile;
+               }
+       }
+
+       private final RenameJob rules;
+       private final File root;
+       private Map<String, Mapping> mappings;   //from the mapping file, or null
+       private RuleProfiles profiles;           //those the mapping file names, or null
+       private int workers = 1;
+
+
+       public BatchRename(RenameJob rules, File root){
+               if(rules.isFolders())
+                       throw new IllegalArgumentException("The batch mode renames files only");
+               this.rules = rules;
+               this.root = root;
+       }
+
+
+       //number of folders renamed side by side
+       public void setWorkers(int workers){
+               if(workers < 1)
+                       throw new IllegalArgumentException("The number of workers must be at least 1");
+               this.workers = workers;
+       }
+
+
+       //the profiles a mapping file can name; to be set before loadMapping()
+       public void setProfiles(RuleProfiles profiles){
+               this.profiles = profiles;
+       }
+
+
+       /* Reads the mapping file: one "folder<TAB>prefix[<TAB>start[<TAB>profile]]" per
+        * line, blank lines and lines starting with # being ignored. Every line is checked
+        * now, so that a wrong start or profile stops the batch before the first folder.
+        */
+       public void loadMapping(File mapping) throws IOException{
+               Map<String, Mapping> map = new HashMap<String, Mapping>();
+               BufferedReader reader = Files.newBufferedReader(mapping.toPath(), Charset.forName("UTF-8"));
+               try {
+                       String line;
+                       int number = 0;
+                       while((line = reader.readLine()) != null){
+                               number++;
+                               if(line.trim().isEmpty() || line.startsWith("#"))
+                                       continue;
+                               String[] fields = line.split("\t", -1);
+                               if(fields.length < 2 || fields.length > 4)
+                                       throw new IOException(mapping.getName() + ", line " + number + ": expected folder<TAB>prefix[<TAB>start[<TAB>profile]]");
+                               Mapping entry = new Mapping(fields[1], fields.length > 2 ? fields[2].trim() : "",
+                                               fields.length > 3 ? fields[3].trim() : "");
+                               try {
+                                       configure(new RenameJob(rules), entry);
+                               }
+                               catch (IllegalArgumentException e) {
+                                       throw new IOException(mapping.getName() + ", line " + number + ": " + e.getMessage());
+                               }
+                               map.put(fields[0], entry);
+                       }
+               }
+               finally {
+                       reader.close();
+               }
+               mappings = map;
+       }
+
+
+       //the manuscript folders under the root, relative to it, in alphabetical order
+       public List<String> findFolders() throws IOException{
+
+               final Path top = root.toPath();
+               final Set<Path> found = new LinkedHashSet<Path>();
+
+               Files.walkFileTree(top, new SimpleFileVisitor<Path>(){
+                       public FileVisitResult visitFile(Path file, BasicFileAttributes attrs){
+                               Path parent = file.getParent();
+                               if(attrs.isRegularFile() && parent.equals(top) == false
+                                               && DirectoryScan.isToolFile(file.getFileName().toString()) == false)
+                                       found.add(parent);
+                               return FileVisitResult.CONTINUE;
+                       }
+                       public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException{
+                               if(file.equals(top))
+                                       throw e;
+                               return FileVisitResult.CONTINUE;
+                       }
+               });
+
+               List<String> folders = new ArrayList<String>(found.size());
+               for(Path folder : found)
+                       folders.add(top.relativize(folder).toString());
+               Collections.sort(folders, String.CASE_INSENSITIVE_ORDER);
+               return folders;
+       }
+
+
+       //the prefix of a manuscript folder, or null when the mapping does not give one
+       String prefixFor(String folder){
+               String name = new File(folder).getName();
+               if(mappings != null){
+                       Mapping mapping = mappingFor(folder);
+                       return mapping != null ? mapping.prefix : null;
+               }
+               String prefix = rules.getPrefix();
+               if(prefix.contains(FOLDER_NAME))
+                       return prefix.replace(FOLDER_NAME, name);
+               return name + prefix;
+       }
+
+
+       private Mapping mappingFor(String folder){
+               Mapping mapping = mappings.get(folder);
+               return mapping != null ? mapping : mappings.get(new File(folder).getName());
+       }
+
+
+       /* The rules of a manuscript folder: those of the batch, then those of its profile,
+        * its prefix and its start. Null when the mapping does not give the folder.
+        */
+       RenameJob jobFor(String folder){
+               RenameJob job = new RenameJob(rules);
+               if(mappings == null){
+                       job.setPrefix(prefixFor(folder));
+                       return job;
+               }
+               Mapping mapping = mappingFor(folder);
+               if(mapping == null)
+                       return null;
+               configure(job, mapping);
+               return job;
+       }
+
+
+       //gives job the rules of one line of the mapping file
+       private void configure(RenameJob job, Mapping mapping){
+               if(mapping.profile.isEmpty() == false){
+                       if(profiles == null)
+                               throw new IllegalArgumentException("no rule profiles to take " + mapping.profile + " from");
+                       profiles.apply(mapping.profile, job);
+               }
+               job.setPrefix(mapping.prefix);
+               String start = mapping.start;
+               if(start.isEmpty())
+                       return;
+               char last = Character.toLowerCase(start.charAt(start.length() - 1));
+               boolean side = last == 'r' || last == 'v';
+               String number = side ? start.substring(0, start.length() - 1) : start;
+               if(number.matches("[0-9]+")){
+                       job.setStartingNum(Integer.parseInt(number));
+                       if(side)
+                               job.setStartWithVerso(last == 'v');
+                       job.setFoliation("");
+               }
+               else {
+                       FoliationSequence.parse(start, job.getNumbering());
+                       job.setFoliation(start);
+               }
+       }
+
+
+       /* Renames every manuscript folder. Lines logged by a folder are preceded by its
+        * name; the progress counts folders. A failing folder does not stop the others.
+        */
+       public List<FolderResult> run(final RenameJob.Listener listener) throws IOException{
+
+               final List<String> folders = findFolders();
+               final int total = folders.size();
+               final List<FolderResult> results = new ArrayList<FolderResult>(total);
+               final AtomicInteger done = new AtomicInteger();
+
+               for(String folder : folders)
+                       results.add(new FolderResult(folder));
+               listener.log("Batch: " + total + " manuscript folder(s) under " + root.getPath() + "\n");
+
+               Parallel.forEach(total, workers, new Parallel.Step(){
+                       public void run(int i){
+                               renameFolder(results.get(i), listener);
+                               listener.progress(done.incrementAndGet(), total);
+                       }
+               });
+
+               listener.log(report(results));
+               return results;
+
+       }//end run
+
+
+       private void renameFolder(FolderResult result, final RenameJob.Listener listener){
+
+               if(listener.isStopRequested()){
+                       result.cancelled = true;
+                       return;
+               }
+               RenameJob job = jobFor(result.folder);
+               if(job == null){
+                       result.error = "not in the mapping file";
+                       return;
+               }
+
+               job.setDirectory(new File(root, result.folder));
+               if(rules.getTargetDirectory() != null)
+                       job.setTargetDirectory(new File(rules.getTargetDirectory(), result.folder));
+               final String tag = "[" + result.folder + "] ";
+
+               try {
+                       job.run(new RenameJob.Listener(){
+                               public void log(String line){
+                                       listener.log(tag + line);
+                               }
+                               public void progress(int done, int total){
+                               }
+                               public boolean isStopRequested(){
+                                       return listener.isStopRequested();
+                               }
+                       });
+                       result.files = job.getFileCount();
+                       result.failures = job.getFailCount();
+                       result.cancelled = job.wasCancelled();
+                       result.left = job.getLeftCount();
+               }
+               catch (IOException e) {
+                       result.error = e.toString();
+               }
+               catch (RuntimeException e) {
+                       result.error = e.toString();
+               }
+               result.metrics = job.getMetrics();
+       }
+
+
+       //one line per folder, then the totals
+       public static String report(List<FolderResult> results){
+
+               StringBuilder text = new StringBuilder("Batch report\n");
+               int files = 0, failures = 0, failedFolders = 0;
+               for(FolderResult result : results){
+                       text.append(result.folder).append(": ");
+                       if(result.error != null)
+                               text.append("not renamed, ").append(result.error);
+                       else if(result.cancelled && result.left < result.files)
+                               text.append("stopped, ").append(result.files - result.left).append(" file(s) done, ")
+                                       .append(result.left).append(" left");
+                       else if(result.cancelled)
+                               text.append("cancelled");
+                       else
+                               text.append(result.files).append(" file(s), ").append(result.failures).append(" failure(s)");
+                       text.append('\n');
+                       files += result.files;
+                       failures += result.failures;
+                       if(result.isSuccess() == false)
+                               failedFolders++;
+               }
+               text.append("Total: ").append(results.size()).append(" folder(s), ")
+                       .append(files).append(" file(s), ").append(failures).append(" failure(s), ")
+                       .append(failedFolders).append(" folder(s) not fully renamed\n");
+               return text.toString();
+       }
+
+}
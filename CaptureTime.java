@@ -0,0 +1,389 @@
+/* Folio Batch Renamer
+ *
+ * CaptureTime orders images by the time they were taken, as recorded by the camera in
+ * their EXIF metadata (DateTimeOriginal, else the DateTime of the image), for JPEG and
+ * TIFF files and the raw formats built on TIFF. Only the header of each file is read:
+ * the first HEAD bytes with one positional read, and a few more small reads when the
+ * metadata lies further on (a TIFF written with its directory at the end). The headers
+ * are read by several threads, since the time goes into waiting for the disk or the
+ * network share rather than into parsing.
+ * The times found are kept in a cache file in the folder, with the size and modification
+ * time of each file, so that a second run (a test then the real pass) reads no header
+ * again. Files without a capture time come last, in the order they had.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class CaptureTime {
+
+       public static final String CACHE = ".folio-rename.capture";
+       public static final long NONE = -1;          //no capture time in the file
+       private static final String HEADER = "folio-rename capture 1";
+       private static final Charset UTF8 = Charset.forName("UTF-8");
+       private static final int HEAD = 16 * 1024;   //read at once: holds the EXIF block of nearly every JPEG
+       private static final int WINDOW = 4096;      //further reads
+       private static final int MAX_SEGMENTS = 64;
+       private static final int MAX_IFD_ENTRIES = 1024;
+
+       private static final int TAG_DATE_TIME = 0x0132;
+       private static final int TAG_EXIF_IFD = 0x8769;
+       private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+       private static final int TAG_SUB_SEC_TIME_ORIGINAL = 0x9291;
+
+       //the buffers of a thread, reused for every file it reads
+       private static final ThreadLocal<HeaderReader> READERS = new ThreadLocal<HeaderReader>(){
+               protected HeaderReader initialValue(){
+                       return new HeaderReader();
+               }
+       };
+
+
+       private CaptureTime(){
+       }
+
+
+       /* Sorts entries, as returned by DirectoryScan.scan(dir, false), by capture time,
+        * reading the headers missing from the cache on the given number of threads.
+        */
+       public static void sort(final Path dir, List<DirectoryScan.Entry> entries, int threads) throws IOException{
+
+               final int n = entries.size();
+               final DirectoryScan.Entry[] sorted = entries.toArray(new DirectoryScan.Entry[n]);
+               final long[] times = new long[n];
+               Map<String, long[]> cache = loadCache(dir);
+
+               final int[] missing = new int[n];
+               int misses = 0;
+               for(int i = 0; i < n; i++){
+                       long[] cached = cache.get(sorted[i].name);
+                       if(cached != null && cached[0] == sorted[i].size && cached[1] == sorted[i].lastModified)
+                               times[i] = cached[2];
+                       else
+                               missing[misses++] = i;
+               }
+
+               Parallel.forEach(misses, threads, new Parallel.Step(){
+                       public void run(int k){
+                               int i = missing[k];
+                               times[i] = read(dir.resolve(sorted[i].name));
+                       }
+               });
+               if(misses > 0)
+                       saveCache(dir, sorted, times);
+
+               Timed[] timed = new Timed[n];
+               for(int i = 0; i < n; i++)
+                       timed[i] = new Timed(times[i] == NONE ? Long.MAX_VALUE : times[i], sorted[i]);
+               Arrays.sort(timed, BY_TIME);   //stable: equal times keep the order they had
+               for(int i = 0; i < n; i++)
+                       entries.set(i, timed[i].entry);
+       }
+
+
+       private static final class Timed {
+               final long time;
+               final DirectoryScan.Entry entry;
+
+               Timed(long time, DirectoryScan.Entry entry){
+                       this.time = time;
+                       this.entry = entry;
+               }
+       }
+
+       private static final Comparator<Timed> BY_TIME = new Comparator<Timed>(){
+               public int compare(Timed a, Timed b){
+                       return a.time < b.time ? -1 : (a.time == b.time ? 0 : 1);
+               }
+       };
+
+
+       /* The capture time of a file as yyyyMMddHHmmssSSS (local time of the camera, as
+        * recorded), or NONE when it has none or cannot be read.
+        */
+       public static long read(Path file){
+               FileChannel channel = null;
+               try {
+                       channel = FileChannel.open(file, StandardOpenOption.READ);
+                       return READERS.get().captureTime(channel);
+               }
+               catch (IOException e) {
+                       return NONE;
+               }
+               finally {
+                       if(channel != null){
+                               try {
+                                       channel.close();
+                               }
+                               catch (IOException e) {
+                               }
+                       }
+               }
+       }
+
+
+       private static final class HeaderReader {
+
+               private final ByteBuffer head = ByteBuffer.allocate(HEAD);
+               private final ByteBuffer window = ByteBuffer.allocate(WINDOW);
+               private FileChannel channel;
+               private long windowStart;
+               private ByteOrder order;
+
+
+               long captureTime(FileChannel channel) throws IOException{
+                       this.channel = channel;
+                       windowStart = -1;
+                       setOrder(ByteOrder.BIG_ENDIAN);
+                       fill(head, 0);
+
+                       long tiff;
+                       if(head.limit() >= 2 && u16(0) == 0xFFD8)
+                               tiff = findExif();
+                       else
+                               tiff = 0;
+                       return tiff < 0 ? NONE : readTiff(tiff);
+               }
+
+
+               //offset of the TIFF header inside the APP1 segment of a JPEG file, or -1
+               private long findExif() throws IOException{
+                       long pos = 2;
+                       for(int segment = 0; segment < MAX_SEGMENTS; segment++){
+                               if(u8(pos) != 0xFF)
+                                       return -1;
+                               int marker = u8(pos + 1);
+                               if(marker == 0xFF){          //fill byte
+                                       pos++;
+                                       continue;
+                               }
+                               if(marker == 0xDA || marker == 0xD9)   //image data: no metadata after
+                                       return -1;
+                               int length = u16(pos + 2);
+                               if(marker == 0xE1 && length >= 8 && u16(pos + 4) == 0x4578 && u16(pos + 6) == 0x6966
+                                               && u16(pos + 8) == 0)   //"Exif\0\0"
+                                       return pos + 10;
+                               pos += 2 + length;
+                       }
+                       return -1;
+               }
+
+
+               private long readTiff(long tiff) throws IOException{
+                       int mark = u16(tiff);
+                       if(mark == 0x4949)
+                               setOrder(ByteOrder.LITTLE_ENDIAN);
+                       else if(mark == 0x4D4D)
+                               setOrder(ByteOrder.BIG_ENDIAN);
+                       else
+                               return NONE;
+                       if(u16(tiff + 2) != 42)
+                               return NONE;
+
+                       long ifd0 = tiff + u32(tiff + 4);
+                       long dateTime = findTag(ifd0, TAG_DATE_TIME);
+                       long exif = findTag(ifd0, TAG_EXIF_IFD);
+                       if(exif >= 0){
+                               long original = findTag(tiff + u32(exif + 8), TAG_DATE_TIME_ORIGINAL);
+                               if(original >= 0){
+                                       long time = parseTime(ascii(tiff, original));
+                                       if(time != NONE){
+                                               long subSec = findTag(tiff + u32(exif + 8), TAG_SUB_SEC_TIME_ORIGINAL);
+                                               return subSec >= 0 ? time + millis(ascii(tiff, subSec)) : time;
+                                       }
+                               }
+                       }
+                       return dateTime >= 0 ? parseTime(ascii(tiff, dateTime)) : NONE;
+               }
+
+
+               //position of the entry of the directory at ifd with the given tag, or -1
+               private long findTag(long ifd, int tag) throws IOException{
+                       int count = Math.min(u16(ifd), MAX_IFD_ENTRIES);
+                       for(int k = 0; k < count; k++){
+                               long entry = ifd + 2 + 12L * k;
+                               if(u16(entry) == tag)
+                                       return entry;
+                       }
+                       return -1;
+               }
+
+
+               //the ASCII value of an entry, without its terminating zero
+               private String ascii(long tiff, long entry) throws IOException{
+                       if(u16(entry + 2) != 2)
+                               return "";
+                       int count = (int) Math.min(u32(entry + 4), 64);
+                       long pos = count <= 4 ? entry + 8 : tiff + u32(entry + 8);
+                       StringBuilder text = new StringBuilder(count);
+                       for(int k = 0; k < count; k++){
+                               int c = u8(pos + k);
+                               if(c == 0)
+                                       break;
+                               text.append((char) c);
+                       }
+                       return text.toString();
+               }
+
+
+               private void setOrder(ByteOrder order){
+                       this.order = order;
+                       head.order(order);
+                       window.order(order);
+               }
+
+
+               private int u8(long pos) throws IOException{
+                       ByteBuffer buffer = at(pos, 1);
+                       return buffer.get((int) (pos - start(buffer))) & 0xFF;
+               }
+
+               private int u16(long pos) throws IOException{
+                       ByteBuffer buffer = at(pos, 2);
+                       return buffer.getShort((int) (pos - start(buffer))) & 0xFFFF;
+               }
+
+               private long u32(long pos) throws IOException{
+                       ByteBuffer buffer = at(pos, 4);
+                       return buffer.getInt((int) (pos - start(buffer))) & 0xFFFFFFFFL;
+               }
+
+
+               private long start(ByteBuffer buffer){
+                       return buffer == head ? 0 : windowStart;
+               }
+
+
+               //the buffer holding bytes [pos, pos + length) of the file, reading them when needed
+               private ByteBuffer at(long pos, int length) throws IOException{
+                       if(pos < 0)
+                               throw new IOException("Bad offset");
+                       if(pos + length <= head.limit())
+                               return head;
+                       if(windowStart >= 0 && pos >= windowStart && pos + length <= windowStart + window.limit())
+                               return window;
+                       if(head.limit() < head.capacity())
+                               throw new IOException("Past the end of the file");   //the head holds the whole file
+                       fill(window, pos);
+                       windowStart = pos;
+                       if(window.limit() < length)
+                               throw new IOException("Past the end of the file");
+                       return window;
+               }
+
+
+               private void fill(ByteBuffer buffer, long pos) throws IOException{
+                       buffer.clear();
+                       while(buffer.hasRemaining()){
+                               if(channel.read(buffer, pos + buffer.position()) < 0)
+                                       break;
+                       }
+                       buffer.flip();
+               }
+       }
+
+
+       //"yyyy:MM:dd HH:mm:ss" to yyyyMMddHHmmss000, NONE when it is not a date (blank, zeros)
+       static long parseTime(String text){
+               if(text.length() < 19)
+                       return NONE;
+               long time = 0;
+               for(int k = 0; k < 19; k++){
+                       char c = text.charAt(k);
+                       if(k == 4 || k == 7 || k == 10 || k == 13 || k == 16)
+                               continue;
+                       if(c < '0' || c > '9')
+                               return NONE;
+                       time = time * 10 + (c - '0');
+               }
+               return time < 10000000000L ? NONE : time * 1000;   //the year is 0000
+       }
+
+
+       //the milliseconds of a SubSecTime value: its first three digits
+       private static int millis(String text){
+               int millis = 0;
+               for(int k = 0; k < 3; k++){
+                       char c = k < text.length() ? text.charAt(k) : '0';
+                       if(c < '0' || c > '9')
+                               return 0;
+                       millis = millis * 10 + (c - '0');
+               }
+               return millis;
+       }
+
+
+       //name -> {size, lastModified, time}; empty when there is no usable cache
+       private static Map<String, long[]> loadCache(Path dir){
+               Map<String, long[]> cache = new HashMap<String, long[]>();
+               try {
+                       BufferedReader reader = Files.newBufferedReader(dir.resolve(CACHE), UTF8);
+                       try {
+                               if(HEADER.equals(reader.readLine()) == false)
+                                       return cache;
+                               String line;
+                               while((line = reader.readLine()) != null){
+                                       String[] fields = line.split("\t");
+                                       if(fields.length == 4)
+                                               cache.put(fields[3], new long[]{ Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]) });
+                               }
+                       }
+                       finally {
+                               reader.close();
+                       }
+               }
+               catch (NoSuchFileException e) {
+               }
+               catch (IOException e) {
+                       cache.clear();
+               }
+               catch (NumberFormatException e) {
+                       cache.clear();
+               }
+               return cache;
+       }
+
+
+       //the cache only saves time: a folder that cannot be written to is read again next time
+       private static void saveCache(Path dir, DirectoryScan.Entry[] entries, long[] times){
+               try {
+                       Writer writer = Files.newBufferedWriter(dir.resolve(CACHE), UTF8);
+                       try {
+                               writer.write(HEADER);
+                               writer.write('\n');
+                               for(int i = 0; i < entries.length; i++){
+                                       String name = entries[i].name;
+                                       if(name.indexOf('\t') >= 0 || name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0)
+                                               continue;
+                                       writer.write(entries[i].size + "\t" + entries[i].lastModified + "\t" + times[i] + "\t" + name + "\n");
+                               }
+                       }
+                       finally {
+                               writer.close();
+                       }
+               }
+               catch (IOException e) {
+               }
+       }
+
+}
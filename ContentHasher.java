@@ -0,0 +1,226 @@
+/* Folio Batch Renamer
+ *
+ * ContentHasher computes the SHA-256 of files on a pool of threads while the rename
+ * pass goes on: each file is handed over as soon as it has its final name, so hashing
+ * overlaps the moves instead of being a second pass over the folder. Files are streamed
+ * through a large direct buffer per thread, and nothing of their content is kept.
+ * The digests are written as a BagIt-style manifest, "<sha256>  <name>" per line (the
+ * format of sha256sum, so "sha256sum -c" can check it from the folder), keyed by the
+ * new names: proof for a preservation audit that the renames did not touch the content.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ContentHasher {
+
+       public static final String MANIFEST = ".folio-rename.manifest-sha256.txt";
+       private static final String ALGORITHM = "SHA-256";
+       private static final int BUFFER = 1 << 20;
+       private static final Charset UTF8 = Charset.forName("UTF-8");
+       private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+       //the buffer and digest of a thread, reused for every file it hashes
+       private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>(){
+               protected ByteBuffer initialValue(){
+                       return ByteBuffer.allocateDirect(BUFFER);
+               }
+       };
+       private static final ThreadLocal<MessageDigest> DIGESTS = new ThreadLocal<MessageDigest>(){
+               protected MessageDigest initialValue(){
+                       try {
+                               return MessageDigest.getInstance(ALGORITHM);
+                       }
+                       catch (NoSuchAlgorithmException e) {
+                               throw new IllegalStateException(e);   //every Java platform has SHA-256
+                       }
+               }
+       };
+
+       private final Path directory;
+       private final String[] names;        //per row, the name the file was hashed under
+       private final String[] digests;      //per row, in hex, or null
+       private final ExecutorService pool;
+       private final AtomicLong bytes = new AtomicLong();
+       private final long start = System.nanoTime();
+       private long elapsed = -1;
+       private int errors = 0;
+
+
+       //rows: number of files of the pass; threads: number of files hashed side by side
+       public ContentHasher(Path directory, int rows, int threads){
+               this.directory = directory;
+               this.names = new String[rows];
+               this.digests = new String[rows];
+               this.pool = Executors.newFixedThreadPool(Math.max(1, threads));
+       }
+
+
+       /* Queues the file of the given row, under its current name; any thread may call it.
+        * A row queued again under another name (a rename undone) keeps the digest of the
+        * last name only.
+        */
+       public void submit(final int row, final String name){
+               synchronized(this){
+                       names[row] = name;
+               }
+               pool.execute(new Runnable(){
+                       public void run(){
+                               String digest = hash(directory.resolve(name));
+                               synchronized(ContentHasher.this){
+                                       if(name.equals(names[row]))
+                                               digests[row] = digest;
+                               }
+                       }
+               });
+       }
+
+
+       //waits for every queued file; returns the number of files that could not be read
+       public int finish() throws IOException{
+               pool.shutdown();
+               try {
+                       while(pool.awaitTermination(1, TimeUnit.MINUTES) == false)
+                               ;
+               }
+               catch (InterruptedException e) {
+                       pool.shutdownNow();
+                       Thread.currentThread().interrupt();
+                       throw new InterruptedIOException("Interrupted");
+               }
+               elapsed = System.nanoTime() - start;
+               errors = 0;
+               for(int row = 0; row < names.length; row++){
+                       if(names[row] != null && digests[row] == null)
+                               errors++;
+               }
+               return errors;
+       }
+
+
+       //stops the pool without waiting; once finish() returned, there is nothing left to stop
+       public void close(){
+               pool.shutdownNow();
+       }
+
+
+       /* Writes the manifest to the directory, one line per file hashed, in the order of
+        * the rows. It replaces the previous manifest only once complete.
+        */
+       public Path writeManifest() throws IOException{
+               Path manifest = directory.resolve(MANIFEST);
+               Path temp = directory.resolve(MANIFEST + ".tmp");
+               FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+               try {
+                       StringBuilder text = new StringBuilder(1 << 16);
+                       for(int row = 0; row < names.length; row++){
+                               if(digests[row] == null)
+                                       continue;
+                               text.append(digests[row]).append("  ");
+                               //as BagIt does, so that a name keeps to one line
+                               String name = names[row];
+                               for(int i = 0; i < name.length(); i++){
+                                       char c = name.charAt(i);
+                                       if(c == '%') text.append("%25");
+                                       else if(c == '\n') text.append("%0A");
+                                       else if(c == '\r') text.append("%0D");
+                                       else text.append(c);
+                               }
+                               text.append('\n');
+                               if(text.length() >= 1 << 16){
+                                       write(channel, text);
+                                       text.setLength(0);
+                               }
+                       }
+                       write(channel, text);
+                       channel.force(true);
+               }
+               finally {
+                       channel.close();
+               }
+               Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+               return manifest;
+       }
+
+
+       //bytes read so far
+       public long getBytes(){
+               return bytes.get();
+       }
+
+
+       //"n file(s), x MB in y s (z MB/s)", once finish() returned
+       public String summary(){
+               int files = 0;
+               for(String digest : digests){
+                       if(digest != null)
+                               files++;
+               }
+               double megabytes = bytes.get() / 1e6;
+               double seconds = Math.max(elapsed, 1) / 1e9;
+               return String.format(Locale.ROOT, "%d file(s), %.1f MB in %.2f s (%.1f MB/s)%s",
+                               files, megabytes, seconds, megabytes / seconds, errors > 0 ? ", " + errors + " file(s) unreadable" : "");
+       }
+
+
+       //the digest of a file in hex, or null when it cannot be read
+       private String hash(Path file){
+               ByteBuffer buffer = BUFFERS.get();
+               MessageDigest digest = DIGESTS.get();
+               digest.reset();
+               try {
+                       FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                       try {
+                               buffer.clear();
+                               while(channel.read(buffer) >= 0){
+                                       buffer.flip();
+                                       bytes.addAndGet(buffer.remaining());
+                                       digest.update(buffer);
+                                       buffer.clear();
+                               }
+                       }
+                       finally {
+                               channel.close();
+                       }
+               }
+               catch (IOException e) {
+                       return null;
+               }
+               byte[] value = digest.digest();
+               char[] hex = new char[value.length * 2];
+               for(int i = 0; i < value.length; i++){
+                       hex[2 * i] = HEX[(value[i] >> 4) & 0xF];
+                       hex[2 * i + 1] = HEX[value[i] & 0xF];
+               }
+               return new String(hex);
+       }
+
+
+       private static void write(FileChannel channel, CharSequence text) throws IOException{
+               ByteBuffer buffer = UTF8.encode(CharBuffer.wrap(text));
+               while(buffer.hasRemaining())
+                       channel.write(buffer);
+       }
+
+}
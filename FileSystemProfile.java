@@ -0,0 +1,220 @@
+/* Folio Batch Renamer
+ *
+ * FileSystemProfile holds the rules a file name must follow on the file system the files
+ * end up on, which is not always the one of the computer running the renamer (a Linux
+ * server writing to an SMB share, images going to an exFAT card): the characters it
+ * forbids, the names Windows reserves, the longest name and path, and whether two names
+ * differing only by case, or by Unicode normalization (an accented letter written as one
+ * character or as a letter and an accent), designate the same file.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+public enum FileSystemProfile {
+
+       //           label                    forbidden       windows caseless normless bytes name  path
+       PORTABLE("any (portable names)",      "\\/:*?\"<>|",  true,   true,    true,    false, 255, 260),
+       WINDOWS("Windows, SMB share",         "\\/:*?\"<>|",  true,   true,    false,   false, 255, 260),
+       EXFAT("exFAT, FAT32 (cards, drives)", "\\/:*?\"<>|",  true,   true,    false,   false, 255, 260),
+       MACOS("macOS (APFS, HFS+)",           "/:",           false,  true,    true,    false, 255, 1024),
+       LINUX("Linux (ext4, XFS, Btrfs)",     "/",            false,  false,   false,   true,  255, 4096);
+
+       private static final String[] RESERVED = {"CON", "PRN", "AUX", "NUL",
+               "COM1", "COM2", "COM3", "COM4", "COM5", "COM6", "COM7", "COM8", "COM9",
+               "LPT1", "LPT2", "LPT3", "LPT4", "LPT5", "LPT6", "LPT7", "LPT8", "LPT9"};
+
+       private final String label;
+       private final boolean windows;            //reserved names, control characters, no trailing dot or space
+       private final boolean caseInsensitive;
+       private final boolean normalizationInsensitive;
+       private final boolean lengthInBytes;      //lengths counted in UTF-8 bytes, else in UTF-16 characters
+       private final int maxName;
+       private final int maxPath;
+       private final boolean[] refused = new boolean[128];   //forbidden and control ASCII characters
+
+       FileSystemProfile(String label, String forbidden, boolean windows, boolean caseInsensitive,
+                       boolean normalizationInsensitive, boolean lengthInBytes, int maxName, int maxPath){
+               this.label = label;
+               this.windows = windows;
+               this.caseInsensitive = caseInsensitive;
+               this.normalizationInsensitive = normalizationInsensitive;
+               this.lengthInBytes = lengthInBytes;
+               this.maxName = maxName;
+               this.maxPath = maxPath;
+               for(int c = 0; c < 128; c++)
+                       refused[c] = c == 0 || (windows && c < 32) || forbidden.indexOf(c) >= 0;
+       }
+
+
+       public String toString(){
+               return label;
+       }
+
+
+       //the profile of the system the renamer runs on
+       public static FileSystemProfile forPlatform(){
+               String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+               if(os.startsWith("windows"))
+                       return WINDOWS;
+               if(os.startsWith("mac"))
+                       return MACOS;
+               return LINUX;
+       }
+
+
+       //the profile of a name given on the command line: portable, windows, exfat, macos, linux
+       public static FileSystemProfile forName(String name){
+               for(FileSystemProfile profile : values()){
+                       if(profile.name().equalsIgnoreCase(name.trim()))
+                               return profile;
+               }
+               return null;
+       }
+
+
+       public boolean isCaseInsensitive(){
+               return caseInsensitive;
+       }
+
+
+       public boolean isNormalizationInsensitive(){
+               return normalizationInsensitive;
+       }
+
+
+       public int getMaxPath(){
+               return maxPath;
+       }
+
+
+       /* Why name cannot be given to a file, or null when it can. The length of the whole
+        * path is checked by PreflightCheck, which knows the folder.
+        */
+       public String problem(String name){
+
+               int length = name.length();
+               if(length == 0 || name.equals(".") || name.equals(".."))
+                       return "not a file name";
+               boolean ascii = true;
+               for(int i = 0; i < length; i++){
+                       char c = name.charAt(i);
+                       if(c >= 128)
+                               ascii = false;
+                       else if(refused[c])
+                               return c < 32 ? "control character " + (int) c : "forbidden character " + c;
+               }
+               if(windows){
+                       char last = name.charAt(length - 1);
+                       if(last == '.' || last == ' ')
+                               return "ends with a " + (last == '.' ? "dot" : "space");
+                       if(isReserved(name))
+                               return "reserved name";
+               }
+               if(length(name) > maxName)
+                       return "longer than " + maxName + (lengthInBytes ? " bytes" : " characters");
+               if(this == PORTABLE && ascii == false && Normalizer.isNormalized(name, Normalizer.Form.NFC) == false)
+                       return "not in Unicode NFC form";
+               return null;
+       }
+
+
+       //CON, con.tif, LPT1.txt...: the part before the first dot, trailing spaces ignored
+       private static boolean isReserved(CharSequence name){
+               int end = 0;
+               while(end < name.length() && name.charAt(end) != '.')
+                       end++;
+               while(end > 0 && name.charAt(end - 1) == ' ')
+                       end--;
+               if(end < 3 || end > 4)
+                       return false;
+               for(String reserved : RESERVED){
+                       if(reserved.length() != end)
+                               continue;
+                       int i = 0;
+                       while(i < end && Character.toUpperCase(name.charAt(i)) == reserved.charAt(i))
+                               i++;
+                       if(i == end)
+                               return true;
+               }
+               return false;
+       }
+
+
+       //the length of name as the file system counts it
+       public int length(String name){
+               if(lengthInBytes == false)
+                       return name.length();
+               int bytes = 0;
+               for(int i = 0; i < name.length(); i++){
+                       char c = name.charAt(i);
+                       if(c < 0x80) bytes += 1;
+                       else if(c < 0x800) bytes += 2;
+                       else if(Character.isHighSurrogate(c)){ bytes += 4; i++; }
+                       else bytes += 3;
+               }
+               return bytes;
+       }
+
+
+       /* A 64-bit hash of the file name name designates: equal for two names the file
+        * system takes for the same one (case, normalization), FNV-1a over the characters.
+        */
+       public long identityHash(String name){
+               if(normalizationInsensitive && isAscii(name) == false)
+                       name = Normalizer.normalize(name, Normalizer.Form.NFC);
+               long hash = 0xcbf29ce484222325L;
+               for(int i = 0; i < name.length(); i++){
+                       char c = name.charAt(i);
+                       if(caseInsensitive){
+                               if(c < 128)
+                                       c = (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+                               else
+                                       c = Character.toLowerCase(Character.toUpperCase(c));
+                       }
+                       hash ^= c;
+                       hash *= 0x100000001b3L;
+               }
+               return hash;
+       }
+
+
+       /* name made acceptable: forbidden and control characters become "_", trailing dots
+        * and spaces are dropped, a reserved name gets a "_", the text is put in NFC form.
+        * The length is not touched.
+        */
+       public String sanitize(String name){
+               if(problem(name) == null)
+                       return name;
+               StringBuilder out = new StringBuilder(name.length());
+               for(int i = 0; i < name.length(); i++){
+                       char c = name.charAt(i);
+                       out.append(c < 128 && refused[c] ? '_' : c);
+               }
+               if(windows){
+                       while(out.length() > 0 && (out.charAt(out.length() - 1) == '.' || out.charAt(out.length() - 1) == ' '))
+                               out.setLength(out.length() - 1);
+                       if(isReserved(out))
+                               out.insert(out.indexOf(".") < 0 ? out.length() : out.indexOf("."), '_');
+               }
+               if(out.length() == 0 || out.toString().equals(".") || out.toString().equals(".."))
+                       out.append('_');
+               return Normalizer.normalize(out, Normalizer.Form.NFC);
+       }
+
+
+       private static boolean isAscii(String name){
+               for(int i = 0; i < name.length(); i++){
+                       if(name.charAt(i) >= 0x80)
+                               return false;
+               }
+               return true;
+       }
+
+}
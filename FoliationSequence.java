@@ -0,0 +1,231 @@
+/* Folio Batch Renamer
+ *
+ * FoliationSequence describes the foliation of a manuscript that is not one regular run
+ * of folios, in a short text of comma-separated items, each naming one or more files:
+ *
+ *     cover, 1r-45v, 45bis r-v, 46r-...
+ *
+ *  - a folio side: 12r, 12v; a whole folio: 12 (12r then 12v);
+ *  - a range of sides: 1r-45v, 3v-7r, 1-45 (1r to 45v); leaves missing from the
+ *    manuscript are simply not listed: 1r-10v, 12r-20v;
+ *  - a folio with a mark, the mark separated from the side by a space: 45bis r,
+ *    45bis r-v, 45bis (both sides);
+ *  - an open range, last item only: 46r-... goes on for as many files as there are;
+ *  - anything that does not start with a number is a label naming one file as it is:
+ *    cover, front flyleaf, colour chart.
+ * The numbers are written in a NumberingScheme, folio unless another one is given; an
+ * item starting with the name of a scheme and a colon changes it for the items that
+ * follow, so that a printed book goes in one pass:
+ *
+ *     cover, roman: i-xii, page: 1-318, signature: A1r-B8v
+ *
+ * Pages (page, roman) have no recto or verso: 1-318 names 318 files.
+ * The description is compiled once into segments, each knowing the index of its first
+ * file, so that the side of the i-th file is found by a binary search over the segments,
+ * whatever the number of files.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public final class FoliationSequence {
+
+       public static final String OPEN_END = "...";
+
+       //one item of the description: a label, or a run of consecutive sides or pages
+       private static final class Segment {
+               final String label;               //null for a run of sides or pages
+               final NumberingScheme scheme;
+               final int first;                  //2 * number + (0 for recto, 1 for verso), or the page
+               final String mark;                //"bis" for 45bis, else ""
+               final int count;                  //number of files
+
+               Segment(String label, NumberingScheme scheme, int first, String mark, int count){
+                       this.label = label;
+                       this.scheme = scheme;
+                       this.first = first;
+                       this.mark = mark;
+                       this.count = count;
+               }
+       }
+
+       private final Segment[] segments;
+       private final int[] starts;       //index of the first file of each segment
+       private final int size;           //Integer.MAX_VALUE when the last item is open
+
+
+       private FoliationSequence(List<Segment> list){
+               segments = list.toArray(new Segment[list.size()]);
+               starts = new int[segments.length];
+               long total = 0;
+               for(int i = 0; i < segments.length; i++){
+                       starts[i] = (int) Math.min(total, Integer.MAX_VALUE);
+                       total += segments[i].count;
+               }
+               size = (int) Math.min(total, Integer.MAX_VALUE);
+       }
+
+
+       //number of files the sequence names, Integer.MAX_VALUE when it is open
+       public int size(){
+               return size;
+       }
+
+
+       /* Appends the name of the i-th side of the sequence: the label, or the number
+        * written in its scheme, its mark, then recto or verso when the scheme has sides.
+        */
+       public StringBuilder appendSide(int index, int digits, String recto, String verso, StringBuilder out){
+               if(index < 0 || index >= size)
+                       throw new IndexOutOfBoundsException("The foliation names " + size + " file(s), not " + (index + 1));
+               int s = Arrays.binarySearch(starts, index);
+               if(s < 0)
+                       s = -s - 2;                //the segment starting before index
+               else
+                       while(s + 1 < starts.length && starts[s + 1] == index)
+                               s++;               //skip segments of no file (none are built, but stay safe)
+               Segment segment = segments[s];
+               if(segment.label != null)
+                       return out.append(segment.label);
+               int position = segment.first + (index - starts[s]);
+               if(segment.scheme.hasSides() == false){
+                       segment.scheme.appendNumber(out, position, digits);
+                       return out.append(segment.mark);
+               }
+               segment.scheme.appendNumber(out, position >> 1, digits);
+               out.append(segment.mark);
+               return out.append((position & 1) == 0 ? recto : verso);
+       }
+
+
+       /* Compiles a description (see above), in folios until a scheme is named.
+        * Throws IllegalArgumentException, naming the item at fault, when the description
+        * is not valid.
+        */
+       public static FoliationSequence parse(String text){
+               return parse(text, NumberingScheme.FOLIO);
+       }
+
+
+       public static FoliationSequence parse(String text, NumberingScheme scheme){
+
+               List<Segment> list = new ArrayList<Segment>();
+               String[] items = text.split(",", -1);
+               for(int i = 0; i < items.length; i++){
+                       String item = items[i].trim();
+                       try {
+                               if(item.isEmpty())
+                                       throw new IllegalArgumentException("empty item");
+                               if(list.size() > 0 && list.get(list.size() - 1).count == Integer.MAX_VALUE)
+                                       throw new IllegalArgumentException("nothing can follow an open range");
+                               int colon = item.indexOf(':');
+                               NumberingScheme named = colon < 0 ? null : NumberingScheme.forName(item.substring(0, colon));
+                               if(named != null){
+                                       scheme = named;
+                                       if(item.substring(colon + 1).trim().isEmpty())
+                                               throw new IllegalArgumentException("nothing after the scheme");
+                                       list.add(parseItem(item.substring(colon + 1).trim(), scheme));
+                               }
+                               else
+                                       list.add(parseItem(item, scheme));
+                       }
+                       catch (IllegalArgumentException e) {
+                               throw new IllegalArgumentException("Foliation, item " + (i + 1) + " \"" + item + "\": " + e.getMessage());
+                       }
+               }
+               return new FoliationSequence(list);
+       }
+
+
+       private static Segment parseItem(String item, NumberingScheme scheme){
+
+               if(scheme.numberLength(item) == 0)
+                       return new Segment(item, scheme, 0, "", 1);
+
+               int dash = item.indexOf('-');
+               String from = dash < 0 ? item : item.substring(0, dash).trim();
+               String to = dash < 0 ? null : item.substring(dash + 1).trim();
+
+               Side first = Side.parse(from, null, scheme);
+               if(to == null){
+                       //a single side, or both sides of one folio
+                       int count = first.side < 0 && scheme.hasSides() ? 2 : 1;
+                       return new Segment(null, scheme, first.index(scheme, 0), first.mark, count);
+               }
+               int start = first.index(scheme, 0);
+               if(to.equals(OPEN_END))
+                       return new Segment(null, scheme, start, first.mark, Integer.MAX_VALUE);
+
+               Side last = Side.parse(to, first, scheme);
+               if(last.mark.equals(first.mark) == false)
+                       throw new IllegalArgumentException("a range cannot go from one mark to another");
+               if(first.mark.isEmpty() == false && last.number != first.number)
+                       throw new IllegalArgumentException("a range of marked sides stays on one folio, e.g. 45bis r-v");
+               int end = last.index(scheme, 1);
+               if(end < start)
+                       throw new IllegalArgumentException("the range goes backwards");
+               return new Segment(null, scheme, start, first.mark, end - start + 1);
+       }
+
+
+       //a folio side as written in a description: 12r, 12, 45bis r, r alone after a dash, or a page
+       private static final class Side {
+               int number;
+               String mark = "";
+               int side = -1;            //0 recto, 1 verso, -1 not given or a page
+
+               /* Position of the side in its segment; when it is not given, that of the
+                * recto (0) or the verso (1). A page is its number.
+                */
+               int index(NumberingScheme scheme, int missing){
+                       if(scheme.hasSides() == false)
+                               return number;
+                       return 2 * number + (side < 0 ? missing : side);
+               }
+
+               static Side parse(String text, Side before, NumberingScheme scheme){
+                       Side result = new Side();
+                       String lower = text.toLowerCase(Locale.ROOT);
+                       if(scheme.hasSides() && (lower.equals("r") || lower.equals("v"))){
+                               //r or v alone: the same folio as the start of the range
+                               if(before == null)
+                                       throw new IllegalArgumentException("expected a folio number");
+                               result.number = before.number;
+                               result.mark = before.mark;
+                               result.side = lower.equals("r") ? 0 : 1;
+                               return result;
+                       }
+
+                       int i = scheme.numberLength(text);
+                       if(i == 0)
+                               throw new IllegalArgumentException("expected a " + scheme.getName() + " number");
+                       result.number = scheme.parseNumber(text.substring(0, i));
+                       if(result.number > Integer.MAX_VALUE / 2 - 1)
+                               throw new IllegalArgumentException("number too large");
+
+                       String[] words = text.substring(i).trim().split("\\s+");
+                       int n = words[0].isEmpty() ? 0 : words.length;
+                       if(n > 0 && scheme.hasSides()){
+                               String last = words[n - 1].toLowerCase(Locale.ROOT);
+                               if(last.equals("r") || last.equals("v")){
+                                       result.side = last.equals("r") ? 0 : 1;
+                                       n--;
+                               }
+                       }
+                       if(n > 1)
+                               throw new IllegalArgumentException("unexpected \"" + words[1] + "\"");
+                       if(n == 1)
+                               result.mark = words[0];
+                       return result;
+               }
+       }
+
+}
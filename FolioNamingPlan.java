@@ -0,0 +1,194 @@
+/* Folio Batch Renamer
+ *
+ * FolioNamingPlan is the naming engine shared by both tabs and the command line.
+ * It is built once from the rules of a pass and then gives the new name of the i-th
+ * renamed file (or folder) directly, without walking the files that come before it:
+ *  - in the "separate files for r/v" mode, file i is the recto or the verso of a folio,
+ *    alternating from the side the list starts with;
+ *  - in the "single file for v/r" (spread) mode, file i shows the verso of a folio and
+ *    the recto of the following one.
+ * The numbers are written in a NumberingScheme: folios, or pages (page, roman), file i
+ * being page i from the starting one (for a spread, the pages on both sides of the fold),
+ * or signatures.
+ * With a FoliationSequence, the sides come from the sequence instead of one regular run
+ * from the starting folio: file i is its i-th side, or for a spread its sides 2i and 2i+1.
+ * A plan is immutable and can be shared between threads. Names are appended to a
+ * StringBuilder supplied by the caller, so that a loop can reuse the same one, and the
+ * folio numbers are zero-padded by hand instead of going through String.format.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+public final class FolioNamingPlan {
+
+       private final String prefix;
+       private final String suffix;
+       private final String folioRecto;   //pre-recto text + recto suffix
+       private final String folioVerso;   //pre-verso text + verso suffix
+       private final String separator;
+       private final int digits;
+       private final int startingNum;
+       private final int firstSide;       //0 when the list starts on a recto, 1 on a verso
+       private final boolean spread;
+       private final NumberingScheme scheme;
+       private final FoliationSequence sequence;   //or null for one regular run of folios
+
+
+       public FolioNamingPlan(String prefix, String suffix, String folioRecto, String folioVerso,
+                       String separator, int digits, int startingNum, boolean startWithVerso, boolean spread){
+               this(prefix, suffix, folioRecto, folioVerso, separator, digits, startingNum, startWithVerso, spread,
+                               NumberingScheme.FOLIO, null);
+       }
+
+
+       public FolioNamingPlan(String prefix, String suffix, String folioRecto, String folioVerso,
+                       String separator, int digits, int startingNum, boolean startWithVerso, boolean spread,
+                       NumberingScheme scheme, FoliationSequence sequence){
+
+               if(digits < 1)
+                       throw new IllegalArgumentException("The number of digits must be at least 1");
+
+               this.prefix = prefix;
+               this.suffix = suffix;
+               this.folioRecto = folioRecto;
+               this.folioVerso = folioVerso;
+               this.separator = separator;
+               this.digits = digits;
+               this.startingNum = startingNum;
+               this.firstSide = (startWithVerso && spread == false && scheme.hasSides()) ? 1 : 0;
+               this.spread = spread;
+               this.scheme = scheme;
+               this.sequence = sequence;
+       }
+
+
+       public boolean isSpread(){
+               return spread;
+       }
+
+
+       //number of files the plan can name: Integer.MAX_VALUE, unless a sequence ends it
+       public int capacity(){
+               if(sequence == null || sequence.size() == Integer.MAX_VALUE)
+                       return Integer.MAX_VALUE;
+               return spread ? (sequence.size() + 1) / 2 : sequence.size();
+       }
+
+
+       /* Folio number shown by the i-th file (for a spread, the number of its recto; for
+        * pages, its page), for a plan without sequence.
+        */
+       public int folio(int index){
+               if(scheme.hasSides() == false)
+                       return startingNum + (spread ? 2 * index : index);
+               if(spread)
+                       return startingNum + index;
+               return startingNum + (index + firstSide) / 2;
+       }
+
+
+       //true when the i-th file is a verso (never for a spread), for a plan without sequence
+       public boolean isVerso(int index){
+               return spread == false && scheme.hasSides() && ((index + firstSide) & 1) == 1;
+       }
+
+
+       /* Appends the new name of the i-th file to out, followed by the extension
+        * (which is "" for folders or when the extension is ignored).
+        */
+       public StringBuilder appendName(int index, String extension, StringBuilder out){
+
+               out.append(prefix);
+               if(sequence != null){
+                       if(spread == false)
+                               sequence.appendSide(index, digits, folioRecto, folioVerso, out);
+                       else {
+                               sequence.appendSide(2 * index, digits, folioRecto, folioVerso, out);
+                               //the last file of a sequence with an odd number of sides shows one side
+                               if(2 * index + 1 < sequence.size())
+                                       sequence.appendSide(2 * index + 1, digits, folioRecto, folioVerso, out.append(separator));
+                       }
+               }
+               else if(scheme.hasSides() == false){
+                       // left-hand page, then right-hand page of the image
+                       if(spread){
+                               scheme.appendNumber(out, folio(index) - 1, digits);
+                               out.append(separator);
+                       }
+                       scheme.appendNumber(out, folio(index), digits);
+               }
+               else if(spread){
+                       // verso part of the image, then recto part of the image
+                       scheme.appendNumber(out, startingNum + index - 1, digits);
+                       out.append(folioVerso).append(separator);
+                       scheme.appendNumber(out, startingNum + index, digits);
+                       out.append(folioRecto);
+               } else {
+                       scheme.appendNumber(out, folio(index), digits);
+                       out.append(isVerso(index) ? folioVerso : folioRecto);
+               }
+               return out.append(suffix).append(extension);
+       }
+
+
+       /* Appends the name of a file whose sides are given, e.g. by a row of a NameManifest,
+        * instead of found from its position: the first side, then the second one, if any,
+        * after the separator.
+        */
+       public StringBuilder appendName(FoliationSequence sides, String extension, StringBuilder out){
+
+               out.append(prefix);
+               sides.appendSide(0, digits, folioRecto, folioVerso, out);
+               if(sides.size() > 1)
+                       sides.appendSide(1, digits, folioRecto, folioVerso, out.append(separator));
+               return out.append(suffix).append(extension);
+       }
+
+
+       /* A SpreadNameBuffer giving the same names as appendName(), for one thread, when the
+        * plan is a regular run of spreads in folios; null otherwise.
+        */
+       public SpreadNameBuffer newSpreadBuffer(){
+               if(spread == false || sequence != null || scheme != NumberingScheme.FOLIO)
+                       return null;
+               return new SpreadNameBuffer(prefix, folioVerso, separator, folioRecto, suffix, digits, startingNum);
+       }
+
+
+       public String name(int index, String extension){
+               return appendName(index, extension, new StringBuilder(prefix.length() + suffix.length() + 32)).toString();
+       }
+
+
+       /* Writes number in decimal on at least width characters, padded with leading zeros;
+        * same output as String.format("%0<width>d", number), the sign counting in the width.
+        */
+       static void appendPadded(StringBuilder out, int number, int width){
+
+               long value = number;
+               if(value < 0){
+                       out.append('-');
+                       value = -value;
+                       width--;
+               }
+
+               int length = 1;
+               for(long rest = value / 10; rest > 0; rest /= 10)
+                       length++;
+
+               for(int i = length; i < width; i++)
+                       out.append('0');
+
+               int start = out.length();
+               out.setLength(start + length);
+               for(int i = start + length - 1; i >= start; i--){
+                       out.setCharAt(i, (char) ('0' + value % 10));
+                       value /= 10;
+               }
+       }
+
+}
@@ -0,0 +1,150 @@
+/* Folio Batch Renamer
+ *
+ * LogBuffer keeps the most recent lines of the rename output in a fixed-size ring, so
+ * that a pass over hundreds of thousands of files does not grow the output without
+ * bound. Lines can be added from any thread. When the whole log is wanted, it can also
+ * be spilled to a file: from then on every line is written there as well.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+public class LogBuffer {
+
+       private final String[] lines;
+       private int next = 0;        //where the next line goes in the ring
+       private long total = 0;      //lines added since the last clear()
+       private Writer spill;
+       private IOException spillError;
+
+
+       public LogBuffer(int capacity){
+               if(capacity < 1)
+                       throw new IllegalArgumentException("The capacity must be at least 1");
+               lines = new String[capacity];
+       }
+
+
+       //adds each non-empty line of text
+       public synchronized void add(String text){
+               int start = 0;
+               while(start <= text.length()){
+                       int end = text.indexOf('\n', start);
+                       if(end < 0)
+                               end = text.length();
+                       if(end > start)
+                               addLine(text.substring(start, end));
+                       start = end + 1;
+               }
+       }
+
+
+       private void addLine(String line){
+               lines[next] = line;
+               next = (next + 1) % lines.length;
+               total++;
+               if(spill != null){
+                       try {
+                               spill.write(line);
+                               spill.write(System.lineSeparator());
+                       }
+                       catch (IOException e) {
+                               spillError = e;
+                               closeSpill();
+                       }
+               }
+       }
+
+
+       //number of lines added, including those the ring no longer holds
+       public synchronized long total(){
+               return total;
+       }
+
+
+       //number of lines held by the ring
+       public synchronized int size(){
+               return (int) Math.min(total, lines.length);
+       }
+
+
+       //the i-th line held by the ring, the oldest first
+       public synchronized String get(int i){
+               int size = size();
+               if(i < 0 || i >= size)
+                       return "";
+               return lines[(next - size + i + lines.length) % lines.length];
+       }
+
+
+       public synchronized void clear(){
+               Arrays.fill(lines, null);
+               next = 0;
+               total = 0;
+       }
+
+
+       /* Writes the lines held by the ring to out, then every new line as it comes,
+        * until stopSpill(). The writer is closed by stopSpill().
+        */
+       public synchronized void spillTo(Writer out) throws IOException{
+               closeSpill();
+               spillError = null;
+               for(int i = 0, size = size(); i < size; i++){
+                       out.write(get(i));
+                       out.write(System.lineSeparator());
+               }
+               spill = out;
+       }
+
+
+       public synchronized boolean isSpilling(){
+               return spill != null;
+       }
+
+
+       //the error that stopped the last spill, if any
+       public synchronized IOException getSpillError(){
+               return spillError;
+       }
+
+
+       public synchronized void flushSpill(){
+               if(spill == null)
+                       return;
+               try {
+                       spill.flush();
+               }
+               catch (IOException e) {
+                       spillError = e;
+                       closeSpill();
+               }
+       }
+
+
+       public synchronized void stopSpill(){
+               closeSpill();
+       }
+
+
+       private void closeSpill(){
+               if(spill == null)
+                       return;
+               try {
+                       spill.close();
+               }
+               catch (IOException e) {
+                       if(spillError == null)
+                               spillError = e;
+               }
+               spill = null;
+       }
+
+}
@@ -0,0 +1,263 @@
+/* Folio Batch Renamer
+ *
+ * ManifestReader reads a CSV or TSV file one record at a time, as exported by a
+ * spreadsheet: fields separated by tabs, semicolons or commas (found from the first
+ * line when not given), optionally in double quotes, a quote inside quotes being
+ * doubled, and line breaks allowed inside quotes. Blank lines and lines starting with #
+ * are skipped, and a byte order mark at the start is ignored.
+ * The characters are read into one buffer that is reused from record to record: a
+ * field is only an offset and a length in that buffer (the quotes are removed in place),
+ * so going through a file of a million lines makes no object per line, and a caller can
+ * look a field up without turning it into a String. The memory used is that of the
+ * buffer, which only grows for a record longer than itself.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+public final class ManifestReader implements Closeable {
+
+       private static final int BUFFER = 1 << 16;
+
+       private final Reader in;
+       private char[] buffer = new char[BUFFER];
+       private int position = 0;          //start of the next record
+       private int limit = 0;             //end of the characters read
+       private int scan = 0;              //how far the next record has been scanned
+       private boolean quoted = false;    //the scan is inside quotes
+       private int breaks = 0;            //line breaks met inside quotes by the scan
+       private boolean started = false;   //the first characters were read
+       private boolean exhausted = false;
+       private char delimiter;            //0 until found from the first line
+       private int[] starts = new int[8];
+       private int[] lengths = new int[8];
+       private int count = 0;             //fields of the current record
+       private int line = 0;              //lines before the next record
+       private int recordLine = 0;
+
+
+       /* A reader of the records of in, whose fields are separated by delimiter, or by the
+        * tab, semicolon or comma the first line holds when delimiter is 0.
+        */
+       public ManifestReader(Reader in, char delimiter){
+               this.in = in;
+               this.delimiter = delimiter;
+       }
+
+
+       /* Moves to the next record; returns false at the end of the file. The fields of the
+        * previous record are no longer valid.
+        */
+       public boolean next() throws IOException{
+
+               while(true){
+                       int stop = -1;
+                       for(; scan < limit; scan++){
+                               char c = buffer[scan];
+                               if(c == '"')
+                                       quoted = !quoted;
+                               else if(c == '\n'){
+                                       if(quoted == false){
+                                               stop = scan;
+                                               break;
+                                       }
+                                       breaks++;
+                               }
+                       }
+                       if(stop < 0){
+                               if(exhausted == false){
+                                       fill();
+                                       continue;
+                               }
+                               if(position == limit)
+                                       return false;
+                               stop = limit;              //the last line has no line break
+                       }
+
+                       int from = position;
+                       int to = stop > from && buffer[stop - 1] == '\r' ? stop - 1 : stop;
+                       recordLine = line + 1;
+                       line += 1 + breaks;
+                       position = Math.min(stop + 1, limit);
+                       scan = position;
+                       quoted = false;
+                       breaks = 0;
+
+                       if(to == from || buffer[from] == '#')
+                               continue;                  //blank line or comment
+                       if(delimiter == 0)
+                               delimiter = sniff(from, to);
+                       split(from, to);
+                       if(count == 1 && lengths[0] == 0)
+                               continue;                  //only spaces
+                       return true;
+               }
+
+       }//end next
+
+
+       //number of fields of the current record
+       public int fields(){
+               return count;
+       }
+
+
+       //the i-th field of the current record, as a new String
+       public String field(int i){
+               return new String(buffer, starts[i], lengths[i]);
+       }
+
+
+       //the buffer holding the current record: field i is at start(i), on length(i) characters
+       char[] buffer(){
+               return buffer;
+       }
+
+
+       int start(int i){
+               return starts[i];
+       }
+
+
+       int length(int i){
+               return lengths[i];
+       }
+
+
+       //the line of the file the current record starts on, from 1
+       public int lineNumber(){
+               return recordLine;
+       }
+
+
+       public char getDelimiter(){
+               return delimiter;
+       }
+
+
+       public void close() throws IOException{
+               in.close();
+       }
+
+
+       //moves the unread characters to the start of the buffer, growing it when full, and reads more
+       private void fill() throws IOException{
+               if(position > 0){
+                       System.arraycopy(buffer, position, buffer, 0, limit - position);
+                       scan -= position;
+                       limit -= position;
+                       position = 0;
+               }
+               if(limit == buffer.length){
+                       char[] larger = new char[2 * buffer.length];
+                       System.arraycopy(buffer, 0, larger, 0, limit);
+                       buffer = larger;
+               }
+               int read = in.read(buffer, limit, buffer.length - limit);
+               if(read < 0){
+                       exhausted = true;
+                       return;
+               }
+               limit += read;
+               if(started == false && limit > 0){
+                       started = true;
+                       if(buffer[0] == '\uFEFF')
+                               position = scan = 1;       //byte order mark
+               }
+       }
+
+
+       //the separator of the first line: a tab, else the most frequent of ; and ,
+       private char sniff(int from, int to){
+               int semicolons = 0, commas = 0;
+               boolean inQuotes = false;
+               for(int i = from; i < to; i++){
+                       char c = buffer[i];
+                       if(c == '"')
+                               inQuotes = !inQuotes;
+                       else if(inQuotes == false){
+                               if(c == '\t')
+                                       return '\t';
+                               if(c == ';')
+                                       semicolons++;
+                               else if(c == ',')
+                                       commas++;
+                       }
+               }
+               return semicolons > commas ? ';' : ',';
+       }
+
+
+       /* Finds the fields of the record buffer[from, to). A quoted field loses its quotes
+        * in place; an unquoted field loses the spaces around it.
+        */
+       private void split(int from, int to){
+               count = 0;
+               int i = from;
+               while(true){
+                       int start, length;
+                       int j = i;
+                       while(j < to && isBlank(buffer[j]))
+                               j++;
+                       if(j < to && buffer[j] == '"'){
+                               start = j;
+                               int out = j;
+                               j++;
+                               while(j < to){
+                                       char c = buffer[j++];
+                                       if(c == '"'){
+                                               if(j < to && buffer[j] == '"')
+                                                       j++;               //a doubled quote stands for one
+                                               else
+                                                       break;
+                                       }
+                                       buffer[out++] = c;
+                               }
+                               length = out - start;
+                               while(j < to && buffer[j] != delimiter)
+                                       j++;
+                       }
+                       else {
+                               start = j;
+                               while(j < to && buffer[j] != delimiter)
+                                       j++;
+                               int end = j;
+                               while(end > start && isBlank(buffer[end - 1]))
+                                       end--;
+                               length = end - start;
+                       }
+                       add(start, length);
+                       if(j >= to)
+                               return;
+                       i = j + 1;                         //past the delimiter
+               }
+       }
+
+
+       private boolean isBlank(char c){
+               return c == ' ' || (c == '\t' && delimiter != '\t');
+       }
+
+
+       private void add(int start, int length){
+               if(count == starts.length){
+                       int[] moreStarts = new int[2 * count];
+                       int[] moreLengths = new int[2 * count];
+                       System.arraycopy(starts, 0, moreStarts, 0, count);
+                       System.arraycopy(lengths, 0, moreLengths, 0, count);
+                       starts = moreStarts;
+                       lengths = moreLengths;
+               }
+               starts[count] = start;
+               lengths[count] = length;
+               count++;
+       }
+
+}
@@ -0,0 +1,318 @@
+/* Folio Batch Renamer
+ *
+ * MoveTransaction moves a batch of files from one folder to another under their new
+ * names, e.g. from the SSD of the capture workstation to the archive volume:
+ *  - when both folders are on the same volume, each file is simply renamed into the
+ *    target folder, which is atomic;
+ *  - across volumes, where a rename is impossible, each file is copied with
+ *    FileChannel.transferTo (the kernel copies without going through Java, with
+ *    copy_file_range or sendfile where it can) to a temporary name in the target, forced
+ *    to disk, compared byte for byte with the source, given its new name, and only then
+ *    is the source deleted. A failed or interrupted copy leaves the source as it was.
+ * The copies run side by side on a bounded number of threads, so that a fixed number of
+ * transfers is in flight whatever the size of the batch.
+ * A file never replaces one already in the target folder.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MoveTransaction implements RenameBatch {
+
+       private static final String PART = ".part";
+       private static final int BUFFER = 1 << 20;
+       private static final long CHUNK = 1L << 30;     //bytes asked of one transferTo call
+
+       //the two buffers of a thread comparing a copy with its source
+       private static final ThreadLocal<ByteBuffer[]> BUFFERS = new ThreadLocal<ByteBuffer[]>(){
+               protected ByteBuffer[] initialValue(){
+                       return new ByteBuffer[]{ ByteBuffer.allocateDirect(BUFFER), ByteBuffer.allocateDirect(BUFFER) };
+               }
+       };
+
+       private final Path source;
+       private final Path target;
+       private final List<String> oldNames = new ArrayList<String>();
+       private final List<String> newNames = new ArrayList<String>();
+       private final String runId = Long.toString(System.currentTimeMillis(), 36);
+       private boolean[] renamed;
+       private int failCount = 0;
+       private boolean stopped = false;
+       private int parallelism = 1;
+       private boolean copied = false;          //the last execute() crossed volumes
+       private RenamedListener renamedListener;
+       private RunMetrics metrics;
+
+
+       public MoveTransaction(Path source, Path target){
+               this.source = source;
+               this.target = target;
+       }
+
+
+       //every file is queued: even under the same name, it has to move
+       public boolean add(String oldName, String newName){
+               oldNames.add(oldName);
+               newNames.add(newName);
+               return true;
+       }
+
+
+       //number of transfers in flight
+       public void setParallelism(int parallelism){
+               if(parallelism < 1)
+                       throw new IllegalArgumentException("The parallelism must be at least 1");
+               this.parallelism = parallelism;
+       }
+
+
+       public void setRenamedListener(RenamedListener renamedListener){
+               this.renamedListener = renamedListener;
+       }
+
+
+       public void setMetrics(RunMetrics metrics){
+               this.metrics = metrics;
+       }
+
+
+       public int size(){
+               return oldNames.size();
+       }
+
+
+       public String getOldName(int i){
+               return oldNames.get(i);
+       }
+
+
+       public String getNewName(int i){
+               return newNames.get(i);
+       }
+
+
+       public boolean isRenamed(int i){
+               return renamed != null && renamed[i];
+       }
+
+
+       public int getFailCount(){
+               return failCount;
+       }
+
+
+       //the files moved before a stop keep their new place: nothing is rolled back
+       public boolean isRolledBack(){
+               return false;
+       }
+
+
+       public boolean isStopped(){
+               return stopped;
+       }
+
+
+       //true when the last execute() copied the files to another volume
+       public boolean isCopied(){
+               return copied;
+       }
+
+
+       /* Moves every file, stopping before the next one when the listener asks to. A file
+        * whose new name is taken in the target, or that cannot be moved, stays where it is
+        * and counts as a failure. Returns true when every file was moved (false after a
+        * stop, the files not reached staying in the source).
+        */
+       public boolean execute(final RenameJob.Listener listener) throws IOException{
+
+               final int n = oldNames.size();
+               final AtomicInteger done = new AtomicInteger();
+               renamed = new boolean[n];
+               failCount = 0;
+               stopped = false;
+
+               Files.createDirectories(target);
+               copied = Files.getFileStore(source).equals(Files.getFileStore(target)) == false;
+               if(copied)
+                       removeParts(listener);
+               listener.log((copied ? "Copying to " : "Moving to ") + target + "\n");
+
+               Parallel.forEach(n, parallelism, new Parallel.Step(){
+                       public void run(int i){
+                               if(listener.isStopRequested())
+                                       return;
+                               Path from = source.resolve(oldNames.get(i));
+                               Path to = target.resolve(newNames.get(i));
+                               try {
+                                       long start = System.nanoTime();
+                                       if(copied)
+                                               copy(from, to, target.resolve(".folio-rename-" + runId + "-" + i + PART));
+                                       else
+                                               Files.move(from, to);      //never replaces: fails when the name is taken
+                                       if(metrics != null)
+                                               metrics.recordMove(System.nanoTime() - start);
+                                       renamed[i] = true;
+                                       if(renamedListener != null)
+                                               renamedListener.renamed(i);
+                                       listener.log(oldNames.get(i) + "\n -> " + to + "\n"
+                                               + "\n\t*Renamed successfully?: true\n\n");
+                               }
+                               catch (IOException e) {
+                                       reportFailure(listener, i, e);
+                               }
+                               listener.progress(done.incrementAndGet(), n);
+                       }
+               });
+
+               stopped = listener.isStopRequested() && done.get() < n;
+               if(stopped)
+                       listener.log("Stopped: " + (n - done.get()) + " file(s) left in " + source + "\n");
+               listener.progress(n, n);
+               return failCount == 0 && stopped == false;
+
+       }//end execute
+
+
+       /* Copies from to part, checks the copy, gives it the name to, then deletes from.
+        * On any failure the part is deleted and from is left alone; when from cannot be
+        * deleted, the copy is deleted, so that the file is in one folder only and running
+        * again moves it.
+        */
+       private static void copy(Path from, Path to, Path part) throws IOException{
+
+               if(Files.exists(to))
+                       throw new FileAlreadyExistsException(to.toString());
+               if(Files.isDirectory(from))
+                       throw new IOException("a folder is only moved within its volume");
+               boolean done = false;
+               try {
+                       FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+                       try {
+                               FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                               try {
+                                       long size = in.size();
+                                       long position = 0;
+                                       while(position < size){
+                                               long sent = in.transferTo(position, Math.min(CHUNK, size - position), out);
+                                               if(sent <= 0 && in.size() <= position)
+                                                       break;             //the source got shorter
+                                               position += sent;
+                                       }
+                                       out.force(true);
+                               }
+                               finally {
+                                       out.close();
+                               }
+                       }
+                       finally {
+                               in.close();
+                       }
+                       Files.setLastModifiedTime(part, Files.getLastModifiedTime(from));
+                       if(sameContent(from, part) == false)
+                               throw new IOException("the copy differs from " + from);
+                       Files.move(part, to);                   //same folder: a rename, and never a replacement
+                       done = true;
+               }
+               finally {
+                       if(done == false)
+                               Files.deleteIfExists(part);
+               }
+               try {
+                       Files.delete(from);
+               }
+               catch (IOException e) {
+                       try {
+                               Files.delete(to);
+                       }
+                       catch (IOException second) {
+                               throw new IOException("the source could not be deleted (" + e + "), nor the copy " + to + " (" + second + ")");
+                       }
+                       throw e;
+               }
+       }
+
+
+       //true when both files hold the same bytes
+       private static boolean sameContent(Path a, Path b) throws IOException{
+               ByteBuffer[] buffers = BUFFERS.get();
+               FileChannel first = FileChannel.open(a, StandardOpenOption.READ);
+               try {
+                       FileChannel second = FileChannel.open(b, StandardOpenOption.READ);
+                       try {
+                               if(first.size() != second.size())
+                                       return false;
+                               while(true){
+                                       buffers[0].clear();
+                                       buffers[1].clear();
+                                       int read = fill(first, buffers[0]);
+                                       if(fill(second, buffers[1]) != read)
+                                               return false;
+                                       if(read == 0)
+                                               return true;
+                                       buffers[0].flip();
+                                       buffers[1].flip();
+                                       if(buffers[0].equals(buffers[1]) == false)
+                                               return false;
+                               }
+                       }
+                       finally {
+                               second.close();
+                       }
+               }
+               finally {
+                       first.close();
+               }
+       }
+
+
+       //reads until the buffer is full or the file ends; returns the bytes read
+       private static int fill(FileChannel channel, ByteBuffer buffer) throws IOException{
+               int total = 0;
+               while(buffer.hasRemaining()){
+                       int read = channel.read(buffer);
+                       if(read < 0)
+                               break;
+                       total += read;
+               }
+               return total;
+       }
+
+
+       //the parts left in the target by an interrupted copy: their sources were never deleted
+       private void removeParts(RenameJob.Listener listener) throws IOException{
+               DirectoryStream<Path> parts = Files.newDirectoryStream(target, ".folio-rename-*" + PART);
+               try {
+                       for(Path part : parts){
+                               Files.deleteIfExists(part);
+                               listener.log("Unfinished copy removed: " + part.getFileName() + "\n");
+                       }
+               }
+               finally {
+                       parts.close();
+               }
+       }
+
+
+       private synchronized void reportFailure(RenameJob.Listener listener, int i, IOException e){
+               failCount++;
+               listener.log(oldNames.get(i) + "\n -> " + target.resolve(newNames.get(i)) + "\n"
+                       + "\n\t*Renamed successfully?: false ("
+                       + (e instanceof FileAlreadyExistsException ? "name already taken" : e.toString()) + ")\n\n");
+       }
+
+}
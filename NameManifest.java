@@ -0,0 +1,215 @@
+/* Folio Batch Renamer
+ *
+ * NameManifest gives the files of a folder the sides a list says they show, e.g. a
+ * spreadsheet of the cataloguer for a manuscript with an irregular foliation, saved as
+ * CSV or TSV. Each line names a file, by its name or by its position (from 1) in the
+ * chosen order, then the side it shows, written as an item of a FoliationSequence:
+ *
+ *     file,folio
+ *     IMG_0001.tif,cover
+ *     IMG_0002.tif,1r
+ *     IMG_0003.tif,45bis v
+ *     4,46r
+ *
+ * (for a spread, the verso and the recto: 45v-46r). The new name is made by the
+ * FolioNamingPlan of the rules, so the prefix, the number of digits and the recto and
+ * verso suffixes apply as in the two tabs. A first line naming the columns is skipped;
+ * the files the list does not name keep their names.
+ * The list is read by a ManifestReader, one line at a time, and each line is joined
+ * with the scan of the folder through an open-addressing hash index of the entry names,
+ * looked up straight from the characters of the line: the memory used grows with the
+ * number of files named, whatever the size of the list, and the only String made for a
+ * line is the new name. The renames then go through the RenameTransaction of the pass,
+ * which orders them in chains and puts a cycle of names aside under a temporary name.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+public final class NameManifest {
+
+       //first cells of a line naming the columns
+       private static final String[] HEADER = {"file", "filename", "file name", "name", "old name", "image", "index"};
+       private static final int REPORTED = 20;       //problems described in the report
+
+       private final File file;
+       private final StringBuilder report = new StringBuilder();
+       private int problems = 0;
+
+
+       public NameManifest(File file){
+               this.file = file;
+       }
+
+
+       public File getFile(){
+               return file;
+       }
+
+
+       /* The new name the list gives each of entries (the files of the folder, in the order
+        * of the rules), or null for the entries it does not name. A line naming no file of
+        * the folder, a file named twice, or a side that cannot be read stop the pass before
+        * anything is renamed: the first of them are logged, and an IOException is thrown.
+        */
+       public String[] names(List<DirectoryScan.Entry> entries, RenameJob rules, RenameJob.Listener listener) throws IOException{
+
+               int n = entries.size();
+               String[] names = new String[n];
+               int[] index = index(entries);
+               FolioNamingPlan plan = rules.getNamingPlan();
+               StringBuilder out = new StringBuilder(64);
+               int lines = 0;
+               report.setLength(0);
+               problems = 0;
+
+               ManifestReader reader = new ManifestReader(new InputStreamReader(Files.newInputStream(file.toPath()),
+                               Charset.forName("UTF-8").newDecoder()), '\0');
+               try {
+                       while(reader.next()){
+                               lines++;
+                               int row = find(index, entries, reader.buffer(), reader.start(0), reader.length(0));
+                               if(row < 0)
+                                       row = position(reader, n);
+                               if(row < 0){
+                                       if(lines > 1 || isHeader(reader.field(0)) == false)
+                                               problem(reader, "no file " + reader.field(0) + " in the folder");
+                                       continue;
+                               }
+                               if(reader.fields() < 2 || reader.length(1) == 0){
+                                       problem(reader, "no side given for " + entries.get(row).name);
+                                       continue;
+                               }
+                               if(names[row] != null){
+                                       problem(reader, entries.get(row).name + " is named twice");
+                                       continue;
+                               }
+                               FoliationSequence sides;
+                               try {
+                                       sides = FoliationSequence.parse(reader.field(1), rules.getNumbering());
+                               }
+                               catch (IllegalArgumentException e) {
+                                       problem(reader, e.getMessage());
+                                       continue;
+                               }
+                               int count = sides.size();
+                               if(count != 1 && (rules.isSpread() == false || count != 2)){
+                                       problem(reader, reader.field(1) + " names " + (count == Integer.MAX_VALUE ? "an open range" : count + " sides")
+                                                       + ", not " + (rules.isSpread() ? "one spread" : "one side"));
+                                       continue;
+                               }
+                               out.setLength(0);
+                               names[row] = plan.appendName(sides, rules.extension(entries.get(row).name), out).toString();
+                       }
+               }
+               catch (CharacterCodingException e) {
+                       throw new IOException(file.getName() + " is not in UTF-8 (save it as CSV UTF-8 or as Unicode text)");
+               }
+               finally {
+                       reader.close();
+               }
+
+               if(problems > 0){
+                       listener.log("Name list " + file.getName() + ": " + problems + " problem(s)\n" + report);
+                       throw new IOException("Name list " + file.getName() + ": " + problems + " problem(s), nothing renamed");
+               }
+               return names;
+
+       }//end names
+
+
+       /* An open-addressing table of the entries by name: slot -> index + 1, 0 when free.
+        * The hash is that of String.hashCode(), which the names already hold, so that a
+        * name can be looked up from characters without making a String of them.
+        */
+       private static int[] index(List<DirectoryScan.Entry> entries){
+               int capacity = Integer.highestOneBit(Math.max(16, 2 * entries.size()) - 1) << 1;
+               int[] table = new int[capacity];
+               for(int i = 0; i < entries.size(); i++){
+                       int slot = mix(entries.get(i).name.hashCode()) & (capacity - 1);
+                       while(table[slot] != 0)
+                               slot = (slot + 1) & (capacity - 1);
+                       table[slot] = i + 1;
+               }
+               return table;
+       }
+
+
+       //the entry named by chars[start, start + length), or -1
+       private static int find(int[] table, List<DirectoryScan.Entry> entries, char[] chars, int start, int length){
+               int hash = 0;
+               for(int i = start; i < start + length; i++)
+                       hash = 31 * hash + chars[i];
+               int mask = table.length - 1;
+               for(int slot = mix(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask){
+                       String name = entries.get(table[slot] - 1).name;
+                       if(name.length() == length && sameChars(name, chars, start))
+                               return table[slot] - 1;
+               }
+               return -1;
+       }
+
+
+       private static boolean sameChars(String name, char[] chars, int start){
+               for(int i = 0; i < name.length(); i++){
+                       if(name.charAt(i) != chars[start + i])
+                               return false;
+               }
+               return true;
+       }
+
+
+       private static int mix(int hash){
+               int h = hash * 0x9E3779B9;
+               return h ^ (h >>> 16);
+       }
+
+
+       //the entry at the position the first field gives, from 1, or -1 when it is not one
+       private static int position(ManifestReader reader, int n){
+               char[] chars = reader.buffer();
+               int start = reader.start(0);
+               int length = reader.length(0);
+               if(length == 0 || length > 9)
+                       return -1;
+               int value = 0;
+               for(int i = start; i < start + length; i++){
+                       if(chars[i] < '0' || chars[i] > '9')
+                               return -1;
+                       value = 10 * value + (chars[i] - '0');
+               }
+               return value >= 1 && value <= n ? value - 1 : -1;
+       }
+
+
+       private static boolean isHeader(String cell){
+               String lower = cell.toLowerCase(Locale.ROOT);
+               for(String word : HEADER){
+                       if(lower.equals(word))
+                               return true;
+               }
+               return false;
+       }
+
+
+       private void problem(ManifestReader reader, String text){
+               problems++;
+               if(problems <= REPORTED)
+                       report.append("  line ").append(reader.lineNumber()).append(": ").append(text).append('\n');
+               else if(problems == REPORTED + 1)
+                       report.append("  ...\n");
+       }
+
+}
@@ -0,0 +1,93 @@
+/* Folio Batch Renamer
+ *
+ * NaturalOrder sorts names the way people read them: the runs of digits are compared
+ * as numbers, so that IMG_2.tif comes before IMG_10.tif, and letters are compared
+ * without regard to case.
+ * Rather than parsing both names again in every comparison, each name is turned once
+ * into a sort key that plain String.compareTo orders correctly: the letters are lower-
+ * cased, and each run of digits becomes a marker, the number of its significant digits,
+ * then the digits without their leading zeros (a longer number is a larger one).
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public final class NaturalOrder {
+
+       //starts a run of digits; '0' itself never appears elsewhere in a key
+       private static final char NUMBER = '0';
+
+
+       private NaturalOrder(){
+       }
+
+
+       public static String key(String name){
+
+               int length = name.length();
+               StringBuilder key = new StringBuilder(length + 8);
+               int i = 0;
+               while(i < length){
+                       char c = name.charAt(i);
+                       if(c >= '0' && c <= '9'){
+                               int start = i;
+                               while(i < length && name.charAt(i) == '0')
+                                       i++;
+                               int significant = i;
+                               while(i < length && name.charAt(i) >= '0' && name.charAt(i) <= '9')
+                                       i++;
+                               if(significant == i && significant > start)
+                                       significant--;           //a run of zeros is the number 0
+                               key.append(NUMBER).append((char) (NUMBER + i - significant));
+                               key.append(name, significant, i);
+                       }
+                       else {
+                               key.append(Character.toLowerCase(Character.toUpperCase(c)));
+                               i++;
+                       }
+               }
+               return key.toString();
+       }
+
+
+       /* Sorts entries in natural order, computing the key of each entry only once;
+        * names with the same key (IMG_01, IMG_1) keep the order they had.
+        */
+       public static void sort(List<DirectoryScan.Entry> entries){
+
+               int n = entries.size();
+               Keyed[] keyed = new Keyed[n];
+               for(int i = 0; i < n; i++)
+                       keyed[i] = new Keyed(key(entries.get(i).name), entries.get(i));
+
+               Arrays.sort(keyed, BY_KEY);   //stable
+
+               for(int i = 0; i < n; i++)
+                       entries.set(i, keyed[i].entry);
+       }
+
+
+       private static final class Keyed {
+               final String key;
+               final DirectoryScan.Entry entry;
+
+               Keyed(String key, DirectoryScan.Entry entry){
+                       this.key = key;
+                       this.entry = entry;
+               }
+       }
+
+       private static final Comparator<Keyed> BY_KEY = new Comparator<Keyed>(){
+               public int compare(Keyed a, Keyed b){
+                       return a.key.compareTo(b.key);
+               }
+       };
+
+}
@@ -0,0 +1,274 @@
+/* Folio Batch Renamer
+ *
+ * NumberingScheme is the way the numbers of a volume are written:
+ *  - folio: 1r, 1v, 2r... (a number, then the recto or verso suffix);
+ *  - page: 1, 2, 3... (each file is a page, there is no recto or verso);
+ *  - roman: i, ii, iii... pages in lower-case roman numerals, for the prelims;
+ *  - signature: A1r, A1v... A8v, B1r... leaves counted in quires of a given number of
+ *    leaves, lettered with the 23-letter alphabet of the printers (no J, U or W), then
+ *    AA, BB... for the second alphabet.
+ * A FolioNamingPlan or a FoliationSequence asks the scheme to write one number; every
+ * scheme does it in constant time, whatever the number. Other schemes can be added by
+ * extending this class.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.util.Locale;
+
+public abstract class NumberingScheme {
+
+       public static final NumberingScheme FOLIO = new Decimal("folio", "folio (1r, 1v, 2r...)", true);
+       public static final NumberingScheme PAGE = new Decimal("page", "page (1, 2, 3...)", false);
+       public static final NumberingScheme ROMAN = new Roman();
+       public static final int QUIRE_LEAVES = 8;       //of signature(), by default
+
+       private final String name;
+       private final String label;
+       private final boolean sides;
+
+
+       protected NumberingScheme(String name, String label, boolean sides){
+               this.name = name;
+               this.label = label;
+               this.sides = sides;
+       }
+
+
+       //the schemes offered by the GUI
+       public static NumberingScheme[] choices(){
+               return new NumberingScheme[]{ FOLIO, PAGE, ROMAN, signature(QUIRE_LEAVES) };
+       }
+
+
+       //signatures in quires of the given number of leaves
+       public static NumberingScheme signature(int leaves){
+               return new Signature(leaves);
+       }
+
+
+       /* The scheme of a name: folio, page, roman, signature (quires of 8 leaves) or
+        * signature followed by the number of leaves of a quire (signature4, signature 4).
+        * Returns null for an unknown name.
+        */
+       public static NumberingScheme forName(String text){
+               String name = text.trim().toLowerCase(Locale.ROOT);
+               if(name.equals("folio"))
+                       return FOLIO;
+               if(name.equals("page"))
+                       return PAGE;
+               if(name.equals("roman"))
+                       return ROMAN;
+               if(name.startsWith("signature") == false)
+                       return null;
+               String leaves = name.substring("signature".length()).trim();
+               if(leaves.isEmpty())
+                       return signature(QUIRE_LEAVES);
+               try {
+                       int n = Integer.parseInt(leaves);
+                       return n < 1 ? null : signature(n);
+               }
+               catch (NumberFormatException e) {
+                       return null;
+               }
+       }
+
+
+       //the name forName() knows the scheme by
+       public String getName(){
+               return name;
+       }
+
+
+       public String toString(){
+               return label;
+       }
+
+
+       //true when the scheme numbers leaves, each with a recto and a verso
+       public boolean hasSides(){
+               return sides;
+       }
+
+
+       /* Appends the number (a folio, leaf or page number) written in this scheme; digits
+        * is the width the decimal schemes pad their numbers to.
+        */
+       public abstract void appendNumber(StringBuilder out, int number, int digits);
+
+
+       //length of the number written at the start of text, 0 when text does not start with one
+       abstract int numberLength(String text);
+
+
+       //the number written as text, the whole of text being numberLength() long
+       abstract int parseNumber(String text);
+
+
+       //1, 2, 3... padded with zeros to the chosen width
+       private static final class Decimal extends NumberingScheme {
+
+               Decimal(String name, String label, boolean sides){
+                       super(name, label, sides);
+               }
+
+               public void appendNumber(StringBuilder out, int number, int digits){
+                       FolioNamingPlan.appendPadded(out, number, digits);
+               }
+
+               int numberLength(String text){
+                       int i = 0;
+                       while(i < text.length() && Character.isDigit(text.charAt(i)))
+                               i++;
+                       return i;
+               }
+
+               int parseNumber(String text){
+                       try {
+                               return Integer.parseInt(text);
+                       }
+                       catch (NumberFormatException e) {
+                               throw new IllegalArgumentException("number too large");
+                       }
+               }
+       }
+
+
+       //i, ii, iii... in lower case; numbers below 1 are written in decimal
+       private static final class Roman extends NumberingScheme {
+
+               private static final int[] VALUES = {1000, 900, 500, 400, 100, 90, 50, 40, 10, 9, 5, 4, 1};
+               private static final String[] LETTERS = {"m", "cm", "d", "cd", "c", "xc", "l", "xl", "x", "ix", "v", "iv", "i"};
+
+               Roman(){
+                       super("roman", "roman page (i, ii, iii...)", false);
+               }
+
+               public void appendNumber(StringBuilder out, int number, int digits){
+                       if(number < 1){
+                               FolioNamingPlan.appendPadded(out, number, 1);
+                               return;
+                       }
+                       for(int i = 0; i < VALUES.length; i++){
+                               while(number >= VALUES[i]){
+                                       out.append(LETTERS[i]);
+                                       number -= VALUES[i];
+                               }
+                       }
+               }
+
+               //roman letters followed by the end of the text or by anything but a letter
+               int numberLength(String text){
+                       int i = 0;
+                       while(i < text.length() && value(text.charAt(i)) > 0)
+                               i++;
+                       if(i < text.length() && Character.isLetter(text.charAt(i)))
+                               return 0;
+                       return i;
+               }
+
+               int parseNumber(String text){
+                       int number = 0;
+                       for(int i = 0; i < text.length(); i++){
+                               int value = value(text.charAt(i));
+                               if(i + 1 < text.length() && value < value(text.charAt(i + 1)))
+                                       number -= value;
+                               else
+                                       number += value;
+                       }
+                       //only the way appendNumber() writes it: not iiii, vx or ic
+                       StringBuilder written = new StringBuilder(text.length());
+                       if(number >= 1)
+                               appendNumber(written, number, 0);
+                       if(written.toString().equalsIgnoreCase(text) == false)
+                               throw new IllegalArgumentException("not a roman number");
+                       return number;
+               }
+
+               private static int value(char c){
+                       switch(Character.toLowerCase(c)){
+                               case 'i': return 1;
+                               case 'v': return 5;
+                               case 'x': return 10;
+                               case 'l': return 50;
+                               case 'c': return 100;
+                               case 'd': return 500;
+                               case 'm': return 1000;
+                               default: return 0;
+                       }
+               }
+       }
+
+
+       /* A1, A2... leaf 1 being A1; the number of a leaf is (quire * leaves) + leaf, counting
+        * the quires from 0 through the alphabet, then again with doubled letters.
+        */
+       private static final class Signature extends NumberingScheme {
+
+               private static final String ALPHABET = "ABCDEFGHIKLMNOPQRSTVXYZ";
+               private final int leaves;
+
+               Signature(int leaves){
+                       super(leaves == QUIRE_LEAVES ? "signature" : "signature" + leaves,
+                               "signature (A1r... A" + leaves + "v, B1r...)", true);
+                       if(leaves < 1)
+                               throw new IllegalArgumentException("A quire has at least 1 leaf");
+                       this.leaves = leaves;
+               }
+
+               public void appendNumber(StringBuilder out, int number, int digits){
+                       if(number < 1){
+                               FolioNamingPlan.appendPadded(out, number, 1);
+                               return;
+                       }
+                       int quire = (number - 1) / leaves;
+                       char letter = ALPHABET.charAt(quire % ALPHABET.length());
+                       for(int i = quire / ALPHABET.length(); i >= 0; i--)
+                               out.append(letter);
+                       FolioNamingPlan.appendPadded(out, (number - 1) % leaves + 1, 1);
+               }
+
+               //letters, then digits
+               int numberLength(String text){
+                       int i = 0;
+                       while(i < text.length() && Character.isLetter(text.charAt(i)))
+                               i++;
+                       int letters = i;
+                       while(i < text.length() && Character.isDigit(text.charAt(i)))
+                               i++;
+                       return letters == 0 || i == letters ? 0 : i;
+               }
+
+               int parseNumber(String text){
+                       int digits = 0;
+                       while(Character.isLetter(text.charAt(digits)))
+                               digits++;
+                       String letters = text.substring(0, digits).toUpperCase(Locale.ROOT);
+                       int index = ALPHABET.indexOf(letters.charAt(0));
+                       for(int i = 1; i < letters.length(); i++){
+                               if(letters.charAt(i) != letters.charAt(0))
+                                       index = -1;
+                       }
+                       if(index < 0)
+                               throw new IllegalArgumentException("\"" + letters + "\" is not a quire (A to Z without J, U, W, then AA...)");
+                       int leaf;
+                       try {
+                               leaf = Integer.parseInt(text.substring(digits));
+                       }
+                       catch (NumberFormatException e) {
+                               throw new IllegalArgumentException("number too large");
+                       }
+                       if(leaf < 1 || leaf > leaves)
+                               throw new IllegalArgumentException("a quire has leaves 1 to " + leaves);
+                       long quire = (long) (letters.length() - 1) * ALPHABET.length() + index;
+                       if(quire * leaves + leaf > Integer.MAX_VALUE)
+                               throw new IllegalArgumentException("number too large");
+                       return (int) (quire * leaves + leaf);
+               }
+       }
+
+}
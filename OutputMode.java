@@ -0,0 +1,35 @@
+/* Folio Batch Renamer
+ *
+ * OutputMode is what a pass with a target folder does there: move the files under their
+ * new names, or leave them where they are and publish a view of them, a folder of links
+ * bearing the new names (see ViewTransaction).
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+public enum OutputMode {
+
+       MOVE("move to"),
+       HARD_LINKS("hard links in"),            //same volume only, a link is as good as the file
+       SYMBOLIC_LINKS("symbolic links in");    //any volume, and folders too
+
+       private final String label;
+
+       OutputMode(String label){
+               this.label = label;
+       }
+
+       //true when the originals keep their names and the target gets links
+       public boolean isView(){
+               return this != MOVE;
+       }
+
+       public String toString(){
+               return label;
+       }
+
+}
@@ -0,0 +1,78 @@
+/* Folio Batch Renamer
+ *
+ * Parallel runs the same step for every index of a list on a bounded number of threads:
+ * each thread takes the next index until none is left. It is used wherever the tool
+ * does many independent operations on files (renames, header reads, whole folders).
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class Parallel {
+
+       //the work for one index; a step reports its own failures
+       public interface Step {
+               void run(int i);
+       }
+
+
+       private Parallel(){
+       }
+
+
+       /* Runs step for 0 .. n-1, on the calling thread when threads is 1, otherwise
+        * shared between at most that many threads. Returns once every step is done.
+        */
+       public static void forEach(final int n, int threads, final Step step) throws IOException{
+
+               if(threads <= 1 || n < 2){
+                       for(int i = 0; i < n; i++)
+                               step.run(i);
+                       return;
+               }
+
+               final AtomicInteger next = new AtomicInteger();
+               int count = Math.min(threads, n);
+               ExecutorService pool = Executors.newFixedThreadPool(count);
+               List<Callable<Void>> workers = new ArrayList<Callable<Void>>(count);
+               for(int t = 0; t < count; t++){
+                       workers.add(new Callable<Void>(){
+                               public Void call(){
+                                       for(int i = next.getAndIncrement(); i < n; i = next.getAndIncrement())
+                                               step.run(i);
+                                       return null;
+                               }
+                       });
+               }
+
+               try {
+                       for(Future<Void> result : pool.invokeAll(workers))
+                               result.get();
+               }
+               catch (InterruptedException e) {
+                       Thread.currentThread().interrupt();
+                       throw new InterruptedIOException("Interrupted");
+               }
+               catch (ExecutionException e) {
+                       throw new IOException(e.getCause());
+               }
+               finally {
+                       pool.shutdown();
+               }
+       }
+
+}
@@ -0,0 +1,140 @@
+/* Folio Batch Renamer
+ *
+ * PreflightCheck checks every new name of a pass against a FileSystemProfile before
+ * anything is renamed, so that a name the target refuses shows up at once instead of as
+ * a failure halfway through: the name itself (characters, reserved names, length), the
+ * length of its path, and the names it would collide with, by case or normalization,
+ * among the other new names and the entries of the folder left out of the pass.
+ * The names are given one by one, as the naming loop makes them, and each is looked up
+ * in an open-addressing hash set of 64-bit identity hashes, so the check is a single pass
+ * with no string kept: about 12 bytes per name.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+public final class PreflightCheck {
+
+       private static final int EMPTY = Integer.MIN_VALUE;    //a free slot of the hash set
+       private static final int OTHER = -1;                   //the slot holds an entry outside the pass
+       private static final int REPORTED = 20;                //problems described in the report
+
+       private final FileSystemProfile profile;
+       private final int folderLength;        //of the folder path, with its separator
+       private final long[] hashes;
+       private final int[] rows;
+       private final int mask;
+       private final int shift;               //64 - log2 of the capacity
+       private final BitSet invalid = new BitSet();
+       private final BitSet collisions = new BitSet();
+       private final List<String> report = new ArrayList<String>();
+       private int problems = 0;
+
+
+       /* A check of up to rows new names in dir, the names of otherNames staying as they
+        * are. dir may be null to leave the path length out.
+        */
+       public PreflightCheck(FileSystemProfile profile, Path dir, int rows, Collection<String> otherNames){
+               this.profile = profile;
+               this.folderLength = dir == null ? 0 : profile.length(dir.toAbsolutePath().toString()) + 1;
+               int capacity = Integer.highestOneBit(Math.max(16, 2 * (rows + otherNames.size())) - 1) << 1;
+               this.hashes = new long[capacity];
+               this.rows = new int[capacity];
+               this.mask = capacity - 1;
+               this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+               Arrays.fill(this.rows, EMPTY);
+               for(String other : otherNames)
+                       insert(profile.identityHash(other), OTHER, null);
+       }
+
+
+       public FileSystemProfile getProfile(){
+               return profile;
+       }
+
+
+       //checks the new name of a row; each row is given once
+       public void add(int row, String name){
+               String problem = profile.problem(name);
+               if(problem == null && folderLength > 0 && folderLength + profile.length(name) > profile.getMaxPath())
+                       problem = "path longer than " + profile.getMaxPath();
+               if(problem != null){
+                       invalid.set(row);
+                       describe(name + ": " + problem);
+               }
+               insert(profile.identityHash(name), row, name);
+       }
+
+
+       private void insert(long hash, int row, String name){
+               int slot = (int) ((hash * 0x9E3779B97F4A7C15L) >>> shift);   //the high bits, well mixed
+               while(rows[slot] != EMPTY){
+                       if(hashes[slot] == hash){
+                               if(row >= 0){
+                                       collisions.set(row);
+                                       describe(name + ": same name as " + (rows[slot] >= 0 ? "another new name" : "an entry of the folder")
+                                               + (profile.isCaseInsensitive() ? ", case ignored" : ""));
+                               }
+                               if(rows[slot] >= 0)
+                                       collisions.set(rows[slot]);
+                               return;
+                       }
+                       slot = (slot + 1) & mask;
+               }
+               hashes[slot] = hash;
+               rows[slot] = row;
+       }
+
+
+       private void describe(String problem){
+               problems++;
+               if(report.size() < REPORTED)
+                       report.add(problem);
+       }
+
+
+       //the rows whose new name the file system refuses
+       public BitSet getInvalid(){
+               return invalid;
+       }
+
+
+       //the rows whose new name designates the same file as another name
+       public BitSet getCollisions(){
+               return collisions;
+       }
+
+
+       public boolean isClean(){
+               return problems == 0;
+       }
+
+
+       //the first problems found, one per line, and how many more there are
+       public String report(){
+               StringBuilder text = new StringBuilder();
+               for(String line : report)
+                       text.append(line).append('\n');
+               if(problems > report.size())
+                       text.append("... and ").append(problems - report.size()).append(" more\n");
+               return text.toString();
+       }
+
+
+       //a one-line summary
+       public String summary(){
+               return invalid.cardinality() + " invalid name(s), " + collisions.cardinality() + " colliding name(s) for "
+                       + profile;
+       }
+
+}
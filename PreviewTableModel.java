@@ -0,0 +1,116 @@
+/* Folio Batch Renamer
+ *
+ * PreviewTableModel is the model of the test mode preview: one row per file (or folder)
+ * to rename, with its current name and the name the rules would give it. The new names
+ * are not stored: a JTable only asks for the rows it paints, and each of them is asked
+ * of the FolioNamingPlan when needed, so a preview of a huge folder opens at once.
+ * analyse() goes once over all the new names, off the event dispatch thread, with a
+ * PreflightCheck for the file system profile of the job, to find those that would
+ * collide with another name or that are not valid file names; the table then shows them
+ * highlighted.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import javax.swing.table.AbstractTableModel;
+
+public class PreviewTableModel extends AbstractTableModel {
+
+       private static final long serialVersionUID = 1L;
+       private static final String[] COLUMNS = {"#", "Current name", "New name"};
+
+       private final RenameJob job;
+       private final FolioNamingPlan plan;
+       private final List<DirectoryScan.Entry> entries;
+       private final StringBuilder buffer = new StringBuilder(64);   //for the EDT only
+       private BitSet collisions = new BitSet();
+       private BitSet invalid = new BitSet();
+
+
+       public PreviewTableModel(RenameJob job, List<DirectoryScan.Entry> entries){
+               this.job = job;
+               this.plan = job.getNamingPlan();
+               this.entries = entries;
+       }
+
+
+       public int getRowCount(){
+               return entries.size();
+       }
+
+       public int getColumnCount(){
+               return COLUMNS.length;
+       }
+
+       public String getColumnName(int column){
+               return COLUMNS[column];
+       }
+
+       public Object getValueAt(int row, int column){
+               if(column == 0)
+                       return Integer.toString(row + 1);
+               if(column == 1)
+                       return entries.get(row).name;
+               buffer.setLength(0);
+               return newName(row, buffer);
+       }
+
+
+       private String newName(int row, StringBuilder out){
+               String name = entries.get(row).name;
+               return job.finalName(plan.appendName(row, job.extension(name), out).toString());
+       }
+
+
+       //the new name of the row would collide with another name of the folder
+       public boolean isCollision(int row){
+               return collisions.get(row);
+       }
+
+       //the new name of the row is not a valid file name
+       public boolean isInvalid(int row){
+               return invalid.get(row);
+       }
+
+       public int getCollisionCount(){
+               return collisions.cardinality();
+       }
+
+       public int getInvalidCount(){
+               return invalid.cardinality();
+       }
+
+
+       /* Checks every new name, in one pass; it can run on any thread. The result goes
+        * to setAnalysis(), on the EDT.
+        */
+       public BitSet[] analyse(Collection<String> otherNames){
+
+               int n = entries.size();
+               PreflightCheck check = new PreflightCheck(job.getProfile(),
+                               (job.getTargetDirectory() == null ? job.getDirectory() : job.getTargetDirectory()).toPath(), n, otherNames);
+               StringBuilder out = new StringBuilder(64);
+               for(int i = 0; i < n; i++){
+                       out.setLength(0);
+                       check.add(i, newName(i, out));
+               }
+               return new BitSet[]{ check.getCollisions(), check.getInvalid() };
+       }
+
+
+       public void setAnalysis(BitSet[] analysis){
+               collisions = analysis[0];
+               invalid = analysis[1];
+               if(entries.isEmpty() == false)
+                       fireTableRowsUpdated(0, entries.size() - 1);
+       }
+
+}
@@ -1,1481 +1,2279 @@
-/* Folio Batch Renamer
- * 
- * This tool is designed to help users who need to batch rename files, typically pictures, according to 
- * the fashion used for manuscript material, i.e. where the same folio number appears twice, typically followed 
- * by an indication of "recto" or "verso" side. Although rather trivial, this operation is not easily performed 
- * with traditional batch rename tools, especially for people who are not specially familiar with regular 
- * expressions or such. 
- * The tool works on files as well as folders, but always processes them one type at a time. It goes through 
- * the list of files (or folders), following the alphabetical order, and renames each according to the rules
- * defined by the user. 
- * The rules define: 
- * 	- whether the files or the folders should be renamed
- * 	- if a "prefix" should be added to the new file/folder name (for instance, "Paris, BnF, lat. 16480, fol. "
- * 	- the folio number from which the automatic numbering should start, 
- * 	- on how many digits this folio number should be represented (for instance, if your first folio number is 99, 
- * starting on a recto, and you choose in the combo menu to represent the folio number on 4 digits, the first file 
- * of the list will be renamed as "0099r"
- * 	- whether the first file to be renamed corresponds to a recto or a verso
- * 	- you can choose the style or suffix you want to apply for recto or verso (by default, "r" and "v" respectively)
- * If you wish to add a character or string of character between the folio number and its recto or verso suffix, use
- * the text box preceding each combo menu (for instance, you may choose to insert a blank space between the fol. number
- * and the recto / verso suffix). 
- * 	- Finally, you can add a general suffix, that will follow the recto / verso suffix. 
- * The application can run in test mode, showing you how the rules would be applied to your files / folders. 
- * 
- * DISCLAIMER
- * This application is in beta-test mode, do not use it on important material without making a copy of your files. 
- * Generally, use at your own risk. And drink responsibly. 
- * 
- * 
-* Project manager: Marjorie Burghart, CNRS - CIHAM UMR 5648 <marjorie.burghart@ehess.fr>
-* February 2016
-* 
-* This source code makes use of and modifies the code of the "batchfilerenametool" application 
-* (https://code.google.com/p/batchfilerenametool/) by CharCheng Mun and Cheong Wee Lau (August 2009) 
-* 
-* licence GNU GPL (v3)
-*
-*/
-
-package folioFileRename;
-
-
-import java.io.*;
-import java.util.Arrays;
-
-import javax.swing.*;
-import javax.swing.border.*;
-
-import java.awt.event.*;
-import java.awt.*;
-
-import javax.swing.text.*;
-import javax.swing.JTabbedPane;
-
-public class Rename extends JFrame implements ActionListener{   
-
-       private static final String TITLE = "Folio Batch Renamer";
-       private static final int WIDTH = 600;
-       private static final int HEIGHT = 500;
-       private static final String DESCRIPTION = "Select a folder, and define the rules "
-       		+ "to rename the files or folder it contains.";
-       private boolean OUTPUT_ON = false;
-                
-       private File directory;   //change all the files in this directory;
-       
-       private Container contentPane;
-       private JTabbedPane tabPnl;
-       private JPanel tab1, tab2, tabHelp, pnlDescription, pnlChoice, pnlDirectory, pnlPrefix, pnlRename, pnlFolioOpt, pnlSuffix, pnlCtrl, pnlOption, pnlDescription2, pnlChoice2, pnlDirectory2, pnlPrefix2, pnlRename2, pnlFolioOpt2, pnlSuffix2, pnlCtrl2, pnlOption2;
-       private JLabel lblTab1, lblTab2, lblDesc, lblChoice, lblSequence, lblLeadingZero, lblStartWith, lblDirectory, lblFolioOpt, lblDesc2, lblChoice2, lblSequence2, lblLeadingZero2, lblStartWith2, lblDirectory2, lblFolioOpt2, lblSeparator;
-       private JTextField txtDirectory, txtPrefix, txtSuffix, txtRename, txtSequence, txtPreRecto, txtPreVerso, txtDirectory2, txtPrefix2, txtSuffix2, txtRename2, txtSequence2, txtPreRecto2, txtPreVerso2, txtSeparator;
-       private JButton btnOk, btnCancel, btnAbout, btnOk2, btnCancel2, btnAbout2;
-       private JCheckBox cbxPrefix, cbxSuffix, cbxRename, cbxIgnoreExtension, cbxExperiment, cbxOutput, cbxPrefix2, cbxSuffix2, cbxRename2, cbxIgnoreExtension2, cbxExperiment2, cbxOutput2;
-       private JComboBox<?> cboSequence, cboStartWith, cboFolioOptRecto, cboFolioOptVerso, cboSequence2, cboFolioOptRecto2, cboFolioOptVerso2;
-       private Dimension stdDim;
-       private ButtonGroup bg1, bg2;
-       private JRadioButton choiceFiles, choiceFolders, choiceFiles2, choiceFolders2;
-       private static JFrame outputFrame; //the output display of the system console
-       
-       //------- Output Window ----- variables
-       private JScrollPane scrOutput;
-       private JTextArea txaOutput;
-       
-       
-       //Constructor - never should have a return type, a lil mistake make thing doesn't work
-       public Rename(){
-               
-               setSize(WIDTH, HEIGHT);
-               setTitle(TITLE);
-               setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
-               setResizable(false);
-               setLocation(400, 300);
-               
-               //Add the closingWindow listener
-       this.addWindowListener(
-                       new WindowAdapter(){
-                               public void windowClosing(WindowEvent e){
-                                       int response = JOptionPane.showConfirmDialog(null, "Are you sure want to exit?", 
-                                               "Close Program", JOptionPane.YES_NO_OPTION);
-                                               
-                                       if(response == JOptionPane.YES_OPTION)
-                                               System.exit(0);
-                               }
-                       }//end - WindowAdapter
-               ); //close - addWindowListener
-               
-               buildGUI();
-       
-       }// end constructor
-       
-       
-       
-       //Main
-   public static void main(String[] args) {    
-       
-       Rename renameTask = new Rename();
-          
-       renameTask.setVisible(true);            
-   }//end Main
-   
-   
-   private void renameFile(){
-       
-       boolean operationResult = false;
-       boolean overallResult = true;
-       int failCount = 0;
-       
-       /* the operation of this part is ensured by the chooseDirectory()
-        * We get the list of files in the directory
-        * get the conditions set by users
-        * and perform the file rename operation.
-        */
-        
-       //Let's get all the information from user
-       String[] fileList = directory.list();  //the list of files in the directory
-       String Prefix = txtPrefix.getText();
-       String Rename = txtRename.getText();
-       String Suffix = txtSuffix.getText();
-       String PreRecto = txtPreRecto.getText();
-       String PreVerso = txtPreVerso.getText();
-       String digits = (String) cboSequence.getSelectedItem();
-       String Folio;
-       String startsWith = (String) cboStartWith.getSelectedItem();
-       int StartingNum;
-       int currentFileIndex = 0;
-       int currentFileIndexBis = 0;
-       String generatedSequence;
-       File oldFileTestType;
-       File oldFile = null;
-       Arrays.sort(fileList, String.CASE_INSENSITIVE_ORDER);
-       if (digits.equals("")) {
-    	   digits = "1";
-       }
-       if(startsWith.equals("verso") == true){
-    	   currentFileIndexBis = 1;
-   }
-       
-       //let's call the output frame
-       if(cbxOutput.isSelected() && OUTPUT_ON == false){
-               buildOutput();
-               OUTPUT_ON = true;
-       }
-               
-                      
-       for(int i = 0; i < fileList.length; i++){
-               /* get the file extension that we need, and form a new name, 
-                * we would check if the Ignore File Extension is selected
-                */
-               oldFile = new File(directory.getPath()+"/"+ fileList[i]);
-               
-          if ((oldFile.isFile() && choiceFiles.isSelected()) || (oldFile.isDirectory() && choiceFolders.isSelected())) {      
-           
-
-        	  
-        	  String fileExtension;
-        	  String fileName;
-        	  
-              if (oldFile.isDirectory() && choiceFolders.isSelected()) { 
-            	  // folder => extension is irrelevant
-            	  fileExtension = "";
-            	  fileName = fileList[i]; 
-              } else {
-            	  // file => extension is relevant                  
-                  if(cbxIgnoreExtension.isSelected() == true ){
-                      fileExtension = "";
-                      //this part get the original filename           
-                      fileName = fileList[i];
-                  }
-                  else {
-                      fileExtension = getFileExtension(fileList[i]);
-                      //this part get the original filename           
-                      fileName = getFileName(fileList[i]);
-                  }                      
-              }              
-
-                             
-               
-              String inputInfo = fileList[i];   
-               System.out.println(inputInfo);
-                        
-               if(OUTPUT_ON)
-                       txaOutput.append("\n"+inputInfo);
-               
-
-               
-               if (currentFileIndexBis % 2 == 0) {
-            	   // even => recto (currentFileIndex starts at 0, which is even)
-            	   Folio = (String) cboFolioOptRecto.getSelectedItem();
-            	   Folio = PreRecto + Folio;
-            	 } else {
-            	   // odd => verso
-            	   Folio = (String) cboFolioOptVerso.getSelectedItem();
-            	   Folio = PreVerso + Folio;
-            	 }
-
-               
-               /* generate sequence for the Name
-                */
-              
-                       StartingNum = Integer.parseInt(txtSequence.getText());
-                       generatedSequence = nameSequence(StartingNum + currentFileIndex, digits);
-              
-               
-               
-               if(StartingNum > 9 && Integer.parseInt(digits) < 2)  {
-            	   digits = "2";
-               }
-               if(StartingNum > 99 && Integer.parseInt(digits) < 3)  {
-            	   digits = "3";
-               }
-               if(StartingNum > 999 && Integer.parseInt(digits) < 4)  {
-            	   digits = "4";
-               }
-               if(StartingNum > 9999 && Integer.parseInt(digits) < 5)  {
-            	   digits = "5";
-               }
-               
-               
-                       fileName = generatedSequence;
-           
-               
-               
-               
-               //the New File Name
-               String newFileName = Prefix + fileName + Folio + Suffix + fileExtension;
-               String tentativeName = " -> "+newFileName+"\n";
-               System.out.println(tentativeName);
-               
-               if(OUTPUT_ON)
-                       txaOutput.append("\n"+tentativeName);
-               
-               
-               
-               
-                   // ! Perform the file rename, if the Experimental Mode is not selected
-                   if(cbxExperiment.isSelected() == false){
-                       
-                       operationResult = oldFile.renameTo(new File(directory.getPath()+"/"+newFileName));
-                       String renameResult = "\t*Renamed successfully?: " + operationResult+"\n\n";
-                       System.out.println(renameResult);
-                               if(operationResult == false)
-                                       failCount++;
-                                       
-                                       if(OUTPUT_ON)
-                                       txaOutput.append("\n"+renameResult);
-                               
-                       //make up the overall result
-                       overallResult = (operationResult && overallResult);
-                   }
-                   
-                   if (currentFileIndexBis % 2 == 0) {
-                	   // even => recto (currentFileIndex starts at 0, which is odd)
-                	   
-                	   } else {
-                	// odd
-                		   currentFileIndex++;
-                	 }      
-                   
-                   
-                   
-                	   currentFileIndexBis++;
-                  
-          }
-                   
-           
-        	   
-        	                          
-        
-        	   
-           
-       }
-       
-       if(cbxExperiment.isSelected() == false){
-               System.out.println("Overall Result: "+overallResult);
-               if(overallResult)
-                       JOptionPane.showMessageDialog(null, "All files renamed successfully!");
-               else
-                       JOptionPane.showMessageDialog(null, "File renamed with "+ failCount+ " failure(s)");
-       }//end if
-                       
-   }//end renameFile
-   
-
-   
-   
-   private void renameFileSingle(){
-       
-       boolean operationResult = false;
-       boolean overallResult = true;
-       int failCount = 0;
-       
-       /* the operation of this part is ensured by the chooseDirectory()
-        * We get the list of files in the directory
-        * get the conditions set by users
-        * and perform the file rename operation.
-        */
-        
-       //Let's get all the information from user
-       String[] fileList = directory.list();  //the list of files in the directory
-       String Prefix = txtPrefix2.getText();
-       String Rename = txtRename2.getText();
-       String Suffix = txtSuffix2.getText();
-       String PreRecto = txtPreRecto2.getText();
-       String PreVerso = txtPreVerso2.getText();
-       String digits = (String) cboSequence2.getSelectedItem();
-       String FolioR = "r";
-       String FolioV = "v";
-       String Separator = txtSeparator.getText();
-       int StartingNum;
-       int currentFileIndex = 0;
-       int currentFileIndexBis = 0;
-       String generatedSequenceVerso;
-       String generatedSequenceRecto;
-       File oldFileTestType;
-       File oldFile = null;
-       Arrays.sort(fileList, String.CASE_INSENSITIVE_ORDER);
-       if (digits.equals("")) {
-    	   digits = "1";
-       }
-       
-       
-       //let's call the output frame
-       if(cbxOutput2.isSelected() && OUTPUT_ON == false){
-               buildOutput();
-               OUTPUT_ON = true;
-       }
-               
-                      
-       for(int i = 0; i < fileList.length; i++){
-               /* get the file extension that we need, and form a new name, 
-                * we would check if the Ignore File Extension is selected
-                */
-               oldFile = new File(directory.getPath()+"/"+ fileList[i]);
-               
-          if ((oldFile.isFile() && choiceFiles2.isSelected()) || (oldFile.isDirectory() && choiceFolders2.isSelected())) {      
-           
-        	  
-        	  String fileExtension;
-        	  
-             
-              
-        	
-        	  String fileName;
-        	  
-              if (oldFile.isDirectory() && choiceFolders2.isSelected()) { 
-            	  // folder => extension is irrelevant
-            	  fileExtension = "";
-            	  fileName = fileList[i]; 
-              } else {
-            	  // file => extension is relevant                  
-                  if(cbxIgnoreExtension2.isSelected() == true ){
-                      fileExtension = "";
-                      //this part get the original filename           
-                      fileName = fileList[i];
-                  }
-                  else {
-                      fileExtension = getFileExtension(fileList[i]);
-                      //this part get the original filename           
-                      fileName = getFileName(fileList[i]);
-                  }                      
-              }              
-
-               
-              String inputInfo = fileList[i];   
-               System.out.println(inputInfo);
-                        
-               if(OUTPUT_ON)
-                       txaOutput.append("\n"+inputInfo);
-               
-
-               
-            	   FolioR = (String) cboFolioOptRecto2.getSelectedItem();
-            	   FolioR = PreRecto + FolioR;
-            	   FolioV = (String) cboFolioOptVerso2.getSelectedItem();
-            	   FolioV = PreVerso + FolioV;
-
-               
-               /* generate sequence for the Name
-                */
-              
-                       StartingNum = Integer.parseInt(txtSequence2.getText());
-                       // verso part of the image
-                       generatedSequenceVerso = nameSequence(StartingNum + currentFileIndex - 1, digits);
-
-                       // recto part of the image
-                       generatedSequenceRecto = nameSequence(StartingNum + currentFileIndex, digits);
-              
-               
-               
-               if(StartingNum > 9 && Integer.parseInt(digits) < 2)  {
-            	   digits = "2";
-               }
-               if(StartingNum > 99 && Integer.parseInt(digits) < 3)  {
-            	   digits = "3";
-               }
-               if(StartingNum > 999 && Integer.parseInt(digits) < 4)  {
-            	   digits = "4";
-               }
-               if(StartingNum > 9999 && Integer.parseInt(digits) < 5)  {
-            	   digits = "5";
-               }
-               
-               
-               
-               
-               
-               //the New File Name
-               String newFileName = Prefix + generatedSequenceVerso + FolioV + Separator + generatedSequenceRecto + FolioR + Suffix + fileExtension;
-               String tentativeName = " -> "+newFileName+"\n";
-               System.out.println(tentativeName);
-               
-               if(OUTPUT_ON)
-                       txaOutput.append("\n"+tentativeName);
-               
-               
-               
-               
-                   // ! Perform the file rename, if the Experimental Mode is not selected
-                   if(cbxExperiment2.isSelected() == false){
-                       
-                       operationResult = oldFile.renameTo(new File(directory.getPath()+"/"+newFileName));
-                       String renameResult = "\t*Renamed successfully?: " + operationResult+"\n\n";
-                       System.out.println(renameResult);
-                               if(operationResult == false)
-                                       failCount++;
-                                       
-                                       if(OUTPUT_ON)
-                                       txaOutput.append("\n"+renameResult);
-                               
-                       //make up the overall result
-                       overallResult = (operationResult && overallResult);
-                   }
-                   
-                   
-                		   currentFileIndex++;
-                	                   
-                   
-                	   currentFileIndexBis++;
-                  
-          }
-                   
-           
-        	   
-        	                          
-        
-        	   
-           
-       }
-       
-       if(cbxExperiment2.isSelected() == false){
-               System.out.println("Overall Result: "+overallResult);
-               if(overallResult)
-                       JOptionPane.showMessageDialog(null, "All files renamed successfully!");
-               else
-                       JOptionPane.showMessageDialog(null, "File renamed with "+ failCount+ " failure(s)");
-       }//end if
-                       
-   }//end renameFileSingle
-   
-   
-   
-   
-   private boolean chooseDirectory(){
-       
-       /* Choose the file Directory
-        * this will ensure that the class variable directory get the value
-        * only when a directory is chosen, then the button Ok will be enabled
-        */
-        
-       JFileChooser fc = new JFileChooser();
-       fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
-       fc.setAcceptAllFileFilterUsed(false);
-       
-       int returnval = fc.showOpenDialog(this);
-
-       if(returnval == JFileChooser.APPROVE_OPTION){
-               directory = fc.getSelectedFile();
-               btnOk.setEnabled(true);
-               return true;            
-       }
-       
-       return false;
-   }// end chooseDirectory
-   private boolean chooseDirectory2(){
-       
-       /* Choose the file Directory
-        * this will ensure that the class variable directory get the value
-        * only when a directory is chosen, then the button Ok will be enabled
-        */
-        
-       JFileChooser fc = new JFileChooser();
-       fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
-       fc.setAcceptAllFileFilterUsed(false);
-       
-       int returnval = fc.showOpenDialog(this);
-
-       if(returnval == JFileChooser.APPROVE_OPTION){
-               directory = fc.getSelectedFile();
-               btnOk2.setEnabled(true);
-               return true;            
-       }
-       
-       return false;
-   }// end chooseDirectory2
-   
-   
-   
-   private boolean welcomeScreen(){
-       
-       //Display the instruction
-       JOptionPane.showMessageDialog(null, "Select a folder (all the files will be renamed)", 
-               "File Rename Tool", JOptionPane.OK_OPTION);
-               
-       //Decide the file prefix
-       String prefix = JOptionPane.showInputDialog(null, "Please specify the name prefix", "File Rename Tool", JOptionPane.YES_NO_OPTION );
-       
-       //if it's a null entry, we just make it "" better, than getting a word null.
-       if(prefix == null){
-               prefix = "";
-       }
-       
-       System.out.println(prefix);
-       int agree = JOptionPane.showConfirmDialog(null, "Are you sure?", "Confirmation", JOptionPane.YES_NO_OPTION);
-       
-       if(agree == JOptionPane.YES_OPTION)
-               return true;
-               else
-                       return false;
-   }//end welcomeScreen
-   
-   
-   //buildOutputFrame
-   private void buildOutput(){
-       outputFrame = new JFrame("Output");
-       outputFrame.setSize(WIDTH+100, HEIGHT);
-       
-       Container outputPane = outputFrame.getContentPane();
-       outputPane.setBackground(Color.BLACK);
-       outputPane.setForeground(Color.WHITE);
-       
-       txaOutput = new JTextArea();
-       txaOutput.setEditable(false);
-       txaOutput.setBackground(Color.BLACK);
-       txaOutput.setForeground(Color.WHITE);
-       txaOutput.setFont(new Font("Courier New", 1, 15));
-       
-       scrOutput = new JScrollPane(txaOutput);
-       
-       outputFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-       outputFrame.setVisible(true);
-       
-       outputFrame.addWindowListener(
-               new WindowAdapter(){
-                       public void windowClosing(WindowEvent e){
-                               outputFrame.dispose();
-                               OUTPUT_ON = false;
-                       }
-               }
-               
-       );// close addWindowListener
-       
-       outputPane.add(scrOutput);
-   }
-   
-   
-   
-   //buildGUI
-   private void buildGUI(){
-       
-       stdDim = new Dimension(WIDTH, 25);
-       
-       contentPane = getContentPane();
-       contentPane.setLayout(new BoxLayout(contentPane, BoxLayout.Y_AXIS));
-       tabPnl = new JTabbedPane();
-       
-       tab1 = new JPanel();
-       tab2 = new JPanel();
-       tabHelp = new JPanel();
-       
-       
-       
-       
-       
-       
-       String initString ="Folio Batch Renamer\n\n\n"
-+ "This tool is designed to help users who need to batch rename files, typically pictures, according \n"
-+ "to the fashion used for manuscript material, i.e. where the same folio number appears twice, typically\n"
-+ "followed by an indication of \"recto\" or \"verso\" side. Although rather trivial, this operation is \n"
-+ "not easily performed  with traditional batch rename tools, especially for people who are not specially \n"
-+ "familiar with regular expressions or such.\n\n"
-+ "The tool works on files as well as folders, but always processes them one type at a time. \n"
-+ "It goes through the list of files (or folders), following the alphabetical order, and renames each \n"
-+ "according to the rules defined by the user.\n "
-+ "The first tab, \"Separate files for r/v\", is designed to batch rename files or folder where \n"
-+ "each file or folder represents a single face of a folio, recto or verso. \n"
-+ "The second tab, \"Single file for r/v\", is designed to batch rename files or folders where each \n"
-+ "file or folder represents the full view of an open manuscript, with the verso of a folio and \n"
-+ "the recto of the following.\n"
-+ "The rules define: \n"
-+ " 	- whether the files or the folders should be renamed\n"
-+ " 	- if a \"prefix\" should be added to the new file/folder name \n"
-+ "(e.g.: \"Paris, BnF, lat. 16480, fol. \")\n"
-+ " 	- the folio number from which the automatic numbering should start, \n"
-+ " 	- on how many digits this folio number should be represented (for instance, if your first \n"
-+ "folio number is 99, starting on a recto, and you choose in the combo menu to represent the folio\n"
-+ "number on 4 digits, the \n"
-+ "first file of the list will be renamed as \"0099r\"\n"
-+ " 	- whether the first file to be renamed corresponds to a recto or a verso\n"
-+ " 	- you can choose the style or suffix you want to apply for recto or verso (by default, \n"
-+ "\"r\" and \"v\" respectively). If you wish to add a character or string of characters between \n"
-+ "the folio number and its recto or verso suffix, use the text box preceding each combo menu\n "
-+ "(for instance, you may choose to insert a blank space between the fol. number and the \n"
-+ "recto / verso suffix).\n"
-+ " 	- Finally, you can add a general suffix, that will follow the recto / verso suffix. \n"
-+ "The application can run in test mode, showing you how the rules would be applied \n"
-+ "to your files / folders.\n\n\n"
-+ "DISCLAIMER\n"
-+ "This application is in beta-test mode, do not use it on important material without making \n"
-+ "a copy of your files. \n"
-+ "Generally, use at your own risk.\n\n"
-+ "Project manager: Marjorie Burghart, CNRS - CIHAM UMR 5648 <marjorie.burghart@ehess.fr>\n"
-+ "February 2016\n\n"
-+ "This source code makes use of and modifies the code of the \"batchfilerenametool\" application \n"
-+ "(https://code.google.com/p/batchfilerenametool/)\n"
-+ " by CharCheng Mun and Cheong Wee Lau (August 2009)\n\n "
-+ "licence GNU GPL (v3)";
-
-   JTextPane textPane = new JTextPane();
-   textPane.setText(initString);
-   
-       
-       JScrollPane scrollFrame = new JScrollPane(tabHelp);
-       tabHelp.setAutoscrolls(true);       
-       
-       tabHelp.add(textPane);
-      
-       
-       lblTab1 = new JLabel("Recto / verso in different files");
-       lblTab2 = new JLabel("Recto / verso in same files");
-   //    tab1.add(lblTab1);
-   //    tab2.add(lblTab2);
-       tabPnl.addTab("Separate files for r/v", tab1);
-       tabPnl.addTab("Single file for v/r", tab2);
-       tabPnl.addTab("Help",  scrollFrame);
-
-       tab1.setLayout( new GridLayout(9, 1));       
-       tab2.setLayout( new GridLayout(9, 1));       
-       
-       contentPane.add(tabPnl);
-       buildDescPanel();
-       buildChoicePanel();
-       buildDirPanel();
-       buildPrefixPanel();
-       buildRenamePanel();
-       buildFolioOptPanel();
-       buildSuffixPanel();
-       buildOptPanel();
-       buildCtrlPanel();
-       
-       buildDescPanel2();
-       buildChoicePanel2();
-       buildDirPanel2();
-       buildPrefixPanel2();
-       buildRenamePanel2();
-       buildFolioOptPanel2();
-       buildSuffixPanel2();
-       buildOptPanel2();
-       buildCtrlPanel2();
-       
-       /* the look and feel part of the GUI, 
-        * experimental
-        * from http://java.sun.com/docs/books/tutorial/uiswing/lookandfeel/plaf.html
-        *
-        * 
-        */      
-               
-      
-        
-               try {
-               // Set System L&F
-                       UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-               } 
-               catch (UnsupportedLookAndFeelException e) {
-                       System.out.println(e.getMessage());
-               }
-               catch (ClassNotFoundException e) {
-                       System.out.println(e.getMessage());
-               }
-               catch (InstantiationException e) {
-                       System.out.println(e.getMessage());
-               }
-               catch (IllegalAccessException e) {
-                       System.out.println(e.getMessage());
-               }
-       
-
-       
-   }//end buildGUI
-   
-   private void buildDescPanel(){
-       
-       pnlDescription = new JPanel();
-       pnlDescription.setLayout(new FlowLayout(FlowLayout.LEADING));
-       Border blackline = BorderFactory.createLineBorder(Color.BLACK);
-       pnlDescription.setBorder(BorderFactory.createTitledBorder(blackline, "Description"));
-       
-       //the Upper Description field --------------------
-       lblDesc = new JLabel(DESCRIPTION);
-       lblDesc.setMaximumSize(new Dimension(WIDTH-10, HEIGHT/10));       
-       pnlDescription.add(lblDesc);
-          
-       
-       tab1.add(pnlDescription);
-       
-       
-   }//end buildDescPanel
-   
-   private void buildDescPanel2(){
-       
-       pnlDescription2 = new JPanel();
-       pnlDescription2.setLayout(new FlowLayout(FlowLayout.LEADING));
-       Border blackline = BorderFactory.createLineBorder(Color.BLACK);
-       pnlDescription2.setBorder(BorderFactory.createTitledBorder(blackline, "Description"));
-       
-       //the Upper Description field --------------------
-       lblDesc2 = new JLabel(DESCRIPTION);
-       lblDesc2.setMaximumSize(new Dimension(WIDTH-10, HEIGHT/10));       
-       pnlDescription2.add(lblDesc2);
-          
-       
-       tab2.add(pnlDescription2);
-       
-       
-   }//end buildDescPanel
-   
-   
-   private void buildChoicePanel(){
-       
-       pnlChoice = new JPanel();
-       pnlChoice.setLayout(new FlowLayout());       
-       lblChoice = new JLabel("Apply rules only to: ");  
-       lblChoice.setMaximumSize(new Dimension(stdDim));       
-       pnlChoice.add(lblChoice);
-          
-       ButtonGroup bg1 = new ButtonGroup();
-       choiceFiles = new JRadioButton("files", true);
-       choiceFolders = new JRadioButton("folders", false);
-
-       bg1.add(choiceFiles);
-       bg1.add(choiceFolders);
-       cbxIgnoreExtension = new JCheckBox("Check this box if the files have no extension");
-       
-       
-       pnlChoice.add(choiceFiles);
-       pnlChoice.add(choiceFolders);
-       pnlChoice.add(cbxIgnoreExtension);
-       
-       tab1.add(pnlChoice);
-       
-   }//end buildChoicePanel
-   
-private void buildChoicePanel2(){
-       
-       pnlChoice2 = new JPanel();
-       pnlChoice2.setLayout(new FlowLayout());       
-       lblChoice2 = new JLabel("Apply rules only to: ");  
-       lblChoice2.setMaximumSize(new Dimension(stdDim));       
-       pnlChoice2.add(lblChoice2);
-       cbxIgnoreExtension2 = new JCheckBox("Check this box if the files have no extension");
-          
-       ButtonGroup bg2 = new ButtonGroup();
-       choiceFiles2 = new JRadioButton("files", true);
-       choiceFolders2 = new JRadioButton("folders", false);
-
-       bg2.add(choiceFiles2);
-       bg2.add(choiceFolders2);
-
-       
-   
-   
-       pnlChoice2.add(choiceFiles2);
-       pnlChoice2.add(choiceFolders2);
-       pnlChoice2.add(cbxIgnoreExtension2);
-       
-       tab2.add(pnlChoice2);
-       
-   }//end buildChoicePanel
-   
-   
-   
-   private void buildDirPanel(){
-       
-       pnlDirectory = new JPanel();
-       pnlDirectory.setLayout(new BoxLayout(pnlDirectory, BoxLayout.X_AXIS));
-       pnlDirectory.setPreferredSize(stdDim);
-       pnlDirectory.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       //choose the Directory ----------------------------
-       lblDirectory = new JLabel("Folder: ");
-       txtDirectory = new JTextField();
-       txtDirectory.setEditable(false);
-//       txtDirectory.setPreferredSize(stdDim);
-       txtDirectory.setMaximumSize(stdDim);
-       JButton btnSelectDirectory = new JButton("select");
-       
-       ActionListener selectAction = new ActionListener(){
-               public void actionPerformed(ActionEvent e){
-                       if(chooseDirectory())
-                               txtDirectory.setText(directory.getPath()); //set the Path to the directory display
-               }
-       };
-   
-       btnSelectDirectory.addActionListener(selectAction); //close addActionListener
-       pnlDirectory.add(lblDirectory);
-       pnlDirectory.add(txtDirectory);
-       pnlDirectory.add(btnSelectDirectory);
-       
-       tab1.add(pnlDirectory);
-       
-   }
-   
-   
-private void buildDirPanel2(){
-       
-       pnlDirectory2 = new JPanel();
-       pnlDirectory2.setLayout(new BoxLayout(pnlDirectory2, BoxLayout.X_AXIS));
-       pnlDirectory2.setPreferredSize(stdDim);
-       pnlDirectory2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       //choose the Directory ----------------------------
-       lblDirectory2 = new JLabel("Folder: ");
-       txtDirectory2 = new JTextField();
-       txtDirectory2.setEditable(false);
-//       txtDirectory.setPreferredSize(stdDim);
-       txtDirectory2.setMaximumSize(stdDim);
-       
-       JButton btnSelectDirectory = new JButton("select");
-       
-       ActionListener selectAction = new ActionListener(){
-               public void actionPerformed(ActionEvent e){
-                       if(chooseDirectory2())
-                               txtDirectory2.setText(directory.getPath()); //set the Path to the directory display
-               }
-       };
-   
-       btnSelectDirectory.addActionListener(selectAction); //close addActionListener
-       pnlDirectory2.add(lblDirectory2);
-       pnlDirectory2.add(txtDirectory2);
-       pnlDirectory2.add(btnSelectDirectory);
-       
-       tab2.add(pnlDirectory2);
-       
-   }
-   
-   
-   private void buildPrefixPanel(){
-       
-       pnlPrefix = new JPanel();
-       pnlPrefix.setLayout(new BoxLayout(pnlPrefix, BoxLayout.X_AXIS));
-       pnlPrefix.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       // the Prefix -----------------------
-       
-       //lblPrefix = new JLabel("Prefix");
-       txtPrefix = new JTextField(40);
-       txtPrefix.setMaximumSize(stdDim);
-       txtPrefix.setEditable(false);
-       cbxPrefix = new JCheckBox("Prefix");
-       cbxPrefix.addActionListener(
-               new ActionListener(){
-                       public void actionPerformed(ActionEvent e){
-                               if(cbxPrefix.isSelected())
-                                       txtPrefix.setEditable(true);
-                               else{
-                                       txtPrefix.setEditable(false);
-                                       txtPrefix.setText("");
-                               }
-                                       
-                       }
-               }
-       ); //close addActionListener
-       
-       pnlPrefix.add(cbxPrefix);
-       pnlPrefix.add(txtPrefix);
-       
-       tab1.add(pnlPrefix);
-       
-   }//end buildPrefixPanel
-   
-  private void buildPrefixPanel2(){
-       
-       pnlPrefix2 = new JPanel();
-       pnlPrefix2.setLayout(new BoxLayout(pnlPrefix2, BoxLayout.X_AXIS));
-       pnlPrefix2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       // the Prefix -----------------------
-       
-       //lblPrefix = new JLabel("Prefix");
-       txtPrefix2 = new JTextField(40);
-       txtPrefix2.setMaximumSize(stdDim);
-       txtPrefix2.setEditable(false);
-       cbxPrefix2 = new JCheckBox("Prefix");
-       cbxPrefix2.addActionListener(
-               new ActionListener(){
-                       public void actionPerformed(ActionEvent e){
-                               if(cbxPrefix2.isSelected())
-                                       txtPrefix2.setEditable(true);
-                               else{
-                                       txtPrefix2.setEditable(false);
-                                       txtPrefix2.setText("");
-                               }
-                                       
-                       }
-               }
-       ); //close addActionListener
-       
-       pnlPrefix2.add(cbxPrefix2);
-       pnlPrefix2.add(txtPrefix2);
-       
-       tab2.add(pnlPrefix2);
-       
-   }//end buildPrefixPanel
-      
-   
-   private void buildRenamePanel(){
-       
-       pnlRename = new JPanel();
-       pnlRename.setLayout(new BoxLayout(pnlRename, BoxLayout.X_AXIS));
-       pnlRename.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       // the Rename -------------------------
-       txtRename = new JTextField();
-       txtRename.setMaximumSize(stdDim);
-       txtRename.setEditable(false);
-       cbxRename = new JCheckBox("Rename");
-       lblSequence = new JLabel("From folio: ");
-       lblLeadingZero = new JLabel(" number of digits: ");
-       lblStartWith = new JLabel("start with a ");
-       txtSequence = new JTextField(5);
-       txtSequence.setEditable(false);
-       
-       
-       Dimension seqDim = new Dimension(150,25);
-       txtSequence.setMaximumSize(seqDim);
-       txtSequence.setEditable(true);
-               
-       
-       
-       String[] sequenceValue = {"", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"};
-       cboSequence = new JComboBox(sequenceValue);
-       cboSequence.setMaximumSize(new Dimension(50, 25));
-       cboSequence.setEnabled(true);
-
-       String[] startWithValue = {"recto", "verso"};
-       cboStartWith = new JComboBox(startWithValue);
-       cboStartWith.setMaximumSize(new Dimension(80, 25));
-       cboStartWith.setEnabled(true);
-       
-       
-       pnlRename.add(lblSequence);
-       pnlRename.add(txtSequence);
-       pnlRename.add(lblLeadingZero);
-       pnlRename.add(cboSequence);
-       pnlRename.add(lblStartWith);
-       pnlRename.add(cboStartWith);
-       tab1.add(pnlRename);
-       
-   }//end buildRenamePanel
-   
-   private void buildRenamePanel2(){
-       
-       pnlRename2 = new JPanel();
-       pnlRename2.setLayout(new BoxLayout(pnlRename2, BoxLayout.X_AXIS));
-       pnlRename2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       // the Rename -------------------------
-       txtRename2 = new JTextField();
-       txtRename2.setMaximumSize(stdDim);
-       txtRename2.setEditable(false);
-       cbxRename2 = new JCheckBox("Rename");
-       lblSequence2 = new JLabel("From folio (number of first recto): ");
-       lblLeadingZero2 = new JLabel(" number of digits: ");
-//       lblStartWith2 = new JLabel("start with a ");
-       txtSequence2 = new JTextField(5);
-       txtSequence2.setEditable(false);
-       
-       
-       Dimension seqDim = new Dimension(150,25);
-       txtSequence2.setMaximumSize(seqDim);
-       txtSequence2.setEditable(true);
-               
-       String[] sequenceValue2 = {"", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"};
-       cboSequence2 = new JComboBox(sequenceValue2);
-       cboSequence2.setMaximumSize(new Dimension(50, 25));
-       cboSequence2.setEnabled(true);
-/*
-       String[] startWithValue = {"recto", "verso"};
-       cboStartWith = new JComboBox(startWithValue);
-       cboStartWith.setMaximumSize(new Dimension(80, 25));
-       cboStartWith.setEnabled(true);
-*/       
-       
-       pnlRename2.add(lblSequence2);
-       pnlRename2.add(txtSequence2);
-       pnlRename2.add(lblLeadingZero2);
-       pnlRename2.add(cboSequence2);
-//       pnlRename.add(lblStartWith);
-//       pnlRename.add(cboStartWith);
-       tab2.add(pnlRename2);
-       
-   }//end buildRenamePanel
-   
-   
-
-   private void buildFolioOptPanel(){
-       
-       pnlFolioOpt = new JPanel();
-       pnlFolioOpt.setLayout(new BoxLayout(pnlFolioOpt, BoxLayout.X_AXIS));
-       pnlFolioOpt.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       
-       lblFolioOpt = new JLabel("Choose suffix style for recto and verso: ");
-       txtPreRecto = new JTextField(4);
-       txtPreRecto.setMaximumSize(stdDim);
-       txtPreVerso = new JTextField(4);
-       txtPreVerso.setMaximumSize(stdDim);
-       
-       String[] FolioOptRectoValue = {"r", "recto", "", "A"};
-       cboFolioOptRecto = new JComboBox(FolioOptRectoValue);
-       cboFolioOptRecto.setMaximumSize(new Dimension(80, 25));
-       cboFolioOptRecto.setEnabled(true);
-
-       String[] FolioOptVersoValue = {"v", "verso", "B"};
-       cboFolioOptVerso = new JComboBox(FolioOptVersoValue);
-       cboFolioOptVerso.setMaximumSize(new Dimension(80, 25));
-       cboFolioOptVerso.setEnabled(true);
-       
-       
-       
-       
-       
-       pnlFolioOpt.add(lblFolioOpt);
-       pnlFolioOpt.add(txtPreRecto);
-       pnlFolioOpt.add(cboFolioOptRecto);
-       pnlFolioOpt.add(txtPreVerso);
-       pnlFolioOpt.add(cboFolioOptVerso);
-       
-       tab1.add(pnlFolioOpt);
-       
-   }//end buildRenamePanel
-
-   private void buildFolioOptPanel2(){
-       
-       pnlFolioOpt2 = new JPanel();
-       pnlFolioOpt2.setLayout(new BoxLayout(pnlFolioOpt2, BoxLayout.X_AXIS));
-       pnlFolioOpt2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       
-       lblFolioOpt2 = new JLabel("Choose suffix style for recto and verso: ");
-       txtPreRecto2 = new JTextField(4);
-       txtPreRecto2.setMaximumSize(stdDim);
-       txtPreVerso2 = new JTextField(4);
-       txtPreVerso2.setMaximumSize(stdDim);
-       
-       String[] FolioOptRectoValue2 = {"r", "recto", "", "A"};
-       cboFolioOptRecto2 = new JComboBox(FolioOptRectoValue2);
-       cboFolioOptRecto2.setMaximumSize(new Dimension(80, 25));
-       cboFolioOptRecto2.setEnabled(true);
-
-       String[] FolioOptVersoValue2 = {"v", "verso", "B"};
-       cboFolioOptVerso2 = new JComboBox(FolioOptVersoValue2);
-       cboFolioOptVerso2.setMaximumSize(new Dimension(80, 25));
-       cboFolioOptVerso2.setEnabled(true);
-       
-       txtSeparator = new JTextField(4);
-       lblSeparator = new JLabel("separator: ");
-       txtSeparator.setText(" - ");
-       txtSeparator.setMaximumSize(new Dimension(80, 25));
-       
-       pnlFolioOpt2.add(lblFolioOpt2);
-       pnlFolioOpt2.add(txtPreRecto2);
-       pnlFolioOpt2.add(cboFolioOptRecto2);
-       pnlFolioOpt2.add(txtPreVerso2);
-       pnlFolioOpt2.add(cboFolioOptVerso2);
-       pnlFolioOpt2.add(lblSeparator);
-       pnlFolioOpt2.add(txtSeparator);
-       
-       tab2.add(pnlFolioOpt2);
-       
-   }//end buildRenamePanel
-
-   
-   
-  
-   private void buildSuffixPanel(){
-       
-       pnlSuffix = new JPanel();
-       pnlSuffix.setLayout(new BoxLayout(pnlSuffix, BoxLayout.X_AXIS));
-       pnlSuffix.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       // the Suffix -------------------------
-       txtSuffix = new JTextField(40);
-       txtSuffix.setMaximumSize(stdDim);
-       txtSuffix.setEditable(false);
-       cbxSuffix = new JCheckBox("Suffix");
-              
-       
-               
-       ActionListener cbxSuffixListener = new ActionListener(){
-               public void actionPerformed(ActionEvent e){
-                               if(cbxSuffix.isSelected())
-                                       txtSuffix.setEditable(true);
-                               else
-                               {
-                                       txtSuffix.setEditable(false);
-                                       txtSuffix.setText("");
-                               }       
-               }
-       };
-       
-       //check listener
-       cbxSuffix.addActionListener(cbxSuffixListener);
-       
-       pnlSuffix.add(cbxSuffix);
-       pnlSuffix.add(txtSuffix);
-//       pnlSuffix.add(cbxIgnoreExtension);
-       
-       
-       tab1.add(pnlSuffix);
-   }//end buildSuffixPanel
-   
-   private void buildSuffixPanel2(){
-       
-       pnlSuffix2 = new JPanel();
-       pnlSuffix2.setLayout(new BoxLayout(pnlSuffix2, BoxLayout.X_AXIS));
-       pnlSuffix2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       // the Suffix -------------------------
-       txtSuffix2 = new JTextField(40);
-       txtSuffix2.setMaximumSize(stdDim);
-       txtSuffix2.setEditable(false);
-       cbxSuffix2 = new JCheckBox("Suffix");
-       
-               
-       ActionListener cbxSuffixListener = new ActionListener(){
-               public void actionPerformed(ActionEvent e){
-                               if(cbxSuffix2.isSelected())
-                                       txtSuffix2.setEditable(true);
-                               else
-                               {
-                                       txtSuffix2.setEditable(false);
-                                       txtSuffix2.setText("");
-                               }       
-               }
-       };
-       
-       //check listener
-       cbxSuffix2.addActionListener(cbxSuffixListener);
-       
-       pnlSuffix2.add(cbxSuffix2);
-       pnlSuffix2.add(txtSuffix2);       
-//       pnlSuffix2.add(cbxIgnoreExtension2);
-
-       tab2.add(pnlSuffix2);
-   }//end buildSuffixPanel
-   
-  
-   //buildOptPanel
-   private void buildOptPanel(){
-       
-       pnlOption = new JPanel();
-       pnlOption.setLayout(new FlowLayout());
-       pnlOption.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       cbxExperiment = new JCheckBox("Test Mode");
-       cbxOutput = new JCheckBox("Output Window");
-       
-       ActionListener cbxExperimentListener = new ActionListener(){
-           public void actionPerformed(ActionEvent e){
-                           if(cbxExperiment.isSelected())
-                        	   cbxOutput.setSelected(true);
-           }
-   };
-   
-   //check listener
-   cbxExperiment.addActionListener(cbxExperimentListener);
-          
-       pnlOption.add(cbxExperiment);
-       pnlOption.add(cbxOutput);
-       tab1.add(pnlOption);
-       
-   }//end buildOptPanel
-   
-   
- //buildOptPanel
-   private void buildOptPanel2(){
-       
-       pnlOption2 = new JPanel();
-       pnlOption2.setLayout(new FlowLayout());
-       pnlOption2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       cbxExperiment2 = new JCheckBox("Test Mode");
-       cbxOutput2 = new JCheckBox("Output Window");
-       
-       ActionListener cbxExperimentListener = new ActionListener(){
-           public void actionPerformed(ActionEvent e){
-                           if(cbxExperiment2.isSelected())
-                        	   cbxOutput2.setSelected(true);
-           }
-   };
-   
-   //check listener
-   cbxExperiment2.addActionListener(cbxExperimentListener);
-          
-       pnlOption2.add(cbxExperiment2);
-       pnlOption2.add(cbxOutput2);
-       tab2.add(pnlOption2);
-       
-   }//end buildOptPanel
-      
-   
-   private void buildCtrlPanel(){
-       
-       pnlCtrl = new JPanel();
-//       pnlCtrl.setLayout(new BoxLayout(pnlCtrl, BoxLayout.X_AXIS));
-       pnlCtrl.setLayout(new FlowLayout());
-       pnlCtrl.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       //setup the ctrl panel ---------------------
-       btnOk = new JButton("Ok");
-       btnOk.setEnabled(false);
-       btnOk.addActionListener(this);
-       
-       btnCancel = new JButton("Cancel");
-       btnCancel.addActionListener(this);
-       
-       btnAbout = new JButton("About");
-       btnAbout.addActionListener(this);
-       
-       pnlCtrl.add(btnOk);
-       pnlCtrl.add(btnCancel);
-       pnlCtrl.add(btnAbout);
-       
-       tab1.add(pnlCtrl);
-       
-   }//end buildCtrlPanel
-   
-
-   private void buildCtrlPanel2(){
-       
-       pnlCtrl2 = new JPanel();
-       pnlCtrl2.setLayout(new FlowLayout());
-       pnlCtrl2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
-       
-       //setup the ctrl panel ---------------------
-       btnOk2 = new JButton("Ok");
-       btnOk2.setEnabled(false);
-       btnOk2.addActionListener(this);
-       
-       btnCancel2 = new JButton("Cancel");
-       btnCancel2.addActionListener(this);
-       
-       btnAbout2 = new JButton("About");
-       btnAbout2.addActionListener(this);
-       
-       pnlCtrl2.add(btnOk2);
-       pnlCtrl2.add(btnCancel2);
-       pnlCtrl2.add(btnAbout2);
-       
-       tab2.add(pnlCtrl2);
-       
-   }//end buildCtrlPanel
-   
-   
-   
-   //the getFileExtension seems useful, so we left it open for public use.
-   public String getFileExtension(String filename){
-       
-       int dotIndex = filename.lastIndexOf(".");
-       if(dotIndex >= 0){
-               String fileXT = filename.substring(dotIndex);
-               //fileXT = fileXT.toLowerCase(); //make the extension to lower case, nvm just follow the original
-               //System.out.println("The input string: "+ filename + " file extension: " + fileXT);
-               return fileXT;
-       }
-       else
-               return "";
-   }
-   
-   
-   //this will get the FileName without the extension
-   public String getFileName(String filename){
-
-       int dotIndex = filename.lastIndexOf(".");
-       
-       if(dotIndex >= 0){
-               String fileName = filename.substring(0, dotIndex);      
-               //System.out.println("The input string: "+ filename + " file name: " + fileName);
-               return fileName;
-       }
-       else
-               return "";
-       
-   }
-   
-   private String nameSequence(int number, String digits) {
-               
-       String leadingZeroSpecifier = "%0" + digits + "d";
-       
-       String generatedSequence = String.format(leadingZeroSpecifier, number);
-       
-       return generatedSequence;
-       
-   }     
-       
-   
-   public void aboutMessage() {
-	   
-	   JOptionPane.showMessageDialog(null, "Folio Batch Renamer \n"
-	   		+ "A tool to batch-rename files or folders according to the fashion used for manuscript material (folio, recto, verso) \n"
-	   		+ "Licence: GNU GPL v3\n"
-	   		+ "Project manager: Marjorie Burghart \n"
-	   		+ "CIHAM UMR 5648 - 2015");   
-   }
-   
-   
-   public void actionPerformed(ActionEvent e){
-       JButton clickedButton = (JButton) e.getSource();
-              
-       //when we click the ok button... then
-       if(clickedButton == btnOk){
-               
-               String cboString = (String) cboSequence.getSelectedItem();
-               
-               /* we have to check if user have entered any value, is the chosen digit is NOT NONE.
-                * the ComboBox selection is NOT "None"
-                */
-               if(cboString.equals("None") == false){
-                       String temp = txtSequence.getText();
-                       
-                       // then it has to be have some value for the textfield
-                       if(temp.equals("") || temp == null){
-                               JOptionPane.showMessageDialog(null, "Please fill in the 'From folio' number field");
-                               txtSequence.grabFocus();
-                               //something to highlight the field in future?
-                               return;
-                       }
-               }
-               
-            //   JOptionPane.showMessageDialog(null, "rename invoked");
-                       renameFile();   
-                               
-       }
-       else if(clickedButton == btnCancel){
-               btnOk.setEnabled(false);
-               txtDirectory.setText("");
-               directory = null;
-               cbxPrefix.setSelected(false);
-               cbxRename.setSelected(false);
-               cbxSuffix.setSelected(false);
-               txtPrefix.setEditable(false);
-               txtPrefix.setText("");
-               txtSuffix.setEditable(false);
-               txtSuffix.setText("");
-               txtRename.setEditable(false);
-               txtRename.setText("");
-               
-               cbxIgnoreExtension.setSelected(false);
-//               txtSequence.setEditable(false);
-               txtSequence.setText("");
-               cboSequence.setSelectedIndex(0);
-               
-       }
-       else if(clickedButton == btnAbout){
-    	   aboutMessage();
-       }
-       
-       
-     //when we click the ok button in tab2... then
-       if(clickedButton == btnOk2){
-               
-               String cboString = (String) cboSequence2.getSelectedItem();
-               
-               /* we have to check if user have entered any value, is the chosen digit is NOT NONE.
-                * the ComboBox selection is NOT "None"
-                */
-               if(cboString.equals("None") == false){
-                       String temp = txtSequence2.getText();
-                       
-                       // then it has to be have some value for the textfield
-                       if(temp.equals("") || temp == null){
-                               JOptionPane.showMessageDialog(null, "Please fill in the 'From folio' number field");
-                               txtSequence2.grabFocus();
-                               //something to highlight the field in future?
-                               return;
-                       }
-               }
-               
-            //   JOptionPane.showMessageDialog(null, "rename invoked");
-                       renameFileSingle();   
-                               
-       }
-       else if(clickedButton == btnCancel2){
-               btnOk2.setEnabled(false);
-               txtDirectory2.setText("");
-               directory = null;
-               cbxPrefix2.setSelected(false);
-               cbxRename2.setSelected(false);
-               cbxSuffix2.setSelected(false);
-               txtPrefix2.setEditable(false);
-               txtPrefix2.setText("");
-               txtSuffix2.setEditable(false);
-               txtSuffix2.setText("");
-               txtRename2.setEditable(false);
-               txtRename2.setText("");
-               
-               cbxIgnoreExtension2.setSelected(false);
- //              txtSequence2.setEditable(false);
-               txtSequence2.setText("");
-               txtSeparator.setText(" - ");
-               cboSequence2.setSelectedIndex(0);
-               
-       }
-       else if(clickedButton == btnAbout2){
-    	   aboutMessage();
-       }
-       
-       
-   }
-   
-   
-   /* for nested class */
-   //special nested class for TextField Limit
-       class JTextFieldLimit extends PlainDocument{
-               private int limit;
-               private boolean toUpperCase = false;
-               
-               //constructor
-               JTextFieldLimit(int limit){
-                       super();
-                       this.limit = limit;
-               }
-               
-               JTextFieldLimit(int limit, boolean upperCase){
-                       super();
-                       this.limit = limit;
-                       toUpperCase = upperCase;
-               }
-               
-               public void insertString(int offset, String str, AttributeSet attr) throws BadLocationException{
-                       if(str == null)
-                               return;
-                       if((getLength() + str.length())<= limit){
-                               if(toUpperCase) str = str.toUpperCase();
-                               super.insertString(offset, str, attr);
-                                       
-                       }
-               }
-               
-       }//end of nested class
-}
+/* Folio Batch Renamer
+ * 
+ * This tool is designed to help users who need to batch rename files, typically pictures, according to 
+ * the fashion used for manuscript material, i.e. where the same folio number appears twice, typically followed 
+ * by an indication of "recto" or "verso" side. Although rather trivial, this operation is not easily performed 
+ * with traditional batch rename tools, especially for people who are not specially familiar with regular 
+ * expressions or such. 
+ * The tool works on files as well as folders, but always processes them one type at a time. It goes through 
+ * the list of files (or folders), following the alphabetical order, and renames each according to the rules
+ * defined by the user. 
+ * The rules define: 
+ * 	- whether the files or the folders should be renamed
+ * 	- if a "prefix" should be added to the new file/folder name (for instance, "Paris, BnF, lat. 16480, fol. "
+ * 	- the folio number from which the automatic numbering should start, 
+ * 	- on how many digits this folio number should be represented (for instance, if your first folio number is 99, 
+ * starting on a recto, and you choose in the combo menu to represent the folio number on 4 digits, the first file 
+ * of the list will be renamed as "0099r"
+ * 	- whether the first file to be renamed corresponds to a recto or a verso
+ * 	- you can choose the style or suffix you want to apply for recto or verso (by default, "r" and "v" respectively)
+ * If you wish to add a character or string of character between the folio number and its recto or verso suffix, use
+ * the text box preceding each combo menu (for instance, you may choose to insert a blank space between the fol. number
+ * and the recto / verso suffix). 
+ * 	- Finally, you can add a general suffix, that will follow the recto / verso suffix. 
+ * The application can run in test mode, showing you how the rules would be applied to your files / folders. 
+ * 
+ * DISCLAIMER
+ * This application is in beta-test mode, do not use it on important material without making a copy of your files. 
+ * Generally, use at your own risk. And drink responsibly. 
+ * 
+ * 
+* Project manager: Marjorie Burghart, CNRS - CIHAM UMR 5648 <marjorie.burghart@ehess.fr>
+* February 2016
+* 
+* This source code makes use of and modifies the code of the "batchfilerenametool" application 
+* (https://code.google.com/p/batchfilerenametool/) by CharCheng Mun and Cheong Wee Lau (August 2009) 
+* 
+* licence GNU GPL (v3)
+*
+*/
+
+package folioFileRename;
+
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import javax.swing.*;
+import javax.swing.border.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.DefaultTableCellRenderer;
+
+import java.awt.event.*;
+import java.awt.*;
+
+import javax.swing.text.*;
+import javax.swing.JTabbedPane;
+
+public class Rename extends JFrame implements ActionListener{   
+
+       private static final String TITLE = "Folio Batch Renamer";
+       private static final int WIDTH = 600;
+       private static final int HEIGHT = 595;
+       private static final String DESCRIPTION = "Select a folder, and define the rules "
+       		+ "to rename the files or folder it contains.";
+       private static final String FOLIATION_TIP = "<html>Instead of 'From folio', the sides to name, in order, e.g.<br>"
+               + "cover, 1r-45v, 45bis r-v, 46r-...<br>"
+               + "12r: one side; 12: both sides; 1r-45v: a range (leave out the missing leaves);<br>"
+               + "45bis r: a marked folio; cover, flyleaf: a label; 46r-...: open range, last only;<br>"
+               + "roman: i-xii, page: 1-318, signature: A1r-B8v, folio: ... change the numbering</html>";
+       private static final String MOVE_TO_TIP = "<html>Leave empty to rename the files where they are; otherwise they are moved<br>"
+               + "to this folder under their new names (on another drive: copied, checked, then deleted),<br>"
+               + "or they keep their names and the folder gets links to them under the new names:<br>"
+               + "a view, redone quickly when run again (hard links: same drive; symbolic: any drive)</html>";
+       private boolean OUTPUT_ON = false;
+                
+       private File directory;   //change all the files in this directory;
+       
+       private Container contentPane;
+       private JTabbedPane tabPnl;
+       private JPanel tab1, tab2, tabHelp, pnlDescription, pnlChoice, pnlDirectory, pnlPrefix, pnlRename, pnlFolioOpt, pnlSuffix, pnlCtrl, pnlOption, pnlDescription2, pnlChoice2, pnlDirectory2, pnlPrefix2, pnlRename2, pnlFolioOpt2, pnlSuffix2, pnlCtrl2, pnlOption2, pnlFoliation, pnlFoliation2;
+       private JLabel lblTab1, lblTab2, lblDesc, lblChoice, lblSequence, lblLeadingZero, lblStartWith, lblDirectory, lblFolioOpt, lblDesc2, lblChoice2, lblSequence2, lblLeadingZero2, lblStartWith2, lblDirectory2, lblFolioOpt2, lblSeparator, lblParallel, lblParallel2, lblFoliation, lblFoliation2, lblNumbering, lblNumbering2;
+       private JTextField txtDirectory, txtPrefix, txtSuffix, txtRename, txtSequence, txtPreRecto, txtPreVerso, txtDirectory2, txtPrefix2, txtSuffix2, txtRename2, txtSequence2, txtPreRecto2, txtPreVerso2, txtSeparator, txtFoliation, txtFoliation2, txtMoveTo, txtMoveTo2;
+       private JButton btnOk, btnCancel, btnAbout, btnOk2, btnCancel2, btnAbout2, btnUndo, btnUndo2;
+       private JCheckBox cbxPrefix, cbxSuffix, cbxRename, cbxIgnoreExtension, cbxExperiment, cbxOutput, cbxPrefix2, cbxSuffix2, cbxRename2, cbxIgnoreExtension2, cbxExperiment2, cbxOutput2, cbxBatch, cbxBatch2, cbxChecksums, cbxChecksums2;
+       private JComboBox<String> cboSequence, cboStartWith, cboFolioOptRecto, cboFolioOptVerso, cboSequence2, cboFolioOptRecto2, cboFolioOptVerso2;
+       private JComboBox<String> cboParallel, cboParallel2;
+       private JComboBox<SortOrder> cboOrder, cboOrder2;
+       private JComboBox<FileSystemProfile> cboTarget, cboTarget2;
+       private JCheckBox cbxSanitize, cbxSanitize2;
+       private JComboBox<NumberingScheme> cboNumbering, cboNumbering2;
+       private JComboBox<OutputMode> cboOutput, cboOutput2;
+       private JComboBox<String> cboProfile, cboProfile2;
+       //the third tab: the sides come from a list
+       private JPanel tab3;
+       private JTextField txtDirectory3, txtList3, txtPrefix3, txtSuffix3, txtMoveTo3;
+       private JComboBox<NumberingScheme> cboNumbering3;
+       private JComboBox<SortOrder> cboOrder3;
+       private JComboBox<FileSystemProfile> cboTarget3;
+       private JComboBox<OutputMode> cboOutput3;
+       private JComboBox<String> cboSequence3, cboParallel3;
+       private JCheckBox cbxSpread3, cbxSanitize3, cbxExperiment3, cbxOutput3, cbxChecksums3;
+       private JButton btnOk3, btnCancel3;
+       private JProgressBar prgRename3;
+       private final RuleProfiles profiles = new RuleProfiles();   //the saved rules, shared by both tabs
+       private Dimension stdDim;
+       private ButtonGroup bg1, bg2;
+       private JRadioButton choiceFiles, choiceFolders, choiceFiles2, choiceFolders2;
+       private static JFrame outputFrame; //the output display of the system console
+       
+       //------- Output Window ----- variables
+       private static final int OUTPUT_LINES = 20000;      //lines kept for the output window
+       private static final int OUTPUT_REFRESH_MS = 250;
+       private final LogBuffer outputLog = new LogBuffer(OUTPUT_LINES);
+       private volatile boolean CONSOLE_ON = true;
+       private JScrollPane scrOutput;
+       private JList<String> lstOutput;
+       private LogListModel mdlOutput;
+       
+       //------- Background rename ----- variables
+       private RenameWorker worker;   //the rename pass currently running, null when idle
+       private JProgressBar prgRename, prgRename2;
+       
+       
+       //Constructor - never should have a return type, a lil mistake make thing doesn't work
+       public Rename(){
+               
+               setSize(WIDTH, HEIGHT);
+               setTitle(TITLE);
+               setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+               setResizable(false);
+               setLocation(400, 300);
+               
+               //Add the closingWindow listener
+       this.addWindowListener(
+                       new WindowAdapter(){
+                               public void windowClosing(WindowEvent e){
+                                       int response = JOptionPane.showConfirmDialog(null, "Are you sure want to exit?", 
+                                               "Close Program", JOptionPane.YES_NO_OPTION);
+                                               
+                                       if(response == JOptionPane.YES_OPTION)
+                                               System.exit(0);
+                               }
+                       }//end - WindowAdapter
+               ); //close - addWindowListener
+               
+               //the saved rule profiles are read once, before the tabs are built
+               try {
+                       profiles.load(RuleProfiles.defaultFile());
+               }
+               catch (IOException e) {
+                       JOptionPane.showMessageDialog(null, "Cannot read the rule profiles: " + e.getMessage());
+               }
+               
+               buildGUI();
+       
+       }// end constructor
+       
+       
+       
+       //Main
+   public static void main(String[] args) {    
+       
+       Rename renameTask = new Rename();
+          
+       renameTask.setVisible(true);            
+       
+       //the metrics of the last pass, for JConsole or a monitoring agent
+       RunMetrics.enableJmx();
+   }//end Main
+   
+   
+   private void renameFile(){
+       
+       /* the operation of this part is ensured by the chooseDirectory()
+        * We get the conditions set by users into a RenameJob,
+        * which gets the list of files in the directory and performs the file rename operation.
+        * The rules are read here, on the event dispatch thread, and the job itself 
+        * runs in a RenameWorker so that the window stays responsive on large folders.
+        */
+        
+       //Let's get all the information from user
+       RenameJob job = getRules();
+       job.setDirectory(directory);
+       job.setExperiment(cbxExperiment.isSelected());
+       job.setParallelism(Integer.parseInt((String) cboParallel.getSelectedItem()));
+       job.setChecksums(cbxChecksums.isSelected());
+       if(txtMoveTo.getText().trim().equals("") == false){
+               job.setTargetDirectory(new File(txtMoveTo.getText().trim()));
+               job.setOutput((OutputMode) cboOutput.getSelectedItem());
+       }
+       
+       // Batch: the same rules for every manuscript folder under the chosen one
+       if(cbxBatch.isSelected()){
+               startBatch(job, prgRename);
+               return;
+       }
+       
+       // ! In the Experimental Mode, show the preview instead of renaming
+       if(job.isExperiment()){
+               showPreview(job);
+               return;
+       }
+       
+       //let's call the output frame
+       if(cbxOutput.isSelected() && OUTPUT_ON == false){
+               buildOutput();
+               OUTPUT_ON = true;
+       }
+       
+       worker = new RenameWorker(job, prgRename);
+       worker.execute();
+                       
+   }//end renameFile
+   
+
+   
+   
+   private void renameFileSingle(){
+       
+       /* the operation of this part is ensured by the chooseDirectory()
+        * As in renameFile(), the rules go into a RenameJob run by a RenameWorker;
+        * here each file is a spread, with the verso of a folio and the recto of the following.
+        */
+        
+       //Let's get all the information from user
+       RenameJob job = getRules2();
+       job.setDirectory(directory);
+       job.setExperiment(cbxExperiment2.isSelected());
+       job.setParallelism(Integer.parseInt((String) cboParallel2.getSelectedItem()));
+       job.setChecksums(cbxChecksums2.isSelected());
+       if(txtMoveTo2.getText().trim().equals("") == false){
+               job.setTargetDirectory(new File(txtMoveTo2.getText().trim()));
+               job.setOutput((OutputMode) cboOutput2.getSelectedItem());
+       }
+       
+       // Batch: the same rules for every manuscript folder under the chosen one
+       if(cbxBatch2.isSelected()){
+               startBatch(job, prgRename2);
+               return;
+       }
+       
+       // ! In the Experimental Mode, show the preview instead of renaming
+       if(job.isExperiment()){
+               showPreview(job);
+               return;
+       }
+       
+       //let's call the output frame
+       if(cbxOutput2.isSelected() && OUTPUT_ON == false){
+               buildOutput();
+               OUTPUT_ON = true;
+       }
+       
+       worker = new RenameWorker(job, prgRename2);
+       worker.execute();
+                       
+   }//end renameFileSingle
+   
+   
+   
+   
+   private void renameFromList(){
+       
+       /* The third tab: the side of each file comes from a list (CSV or TSV), read by a
+        * NameManifest when the job runs; the prefix, suffix and digits, the target file
+        * system, the parallelism, the checksums and the folder to move to or give links in
+        * apply as in the other tabs. Test mode lists the new names in the output window.
+        */
+       if(txtDirectory3.getText().trim().equals("") || txtList3.getText().trim().equals("")){
+               JOptionPane.showMessageDialog(null, "Please choose a folder and the list of its files");
+               return;
+       }
+       
+       RenameJob job = new RenameJob();
+       job.setDirectory(new File(txtDirectory3.getText().trim()));
+       job.setManifest(new File(txtList3.getText().trim()));
+       job.setPrefix(txtPrefix3.getText());
+       job.setSuffix(txtSuffix3.getText());
+       job.setDigits((String) cboSequence3.getSelectedItem());
+       job.setSpread(cbxSpread3.isSelected());
+       job.setNumbering((NumberingScheme) cboNumbering3.getSelectedItem());
+       job.setSortOrder((SortOrder) cboOrder3.getSelectedItem());
+       job.setProfile((FileSystemProfile) cboTarget3.getSelectedItem());
+       job.setSanitize(cbxSanitize3.isSelected());
+       job.setExperiment(cbxExperiment3.isSelected());
+       job.setParallelism(Integer.parseInt((String) cboParallel3.getSelectedItem()));
+       job.setChecksums(cbxChecksums3.isSelected());
+       if(txtMoveTo3.getText().trim().equals("") == false){
+               job.setTargetDirectory(new File(txtMoveTo3.getText().trim()));
+               job.setOutput((OutputMode) cboOutput3.getSelectedItem());
+       }
+       
+       //let's call the output frame: in test mode, it shows the new names
+       if((cbxOutput3.isSelected() || job.isExperiment()) && OUTPUT_ON == false){
+               buildOutput();
+               OUTPUT_ON = true;
+       }
+       
+       worker = new RenameWorker(job, prgRename3);
+       worker.execute();
+                       
+   }//end renameFromList
+   
+   
+   
+   
+   //the naming rules set in the first tab, those a profile keeps
+   private RenameJob getRules(){
+       
+       RenameJob job = new RenameJob();
+       job.setPrefix(txtPrefix.getText());
+       job.setSuffix(txtSuffix.getText());
+       job.setPreRecto(txtPreRecto.getText());
+       job.setPreVerso(txtPreVerso.getText());
+       job.setFolioRecto((String) cboFolioOptRecto.getSelectedItem());
+       job.setFolioVerso((String) cboFolioOptVerso.getSelectedItem());
+       job.setDigits((String) cboSequence.getSelectedItem());
+       job.setStartWithVerso(((String) cboStartWith.getSelectedItem()).equals("verso"));
+       if(txtSequence.getText().equals("") == false)
+               job.setStartingNum(Integer.parseInt(txtSequence.getText()));
+       job.setFoliation(txtFoliation.getText());
+       job.setNumbering((NumberingScheme) cboNumbering.getSelectedItem());
+       job.setFolders(choiceFolders.isSelected());
+       job.setIgnoreExtension(cbxIgnoreExtension.isSelected());
+       job.setSortOrder((SortOrder) cboOrder.getSelectedItem());
+       job.setProfile((FileSystemProfile) cboTarget.getSelectedItem());
+       job.setSanitize(cbxSanitize.isSelected());
+       return job;
+   }//end getRules
+   
+   
+   //the naming rules set in the second tab, where each file is a spread
+   private RenameJob getRules2(){
+       
+       RenameJob job = new RenameJob();
+       job.setSpread(true);
+       job.setPrefix(txtPrefix2.getText());
+       job.setSuffix(txtSuffix2.getText());
+       job.setPreRecto(txtPreRecto2.getText());
+       job.setPreVerso(txtPreVerso2.getText());
+       job.setFolioRecto((String) cboFolioOptRecto2.getSelectedItem());
+       job.setFolioVerso((String) cboFolioOptVerso2.getSelectedItem());
+       job.setDigits((String) cboSequence2.getSelectedItem());
+       job.setSeparator(txtSeparator.getText());
+       if(txtSequence2.getText().equals("") == false)
+               job.setStartingNum(Integer.parseInt(txtSequence2.getText()));
+       job.setFoliation(txtFoliation2.getText());
+       job.setNumbering((NumberingScheme) cboNumbering2.getSelectedItem());
+       job.setFolders(choiceFolders2.isSelected());
+       job.setIgnoreExtension(cbxIgnoreExtension2.isSelected());
+       job.setSortOrder((SortOrder) cboOrder2.getSelectedItem());
+       job.setProfile((FileSystemProfile) cboTarget2.getSelectedItem());
+       job.setSanitize(cbxSanitize2.isSelected());
+       return job;
+   }//end getRules2
+   
+   
+   //fills the first tab with the rules of job
+   private void showRules(RenameJob job){
+       
+       txtPrefix.setText(job.getPrefix());
+       cbxPrefix.setSelected(job.getPrefix().isEmpty() == false);
+       txtPrefix.setEditable(cbxPrefix.isSelected());
+       txtSuffix.setText(job.getSuffix());
+       cbxSuffix.setSelected(job.getSuffix().isEmpty() == false);
+       txtSuffix.setEditable(cbxSuffix.isSelected());
+       txtPreRecto.setText(job.getPreRecto());
+       txtPreVerso.setText(job.getPreVerso());
+       select(cboFolioOptRecto, job.getFolioRecto());
+       select(cboFolioOptVerso, job.getFolioVerso());
+       select(cboSequence, job.getDigits());
+       cboStartWith.setSelectedItem(job.isStartWithVerso() ? "verso" : "recto");
+       txtSequence.setText(Integer.toString(job.getStartingNum()));
+       txtFoliation.setText(job.getFoliation());
+       selectNumbering(cboNumbering, job.getNumbering());
+       choiceFolders.setSelected(job.isFolders());
+       choiceFiles.setSelected(job.isFolders() == false);
+       cbxIgnoreExtension.setSelected(job.isIgnoreExtension());
+       cboOrder.setSelectedItem(job.getSortOrder());
+       cboTarget.setSelectedItem(job.getProfile());
+       cbxSanitize.setSelected(job.isSanitize());
+   }//end showRules
+   
+   
+   //fills the second tab with the rules of job
+   private void showRules2(RenameJob job){
+       
+       txtPrefix2.setText(job.getPrefix());
+       cbxPrefix2.setSelected(job.getPrefix().isEmpty() == false);
+       txtPrefix2.setEditable(cbxPrefix2.isSelected());
+       txtSuffix2.setText(job.getSuffix());
+       cbxSuffix2.setSelected(job.getSuffix().isEmpty() == false);
+       txtSuffix2.setEditable(cbxSuffix2.isSelected());
+       txtPreRecto2.setText(job.getPreRecto());
+       txtPreVerso2.setText(job.getPreVerso());
+       select(cboFolioOptRecto2, job.getFolioRecto());
+       select(cboFolioOptVerso2, job.getFolioVerso());
+       select(cboSequence2, job.getDigits());
+       txtSeparator.setText(job.getSeparator());
+       txtSequence2.setText(Integer.toString(job.getStartingNum()));
+       txtFoliation2.setText(job.getFoliation());
+       selectNumbering(cboNumbering2, job.getNumbering());
+       choiceFolders2.setSelected(job.isFolders());
+       choiceFiles2.setSelected(job.isFolders() == false);
+       cbxIgnoreExtension2.setSelected(job.isIgnoreExtension());
+       cboOrder2.setSelectedItem(job.getSortOrder());
+       cboTarget2.setSelectedItem(job.getProfile());
+       cbxSanitize2.setSelected(job.isSanitize());
+   }//end showRules2
+   
+   
+   //selects value in combo, adding it first when a profile gives one the list does not offer
+   private static void select(JComboBox<String> combo, String value){
+       for(int i = 0; i < combo.getItemCount(); i++){
+               if(combo.getItemAt(i).equals(value)){
+                       combo.setSelectedIndex(i);
+                       return;
+               }
+       }
+       combo.addItem(value);
+       combo.setSelectedItem(value);
+   }
+   
+   
+   //the schemes are matched by name: a signature scheme is made anew for each list
+   private static void selectNumbering(JComboBox<NumberingScheme> combo, NumberingScheme numbering){
+       for(int i = 0; i < combo.getItemCount(); i++){
+               if(combo.getItemAt(i).getName().equals(numbering.getName())){
+                       combo.setSelectedIndex(i);
+                       return;
+               }
+       }
+       combo.addItem(numbering);
+       combo.setSelectedItem(numbering);
+   }
+   
+   
+   //gives the tab the rules of the profile chosen in its list
+   private void loadProfile(boolean spread){
+       
+       String name = (String) (spread ? cboProfile2 : cboProfile).getSelectedItem();
+       if(name == null)
+               return;
+       RenameJob job = new RenameJob();
+       profiles.apply(name, job);
+       if(spread)
+               showRules2(job);
+       else
+               showRules(job);
+   }//end loadProfile
+   
+   
+   //keeps the rules of the tab as a profile, under a name the user gives
+   private void saveProfile(boolean spread){
+       
+       JComboBox<String> combo = spread ? cboProfile2 : cboProfile;
+       String name = (String) JOptionPane.showInputDialog(this, "Name of the profile (a saved one of that name is replaced):",
+               "Save the rules", JOptionPane.PLAIN_MESSAGE, null, null, combo.getSelectedItem());
+       if(name == null || name.trim().isEmpty())
+               return;
+       name = name.trim();
+       
+       try {
+               profiles.put(name, spread ? getRules2() : getRules());
+               profiles.save(RuleProfiles.defaultFile());
+       }
+       catch (NumberFormatException e) {
+               JOptionPane.showMessageDialog(null, "The 'From folio' field must hold a number");
+               return;
+       }
+       catch (IOException e) {
+               JOptionPane.showMessageDialog(null, "Cannot save the rule profiles: " + e.getMessage());
+               return;
+       }
+       
+       //both tabs offer the new profile
+       for(JComboBox<String> list : Arrays.asList(cboProfile, cboProfile2)){
+               list.removeAllItems();
+               for(String profile : profiles.names())
+                       list.addItem(profile);
+       }
+       combo.setSelectedItem(name);
+   }//end saveProfile
+   
+   
+   
+   
+   private boolean chooseDirectory(){
+       
+       /* Choose the file Directory
+        * this will ensure that the class variable directory get the value
+        * only when a directory is chosen, then the button Ok will be enabled
+        */
+        
+       JFileChooser fc = new JFileChooser();
+       fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+       fc.setAcceptAllFileFilterUsed(false);
+       
+       int returnval = fc.showOpenDialog(this);
+
+       if(returnval == JFileChooser.APPROVE_OPTION){
+               directory = fc.getSelectedFile();
+               btnOk.setEnabled(worker == null);
+               btnUndo.setEnabled(worker == null);
+               return true;            
+       }
+       
+       return false;
+   }// end chooseDirectory
+   private boolean chooseDirectory2(){
+       
+       /* Choose the file Directory
+        * this will ensure that the class variable directory get the value
+        * only when a directory is chosen, then the button Ok will be enabled
+        */
+        
+       JFileChooser fc = new JFileChooser();
+       fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+       fc.setAcceptAllFileFilterUsed(false);
+       
+       int returnval = fc.showOpenDialog(this);
+
+       if(returnval == JFileChooser.APPROVE_OPTION){
+               directory = fc.getSelectedFile();
+               btnOk2.setEnabled(worker == null);
+               btnUndo2.setEnabled(worker == null);
+               return true;            
+       }
+       
+       return false;
+   }// end chooseDirectory2
+   
+   
+   //lets the user pick a folder (the one the files are moved to, or that of the list tab), shown in field
+   private void chooseMoveTo(JTextField field){
+       
+       JFileChooser fc = new JFileChooser();
+       fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+       fc.setAcceptAllFileFilterUsed(false);
+       
+       if(fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION)
+               field.setText(fc.getSelectedFile().getPath());
+   }// end chooseMoveTo
+   
+   
+   
+   private boolean welcomeScreen(){
+       
+       //Display the instruction
+       JOptionPane.showMessageDialog(null, "Select a folder (all the files will be renamed)", 
+               "File Rename Tool", JOptionPane.OK_OPTION);
+               
+       //Decide the file prefix
+       String prefix = JOptionPane.showInputDialog(null, "Please specify the name prefix", "File Rename Tool", JOptionPane.YES_NO_OPTION );
+       
+       //if it's a null entry, we just make it "" better, than getting a word null.
+       if(prefix == null){
+               prefix = "";
+       }
+       
+       System.out.println(prefix);
+       int agree = JOptionPane.showConfirmDialog(null, "Are you sure?", "Confirmation", JOptionPane.YES_NO_OPTION);
+       
+       if(agree == JOptionPane.YES_OPTION)
+               return true;
+               else
+                       return false;
+   }//end welcomeScreen
+   
+   
+   //buildOutputFrame
+   private void buildOutput(){
+       outputFrame = new JFrame("Output");
+       outputFrame.setSize(WIDTH+100, HEIGHT);
+       
+       Container outputPane = outputFrame.getContentPane();
+       outputPane.setLayout(new BorderLayout());
+       outputPane.setBackground(Color.BLACK);
+       outputPane.setForeground(Color.WHITE);
+       
+       /* a JList only paints the rows in view, and its model reads them from the 
+        * bounded outputLog, so a long pass costs neither time nor memory here.
+        */
+       mdlOutput = new LogListModel();
+       lstOutput = new JList<String>(mdlOutput);
+       lstOutput.setBackground(Color.BLACK);
+       lstOutput.setForeground(Color.WHITE);
+       lstOutput.setFont(new Font("Courier New", 1, 15));
+       lstOutput.setPrototypeCellValue("                                                                                ");
+       
+       scrOutput = new JScrollPane(lstOutput);
+       
+       //the output options -------------------------
+       JPanel pnlOutputOpt = new JPanel(new FlowLayout(FlowLayout.LEADING));
+       final JCheckBox cbxConsole = new JCheckBox("Echo to console", CONSOLE_ON);
+       cbxConsole.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       CONSOLE_ON = cbxConsole.isSelected();
+               }
+       });
+       final JButton btnSpill = new JButton(outputLog.isSpilling() ? "Stop saving the log" : "Save the full log to a file...");
+       btnSpill.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       if(outputLog.isSpilling()){
+                               outputLog.stopSpill();
+                               btnSpill.setText("Save the full log to a file...");
+                       }
+                       else if(chooseLogFile())
+                               btnSpill.setText("Stop saving the log");
+               }
+       });
+       pnlOutputOpt.add(cbxConsole);
+       pnlOutputOpt.add(btnSpill);
+       
+       //the rows are brought up to date a few times a second, whatever the pace of the pass
+       final Timer refreshTimer = new Timer(OUTPUT_REFRESH_MS, new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       mdlOutput.refresh();
+               }
+       });
+       refreshTimer.start();
+       
+       outputFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+       outputFrame.setVisible(true);
+       
+       outputFrame.addWindowListener(
+               new WindowAdapter(){
+                       public void windowClosing(WindowEvent e){
+                               refreshTimer.stop();
+                               outputFrame.dispose();
+                               OUTPUT_ON = false;
+                       }
+               }
+               
+       );// close addWindowListener
+       
+       outputPane.add(pnlOutputOpt, BorderLayout.NORTH);
+       outputPane.add(scrOutput, BorderLayout.CENTER);
+       mdlOutput.refresh();
+   }
+   
+   
+   /* Batch: the rules of the tab for every manuscript folder under the chosen one,
+    * with the prefix taken from each folder name. The report goes to the output window.
+    */
+   private void startBatch(RenameJob rules, JProgressBar progressBar){
+       
+       BatchRename batch;
+       try {
+               batch = new BatchRename(rules, rules.getDirectory());
+       }
+       catch (IllegalArgumentException e) {
+               JOptionPane.showMessageDialog(null, e.getMessage());
+               return;
+       }
+       batch.setWorkers(Math.min(4, Runtime.getRuntime().availableProcessors()));
+       
+       if(OUTPUT_ON == false){
+               buildOutput();
+               OUTPUT_ON = true;
+       }
+       
+       worker = new BatchWorker(rules, batch, progressBar);
+       worker.execute();
+   }
+   
+   
+   /* The foliation, when one is given, must be valid before anything starts: the
+    * error names the item at fault.
+    */
+   private boolean checkFoliation(JTextField field, JComboBox<NumberingScheme> numbering){
+       
+       if(field.getText().trim().equals(""))
+               return true;
+       try {
+               FoliationSequence.parse(field.getText(), (NumberingScheme) numbering.getSelectedItem());
+               return true;
+       }
+       catch (IllegalArgumentException e) {
+               JOptionPane.showMessageDialog(null, e.getMessage());
+               field.grabFocus();
+               return false;
+       }
+   }
+   
+   
+   /* Undo last batch: gives the files of the last rename of the chosen folder (of every
+    * manuscript folder under it, in batch mode) their old names back, from the undo log
+    * the rename left in the folder. The lines go to the output window.
+    */
+   private void undoLast(boolean batch, String parallelism, JProgressBar progressBar){
+       
+       int agree = JOptionPane.showConfirmDialog(null, "Give the files of the last rename in " + directory 
+               + (batch ? " and its sub-folders" : "") + " their old names back?", "Undo last batch", JOptionPane.YES_NO_OPTION);
+       if(agree != JOptionPane.YES_OPTION)
+               return;
+       
+       RenameJob job = new RenameJob();
+       job.setDirectory(directory);
+       job.setParallelism(Integer.parseInt(parallelism));
+       job.setUndo(true);
+       
+       if(batch){
+               startBatch(job, progressBar);
+               return;
+       }
+       
+       if(OUTPUT_ON == false){
+               buildOutput();
+               OUTPUT_ON = true;
+       }
+       
+       worker = new RenameWorker(job, progressBar);
+       worker.execute();
+   }
+   
+   
+   /* Test Mode: lists the folder off the EDT, then opens a table of the current and 
+    * new names. The new names are computed only for the rows on screen; the check for
+    * collisions and invalid names runs in the background and highlights them when done.
+    */
+   private void showPreview(final RenameJob job){
+       
+       final List<String> otherNames = new ArrayList<String>();
+       
+       new SwingWorker<PreviewTableModel, Void>(){
+               protected PreviewTableModel doInBackground() throws IOException{
+                       return new PreviewTableModel(job, job.listEntries(otherNames));
+               }
+               protected void done(){
+                       try {
+                               buildPreview(job, get(), otherNames);
+                       }
+                       catch (InterruptedException e) {
+                       }
+                       catch (ExecutionException e) {
+                               JOptionPane.showMessageDialog(null, "Cannot list the folder: " + e.getCause().getMessage());
+                       }
+               }
+       }.execute();
+   }
+   
+   
+   //buildPreviewFrame
+   private void buildPreview(RenameJob job, final PreviewTableModel model, final List<String> otherNames){
+       
+       JFrame previewFrame = new JFrame("Preview - " + job.getDirectory().getPath());
+       previewFrame.setSize(WIDTH+200, HEIGHT+100);
+       previewFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+       
+       JTable tblPreview = new JTable(model);
+       tblPreview.setFillsViewportHeight(true);
+       tblPreview.getColumnModel().getColumn(0).setMaxWidth(80);
+       
+       //collisions in red, invalid names in orange
+       tblPreview.setDefaultRenderer(Object.class, new DefaultTableCellRenderer(){
+               public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column){
+                       super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                       if(isSelected == false){
+                               if(model.isCollision(row))
+                                       setBackground(new Color(255, 190, 190));
+                               else if(model.isInvalid(row))
+                                       setBackground(new Color(255, 220, 160));
+                               else
+                                       setBackground(table.getBackground());
+                       }
+                       return this;
+               }
+       });
+       
+       final JLabel lblStatus = new JLabel(model.getRowCount() + " " + (job.isFolders() ? "folder(s)" : "file(s)") 
+               + " to rename - checking the new names...");
+       lblStatus.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       previewFrame.getContentPane().add(new JScrollPane(tblPreview), BorderLayout.CENTER);
+       previewFrame.getContentPane().add(lblStatus, BorderLayout.SOUTH);
+       previewFrame.setVisible(true);
+       
+       new SwingWorker<BitSet[], Void>(){
+               protected BitSet[] doInBackground(){
+                       return model.analyse(otherNames);
+               }
+               protected void done(){
+                       try {
+                               model.setAnalysis(get());
+                               lblStatus.setText(model.getRowCount() + " to rename, " 
+                                       + model.getCollisionCount() + " name collision(s) (case ignored), "
+                                       + model.getInvalidCount() + " invalid name(s)");
+                       }
+                       catch (InterruptedException e) {
+                       }
+                       catch (ExecutionException e) {
+                               lblStatus.setText("Cannot check the new names: " + e.getCause());
+                       }
+               }
+       }.execute();
+   }
+   
+   
+   //choose the file where the full output goes, from what the window holds onwards
+   private boolean chooseLogFile(){
+       
+       JFileChooser fc = new JFileChooser();
+       fc.setSelectedFile(new File("folio-rename.log"));
+       
+       if(fc.showSaveDialog(outputFrame) != JFileChooser.APPROVE_OPTION)
+               return false;
+       
+       try {
+               outputLog.spillTo(new BufferedWriter(new OutputStreamWriter(
+                       new FileOutputStream(fc.getSelectedFile()), "UTF-8")));
+               return true;
+       }
+       catch (IOException e) {
+               JOptionPane.showMessageDialog(null, "Cannot write the log: " + e.getMessage());
+               return false;
+       }
+   }
+   
+   
+   
+   //buildGUI
+   private void buildGUI(){
+       
+       stdDim = new Dimension(WIDTH, 25);
+       
+       contentPane = getContentPane();
+       contentPane.setLayout(new BoxLayout(contentPane, BoxLayout.Y_AXIS));
+       tabPnl = new JTabbedPane();
+       
+       tab1 = new JPanel();
+       tab2 = new JPanel();
+       tab3 = new JPanel();
+       tabHelp = new JPanel();
+       
+       
+       
+       
+       
+       
+       String initString ="Folio Batch Renamer\n\n\n"
++ "This tool is designed to help users who need to batch rename files, typically pictures, according \n"
++ "to the fashion used for manuscript material, i.e. where the same folio number appears twice, typically\n"
++ "followed by an indication of \"recto\" or \"verso\" side. Although rather trivial, this operation is \n"
++ "not easily performed  with traditional batch rename tools, especially for people who are not specially \n"
++ "familiar with regular expressions or such.\n\n"
++ "The tool works on files as well as folders, but always processes them one type at a time. \n"
++ "It goes through the list of files (or folders), following the alphabetical order, and renames each \n"
++ "according to the rules defined by the user.\n "
++ "The first tab, \"Separate files for r/v\", is designed to batch rename files or folder where \n"
++ "each file or folder represents a single face of a folio, recto or verso. \n"
++ "The second tab, \"Single file for r/v\", is designed to batch rename files or folders where each \n"
++ "file or folder represents the full view of an open manuscript, with the verso of a folio and \n"
++ "the recto of the following.\n"
++ "The rules define: \n"
++ " 	- whether the files or the folders should be renamed\n"
++ " 	- if a \"prefix\" should be added to the new file/folder name \n"
++ "(e.g.: \"Paris, BnF, lat. 16480, fol. \")\n"
++ " 	- the folio number from which the automatic numbering should start, \n"
++ " 	- on how many digits this folio number should be represented (for instance, if your first \n"
++ "folio number is 99, starting on a recto, and you choose in the combo menu to represent the folio\n"
++ "number on 4 digits, the \n"
++ "first file of the list will be renamed as \"0099r\"\n"
++ " 	- whether the first file to be renamed corresponds to a recto or a verso\n"
++ " 	- you can choose the style or suffix you want to apply for recto or verso (by default, \n"
++ "\"r\" and \"v\" respectively). If you wish to add a character or string of characters between \n"
++ "the folio number and its recto or verso suffix, use the text box preceding each combo menu\n "
++ "(for instance, you may choose to insert a blank space between the fol. number and the \n"
++ "recto / verso suffix).\n"
++ " 	- Finally, you can add a general suffix, that will follow the recto / verso suffix. \n"
++ "The application can run in test mode, showing you how the rules would be applied \n"
++ "to your files / folders.\n\n\n"
++ "DISCLAIMER\n"
++ "This application is in beta-test mode, do not use it on important material without making \n"
++ "a copy of your files. \n"
++ "Generally, use at your own risk.\n\n"
++ "Project manager: Marjorie Burghart, CNRS - CIHAM UMR 5648 <marjorie.burghart@ehess.fr>\n"
++ "February 2016\n\n"
++ "This source code makes use of and modifies the code of the \"batchfilerenametool\" application \n"
++ "(https://code.google.com/p/batchfilerenametool/)\n"
++ " by CharCheng Mun and Cheong Wee Lau (August 2009)\n\n "
++ "licence GNU GPL (v3)";
+
+   JTextPane textPane = new JTextPane();
+   textPane.setText(initString);
+   
+       
+       JScrollPane scrollFrame = new JScrollPane(tabHelp);
+       tabHelp.setAutoscrolls(true);       
+       
+       tabHelp.add(textPane);
+      
+       
+       lblTab1 = new JLabel("Recto / verso in different files");
+       lblTab2 = new JLabel("Recto / verso in same files");
+   //    tab1.add(lblTab1);
+   //    tab2.add(lblTab2);
+       tabPnl.addTab("Separate files for r/v", tab1);
+       tabPnl.addTab("Single file for v/r", tab2);
+       tabPnl.addTab("Sides from a list", tab3);
+       tabPnl.addTab("Help",  scrollFrame);
+
+       tab1.setLayout( new GridLayout(9, 1));       
+       tab2.setLayout( new GridLayout(9, 1));       
+       
+       contentPane.add(tabPnl);
+       buildDescPanel();
+       buildChoicePanel();
+       buildDirPanel();
+       buildPrefixPanel();
+       buildRenamePanel();
+       buildFolioOptPanel();
+       buildSuffixPanel();
+       buildOptPanel();
+       buildCtrlPanel();
+       
+       buildDescPanel2();
+       buildChoicePanel2();
+       buildDirPanel2();
+       buildPrefixPanel2();
+       buildRenamePanel2();
+       buildFolioOptPanel2();
+       buildSuffixPanel2();
+       buildOptPanel2();
+       buildCtrlPanel2();
+       
+       buildListTab();
+       
+       /* the look and feel part of the GUI, 
+        * experimental
+        * from http://java.sun.com/docs/books/tutorial/uiswing/lookandfeel/plaf.html
+        *
+        * 
+        */      
+               
+      
+        
+               try {
+               // Set System L&F
+                       UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+               } 
+               catch (UnsupportedLookAndFeelException e) {
+                       System.out.println(e.getMessage());
+               }
+               catch (ClassNotFoundException e) {
+                       System.out.println(e.getMessage());
+               }
+               catch (InstantiationException e) {
+                       System.out.println(e.getMessage());
+               }
+               catch (IllegalAccessException e) {
+                       System.out.println(e.getMessage());
+               }
+       
+
+       
+   }//end buildGUI
+   
+   private void buildDescPanel(){
+       
+       pnlDescription = new JPanel();
+       pnlDescription.setLayout(new FlowLayout(FlowLayout.LEADING));
+       Border blackline = BorderFactory.createLineBorder(Color.BLACK);
+       pnlDescription.setBorder(BorderFactory.createTitledBorder(blackline, "Description"));
+       
+       //the Upper Description field --------------------
+       lblDesc = new JLabel(DESCRIPTION);
+       lblDesc.setMaximumSize(new Dimension(WIDTH-10, HEIGHT/10));       
+       pnlDescription.add(lblDesc);
+          
+       
+       tab1.add(pnlDescription);
+       
+       
+   }//end buildDescPanel
+   
+   private void buildDescPanel2(){
+       
+       pnlDescription2 = new JPanel();
+       pnlDescription2.setLayout(new FlowLayout(FlowLayout.LEADING));
+       Border blackline = BorderFactory.createLineBorder(Color.BLACK);
+       pnlDescription2.setBorder(BorderFactory.createTitledBorder(blackline, "Description"));
+       
+       //the Upper Description field --------------------
+       lblDesc2 = new JLabel(DESCRIPTION);
+       lblDesc2.setMaximumSize(new Dimension(WIDTH-10, HEIGHT/10));       
+       pnlDescription2.add(lblDesc2);
+          
+       
+       tab2.add(pnlDescription2);
+       
+       
+   }//end buildDescPanel
+   
+   
+   private void buildChoicePanel(){
+       
+       pnlChoice = new JPanel();
+       pnlChoice.setLayout(new FlowLayout());       
+       lblChoice = new JLabel("Apply rules only to: ");  
+       lblChoice.setMaximumSize(new Dimension(stdDim));       
+       pnlChoice.add(lblChoice);
+          
+       ButtonGroup bg1 = new ButtonGroup();
+       choiceFiles = new JRadioButton("files", true);
+       choiceFolders = new JRadioButton("folders", false);
+
+       bg1.add(choiceFiles);
+       bg1.add(choiceFolders);
+       cbxIgnoreExtension = new JCheckBox("Check this box if the files have no extension");
+       
+       
+       pnlChoice.add(choiceFiles);
+       pnlChoice.add(choiceFolders);
+       pnlChoice.add(cbxIgnoreExtension);
+       
+       //the order in which the files receive their folio numbers
+       cboOrder = new JComboBox<SortOrder>(SortOrder.values());
+       pnlChoice.add(new JLabel("order: "));
+       pnlChoice.add(cboOrder);
+       
+       //the file system the names must suit, checked before anything is renamed
+       cboTarget = new JComboBox<FileSystemProfile>(FileSystemProfile.values());
+       cboTarget.setSelectedItem(FileSystemProfile.forPlatform());
+       cbxSanitize = new JCheckBox("fix refused characters");
+       cbxSanitize.setToolTipText("Replace the characters the target refuses with _ instead of stopping");
+       JPanel pnlTarget = new JPanel();
+       pnlTarget.setLayout(new FlowLayout());
+       pnlTarget.add(new JLabel("Target file system: "));
+       pnlTarget.add(cboTarget);
+       pnlTarget.add(cbxSanitize);
+       
+       tab1.add(pnlChoice);
+       tab1.add(pnlTarget);
+       
+   }//end buildChoicePanel
+   
+private void buildChoicePanel2(){
+       
+       pnlChoice2 = new JPanel();
+       pnlChoice2.setLayout(new FlowLayout());       
+       lblChoice2 = new JLabel("Apply rules only to: ");  
+       lblChoice2.setMaximumSize(new Dimension(stdDim));       
+       pnlChoice2.add(lblChoice2);
+       cbxIgnoreExtension2 = new JCheckBox("Check this box if the files have no extension");
+          
+       ButtonGroup bg2 = new ButtonGroup();
+       choiceFiles2 = new JRadioButton("files", true);
+       choiceFolders2 = new JRadioButton("folders", false);
+
+       bg2.add(choiceFiles2);
+       bg2.add(choiceFolders2);
+
+       
+   
+   
+       pnlChoice2.add(choiceFiles2);
+       pnlChoice2.add(choiceFolders2);
+       pnlChoice2.add(cbxIgnoreExtension2);
+       
+       //the order in which the files receive their folio numbers
+       cboOrder2 = new JComboBox<SortOrder>(SortOrder.values());
+       pnlChoice2.add(new JLabel("order: "));
+       pnlChoice2.add(cboOrder2);
+       
+       //the file system the names must suit, checked before anything is renamed
+       cboTarget2 = new JComboBox<FileSystemProfile>(FileSystemProfile.values());
+       cboTarget2.setSelectedItem(FileSystemProfile.forPlatform());
+       cbxSanitize2 = new JCheckBox("fix refused characters");
+       cbxSanitize2.setToolTipText("Replace the characters the target refuses with _ instead of stopping");
+       JPanel pnlTarget = new JPanel();
+       pnlTarget.setLayout(new FlowLayout());
+       pnlTarget.add(new JLabel("Target file system: "));
+       pnlTarget.add(cboTarget2);
+       pnlTarget.add(cbxSanitize2);
+       
+       tab2.add(pnlChoice2);
+       tab2.add(pnlTarget);
+       
+   }//end buildChoicePanel
+   
+   
+   
+   private void buildDirPanel(){
+       
+       pnlDirectory = new JPanel();
+       pnlDirectory.setLayout(new BoxLayout(pnlDirectory, BoxLayout.X_AXIS));
+       pnlDirectory.setPreferredSize(stdDim);
+       pnlDirectory.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       //choose the Directory ----------------------------
+       lblDirectory = new JLabel("Folder: ");
+       txtDirectory = new JTextField();
+       txtDirectory.setEditable(false);
+//       txtDirectory.setPreferredSize(stdDim);
+       txtDirectory.setMaximumSize(stdDim);
+       JButton btnSelectDirectory = new JButton("select");
+       
+       ActionListener selectAction = new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       if(chooseDirectory())
+                               txtDirectory.setText(directory.getPath()); //set the Path to the directory display
+               }
+       };
+   
+       btnSelectDirectory.addActionListener(selectAction); //close addActionListener
+       pnlDirectory.add(lblDirectory);
+       pnlDirectory.add(txtDirectory);
+       pnlDirectory.add(btnSelectDirectory);
+       
+       //optional: the folder the files are moved to, or given links in, under their new names
+       txtMoveTo = new JTextField();
+       txtMoveTo.setMaximumSize(stdDim);
+       txtMoveTo.setToolTipText(MOVE_TO_TIP);
+       JButton btnSelectMoveTo = new JButton("select");
+       btnSelectMoveTo.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       chooseMoveTo(txtMoveTo);
+               }
+       });
+       cboOutput = new JComboBox<OutputMode>(OutputMode.values());
+       cboOutput.setToolTipText(MOVE_TO_TIP);
+       cboOutput.setMaximumSize(cboOutput.getPreferredSize());
+       pnlDirectory.add(new JLabel("  optional: "));
+       pnlDirectory.add(cboOutput);
+       pnlDirectory.add(txtMoveTo);
+       pnlDirectory.add(btnSelectMoveTo);
+       
+       tab1.add(pnlDirectory);
+       
+   }
+   
+   
+private void buildDirPanel2(){
+       
+       pnlDirectory2 = new JPanel();
+       pnlDirectory2.setLayout(new BoxLayout(pnlDirectory2, BoxLayout.X_AXIS));
+       pnlDirectory2.setPreferredSize(stdDim);
+       pnlDirectory2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       //choose the Directory ----------------------------
+       lblDirectory2 = new JLabel("Folder: ");
+       txtDirectory2 = new JTextField();
+       txtDirectory2.setEditable(false);
+//       txtDirectory.setPreferredSize(stdDim);
+       txtDirectory2.setMaximumSize(stdDim);
+       
+       JButton btnSelectDirectory = new JButton("select");
+       
+       ActionListener selectAction = new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       if(chooseDirectory2())
+                               txtDirectory2.setText(directory.getPath()); //set the Path to the directory display
+               }
+       };
+   
+       btnSelectDirectory.addActionListener(selectAction); //close addActionListener
+       pnlDirectory2.add(lblDirectory2);
+       pnlDirectory2.add(txtDirectory2);
+       pnlDirectory2.add(btnSelectDirectory);
+       
+       //optional: the folder the files are moved to, or given links in, under their new names
+       txtMoveTo2 = new JTextField();
+       txtMoveTo2.setMaximumSize(stdDim);
+       txtMoveTo2.setToolTipText(MOVE_TO_TIP);
+       JButton btnSelectMoveTo = new JButton("select");
+       btnSelectMoveTo.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       chooseMoveTo(txtMoveTo2);
+               }
+       });
+       cboOutput2 = new JComboBox<OutputMode>(OutputMode.values());
+       cboOutput2.setToolTipText(MOVE_TO_TIP);
+       cboOutput2.setMaximumSize(cboOutput2.getPreferredSize());
+       pnlDirectory2.add(new JLabel("  optional: "));
+       pnlDirectory2.add(cboOutput2);
+       pnlDirectory2.add(txtMoveTo2);
+       pnlDirectory2.add(btnSelectMoveTo);
+       
+       tab2.add(pnlDirectory2);
+       
+   }
+   
+   
+   private void buildPrefixPanel(){
+       
+       pnlPrefix = new JPanel();
+       pnlPrefix.setLayout(new BoxLayout(pnlPrefix, BoxLayout.X_AXIS));
+       pnlPrefix.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       // the Prefix -----------------------
+       
+       //lblPrefix = new JLabel("Prefix");
+       txtPrefix = new JTextField(40);
+       txtPrefix.setMaximumSize(stdDim);
+       txtPrefix.setEditable(false);
+       cbxPrefix = new JCheckBox("Prefix");
+       cbxPrefix.addActionListener(
+               new ActionListener(){
+                       public void actionPerformed(ActionEvent e){
+                               if(cbxPrefix.isSelected())
+                                       txtPrefix.setEditable(true);
+                               else{
+                                       txtPrefix.setEditable(false);
+                                       txtPrefix.setText("");
+                               }
+                                       
+                       }
+               }
+       ); //close addActionListener
+       
+       pnlPrefix.add(cbxPrefix);
+       pnlPrefix.add(txtPrefix);
+       
+       tab1.add(pnlPrefix);
+       
+   }//end buildPrefixPanel
+   
+  private void buildPrefixPanel2(){
+       
+       pnlPrefix2 = new JPanel();
+       pnlPrefix2.setLayout(new BoxLayout(pnlPrefix2, BoxLayout.X_AXIS));
+       pnlPrefix2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       // the Prefix -----------------------
+       
+       //lblPrefix = new JLabel("Prefix");
+       txtPrefix2 = new JTextField(40);
+       txtPrefix2.setMaximumSize(stdDim);
+       txtPrefix2.setEditable(false);
+       cbxPrefix2 = new JCheckBox("Prefix");
+       cbxPrefix2.addActionListener(
+               new ActionListener(){
+                       public void actionPerformed(ActionEvent e){
+                               if(cbxPrefix2.isSelected())
+                                       txtPrefix2.setEditable(true);
+                               else{
+                                       txtPrefix2.setEditable(false);
+                                       txtPrefix2.setText("");
+                               }
+                                       
+                       }
+               }
+       ); //close addActionListener
+       
+       pnlPrefix2.add(cbxPrefix2);
+       pnlPrefix2.add(txtPrefix2);
+       
+       tab2.add(pnlPrefix2);
+       
+   }//end buildPrefixPanel
+      
+   
+   private void buildRenamePanel(){
+       
+       pnlRename = new JPanel();
+       pnlRename.setLayout(new BoxLayout(pnlRename, BoxLayout.X_AXIS));
+       pnlRename.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       // the Rename -------------------------
+       txtRename = new JTextField();
+       txtRename.setMaximumSize(stdDim);
+       txtRename.setEditable(false);
+       cbxRename = new JCheckBox("Rename");
+       lblSequence = new JLabel("From folio: ");
+       lblLeadingZero = new JLabel(" number of digits: ");
+       lblStartWith = new JLabel("start with a ");
+       txtSequence = new JTextField(5);
+       txtSequence.setEditable(false);
+       
+       
+       Dimension seqDim = new Dimension(150,25);
+       txtSequence.setMaximumSize(seqDim);
+       txtSequence.setEditable(true);
+               
+       
+       
+       String[] sequenceValue = {"", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"};
+       cboSequence = new JComboBox<String>(sequenceValue);
+       cboSequence.setMaximumSize(new Dimension(50, 25));
+       cboSequence.setEnabled(true);
+
+       String[] startWithValue = {"recto", "verso"};
+       cboStartWith = new JComboBox<String>(startWithValue);
+       cboStartWith.setMaximumSize(new Dimension(80, 25));
+       cboStartWith.setEnabled(true);
+       
+       
+       pnlRename.add(lblSequence);
+       pnlRename.add(txtSequence);
+       pnlRename.add(lblLeadingZero);
+       pnlRename.add(cboSequence);
+       pnlRename.add(lblStartWith);
+       pnlRename.add(cboStartWith);
+       tab1.add(pnlRename);
+       
+       // or the foliation of a manuscript that is not one regular run
+       pnlFoliation = new JPanel();
+       pnlFoliation.setLayout(new BoxLayout(pnlFoliation, BoxLayout.X_AXIS));
+       pnlFoliation.setBorder(BorderFactory.createEmptyBorder(0,10,5,10));
+       lblNumbering = new JLabel("Numbering: ");
+       cboNumbering = new JComboBox<NumberingScheme>(NumberingScheme.choices());
+       cboNumbering.setMaximumSize(new Dimension(200, 25));
+       cboNumbering.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       // pages have no recto or verso
+                       boolean sides = ((NumberingScheme) cboNumbering.getSelectedItem()).hasSides();
+                       txtPreRecto.setEnabled(sides);
+                       cboFolioOptRecto.setEnabled(sides);
+                       txtPreVerso.setEnabled(sides);
+                       cboFolioOptVerso.setEnabled(sides);
+                       cboStartWith.setEnabled(sides);
+               }
+       });
+       lblFoliation = new JLabel(" or foliation: ");
+       txtFoliation = new JTextField();
+       txtFoliation.setMaximumSize(stdDim);
+       txtFoliation.setToolTipText(FOLIATION_TIP);
+       pnlFoliation.add(lblNumbering);
+       pnlFoliation.add(cboNumbering);
+       pnlFoliation.add(lblFoliation);
+       pnlFoliation.add(txtFoliation);
+       tab1.add(pnlFoliation);
+       
+   }//end buildRenamePanel
+   
+   private void buildRenamePanel2(){
+       
+       pnlRename2 = new JPanel();
+       pnlRename2.setLayout(new BoxLayout(pnlRename2, BoxLayout.X_AXIS));
+       pnlRename2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       // the Rename -------------------------
+       txtRename2 = new JTextField();
+       txtRename2.setMaximumSize(stdDim);
+       txtRename2.setEditable(false);
+       cbxRename2 = new JCheckBox("Rename");
+       lblSequence2 = new JLabel("From folio (number of first recto): ");
+       lblLeadingZero2 = new JLabel(" number of digits: ");
+//       lblStartWith2 = new JLabel("start with a ");
+       txtSequence2 = new JTextField(5);
+       txtSequence2.setEditable(false);
+       
+       
+       Dimension seqDim = new Dimension(150,25);
+       txtSequence2.setMaximumSize(seqDim);
+       txtSequence2.setEditable(true);
+               
+       String[] sequenceValue2 = {"", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"};
+       cboSequence2 = new JComboBox<String>(sequenceValue2);
+       cboSequence2.setMaximumSize(new Dimension(50, 25));
+       cboSequence2.setEnabled(true);
+/*
+       String[] startWithValue = {"recto", "verso"};
+       cboStartWith = new JComboBox<String>(startWithValue);
+       cboStartWith.setMaximumSize(new Dimension(80, 25));
+       cboStartWith.setEnabled(true);
+*/       
+       
+       pnlRename2.add(lblSequence2);
+       pnlRename2.add(txtSequence2);
+       pnlRename2.add(lblLeadingZero2);
+       pnlRename2.add(cboSequence2);
+//       pnlRename.add(lblStartWith);
+//       pnlRename.add(cboStartWith);
+       tab2.add(pnlRename2);
+       
+       // or the foliation of a manuscript that is not one regular run
+       pnlFoliation2 = new JPanel();
+       pnlFoliation2.setLayout(new BoxLayout(pnlFoliation2, BoxLayout.X_AXIS));
+       pnlFoliation2.setBorder(BorderFactory.createEmptyBorder(0,10,5,10));
+       lblNumbering2 = new JLabel("Numbering: ");
+       cboNumbering2 = new JComboBox<NumberingScheme>(NumberingScheme.choices());
+       cboNumbering2.setMaximumSize(new Dimension(200, 25));
+       cboNumbering2.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       // pages have no recto or verso
+                       boolean sides = ((NumberingScheme) cboNumbering2.getSelectedItem()).hasSides();
+                       txtPreRecto2.setEnabled(sides);
+                       cboFolioOptRecto2.setEnabled(sides);
+                       txtPreVerso2.setEnabled(sides);
+                       cboFolioOptVerso2.setEnabled(sides);
+               }
+       });
+       lblFoliation2 = new JLabel(" or foliation (paired two by two): ");
+       txtFoliation2 = new JTextField();
+       txtFoliation2.setMaximumSize(stdDim);
+       txtFoliation2.setToolTipText(FOLIATION_TIP);
+       pnlFoliation2.add(lblNumbering2);
+       pnlFoliation2.add(cboNumbering2);
+       pnlFoliation2.add(lblFoliation2);
+       pnlFoliation2.add(txtFoliation2);
+       tab2.add(pnlFoliation2);
+       
+   }//end buildRenamePanel
+   
+   
+
+   private void buildFolioOptPanel(){
+       
+       pnlFolioOpt = new JPanel();
+       pnlFolioOpt.setLayout(new BoxLayout(pnlFolioOpt, BoxLayout.X_AXIS));
+       pnlFolioOpt.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       
+       lblFolioOpt = new JLabel("Choose suffix style for recto and verso: ");
+       txtPreRecto = new JTextField(4);
+       txtPreRecto.setMaximumSize(stdDim);
+       txtPreVerso = new JTextField(4);
+       txtPreVerso.setMaximumSize(stdDim);
+       
+       String[] FolioOptRectoValue = {"r", "recto", "", "A"};
+       cboFolioOptRecto = new JComboBox<String>(FolioOptRectoValue);
+       cboFolioOptRecto.setMaximumSize(new Dimension(80, 25));
+       cboFolioOptRecto.setEnabled(true);
+
+       String[] FolioOptVersoValue = {"v", "verso", "B"};
+       cboFolioOptVerso = new JComboBox<String>(FolioOptVersoValue);
+       cboFolioOptVerso.setMaximumSize(new Dimension(80, 25));
+       cboFolioOptVerso.setEnabled(true);
+       
+       
+       
+       
+       
+       pnlFolioOpt.add(lblFolioOpt);
+       pnlFolioOpt.add(txtPreRecto);
+       pnlFolioOpt.add(cboFolioOptRecto);
+       pnlFolioOpt.add(txtPreVerso);
+       pnlFolioOpt.add(cboFolioOptVerso);
+       
+       tab1.add(pnlFolioOpt);
+       
+   }//end buildRenamePanel
+
+   private void buildFolioOptPanel2(){
+       
+       pnlFolioOpt2 = new JPanel();
+       pnlFolioOpt2.setLayout(new BoxLayout(pnlFolioOpt2, BoxLayout.X_AXIS));
+       pnlFolioOpt2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       
+       lblFolioOpt2 = new JLabel("Choose suffix style for recto and verso: ");
+       txtPreRecto2 = new JTextField(4);
+       txtPreRecto2.setMaximumSize(stdDim);
+       txtPreVerso2 = new JTextField(4);
+       txtPreVerso2.setMaximumSize(stdDim);
+       
+       String[] FolioOptRectoValue2 = {"r", "recto", "", "A"};
+       cboFolioOptRecto2 = new JComboBox<String>(FolioOptRectoValue2);
+       cboFolioOptRecto2.setMaximumSize(new Dimension(80, 25));
+       cboFolioOptRecto2.setEnabled(true);
+
+       String[] FolioOptVersoValue2 = {"v", "verso", "B"};
+       cboFolioOptVerso2 = new JComboBox<String>(FolioOptVersoValue2);
+       cboFolioOptVerso2.setMaximumSize(new Dimension(80, 25));
+       cboFolioOptVerso2.setEnabled(true);
+       
+       txtSeparator = new JTextField(4);
+       lblSeparator = new JLabel("separator: ");
+       txtSeparator.setText(" - ");
+       txtSeparator.setMaximumSize(new Dimension(80, 25));
+       
+       pnlFolioOpt2.add(lblFolioOpt2);
+       pnlFolioOpt2.add(txtPreRecto2);
+       pnlFolioOpt2.add(cboFolioOptRecto2);
+       pnlFolioOpt2.add(txtPreVerso2);
+       pnlFolioOpt2.add(cboFolioOptVerso2);
+       pnlFolioOpt2.add(lblSeparator);
+       pnlFolioOpt2.add(txtSeparator);
+       
+       tab2.add(pnlFolioOpt2);
+       
+   }//end buildRenamePanel
+
+   
+   
+  
+   private void buildSuffixPanel(){
+       
+       pnlSuffix = new JPanel();
+       pnlSuffix.setLayout(new BoxLayout(pnlSuffix, BoxLayout.X_AXIS));
+       pnlSuffix.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       // the Suffix -------------------------
+       txtSuffix = new JTextField(40);
+       txtSuffix.setMaximumSize(stdDim);
+       txtSuffix.setEditable(false);
+       cbxSuffix = new JCheckBox("Suffix");
+              
+       
+               
+       ActionListener cbxSuffixListener = new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                               if(cbxSuffix.isSelected())
+                                       txtSuffix.setEditable(true);
+                               else
+                               {
+                                       txtSuffix.setEditable(false);
+                                       txtSuffix.setText("");
+                               }       
+               }
+       };
+       
+       //check listener
+       cbxSuffix.addActionListener(cbxSuffixListener);
+       
+       pnlSuffix.add(cbxSuffix);
+       pnlSuffix.add(txtSuffix);
+//       pnlSuffix.add(cbxIgnoreExtension);
+       
+       
+       tab1.add(pnlSuffix);
+   }//end buildSuffixPanel
+   
+   private void buildSuffixPanel2(){
+       
+       pnlSuffix2 = new JPanel();
+       pnlSuffix2.setLayout(new BoxLayout(pnlSuffix2, BoxLayout.X_AXIS));
+       pnlSuffix2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       // the Suffix -------------------------
+       txtSuffix2 = new JTextField(40);
+       txtSuffix2.setMaximumSize(stdDim);
+       txtSuffix2.setEditable(false);
+       cbxSuffix2 = new JCheckBox("Suffix");
+       
+               
+       ActionListener cbxSuffixListener = new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                               if(cbxSuffix2.isSelected())
+                                       txtSuffix2.setEditable(true);
+                               else
+                               {
+                                       txtSuffix2.setEditable(false);
+                                       txtSuffix2.setText("");
+                               }       
+               }
+       };
+       
+       //check listener
+       cbxSuffix2.addActionListener(cbxSuffixListener);
+       
+       pnlSuffix2.add(cbxSuffix2);
+       pnlSuffix2.add(txtSuffix2);       
+//       pnlSuffix2.add(cbxIgnoreExtension2);
+
+       tab2.add(pnlSuffix2);
+   }//end buildSuffixPanel
+   
+  
+   //buildOptPanel
+   private void buildOptPanel(){
+       
+       pnlOption = new JPanel();
+       pnlOption.setLayout(new FlowLayout());
+       pnlOption.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       cbxExperiment = new JCheckBox("Test Mode");
+       cbxOutput = new JCheckBox("Output Window");
+       
+       //Test Mode opens the preview table: no need for the output window
+       cbxExperiment.setToolTipText("Show the new names in a preview table, without renaming");
+          
+       //on network shares, several renames in flight hide the round trips
+       String[] parallelValue = {"1", "2", "4", "8", "16", "32"};
+       cboParallel = new JComboBox<String>(parallelValue);
+       cboParallel.setMaximumSize(new Dimension(50, 25));
+       lblParallel = new JLabel("Parallel renames: ");
+       
+       cbxChecksums = new JCheckBox("Checksums");
+       cbxChecksums.setToolTipText("Write the SHA-256 of every file, under its new name, to "
+               + ContentHasher.MANIFEST + " in the folder");
+       
+       cbxBatch = new JCheckBox("Every manuscript sub-folder");
+       cbxBatch.setToolTipText("Rename the files of every folder under the chosen one; "
+               + "the prefix follows the folder name, or replaces {folder} by it");
+          
+       pnlOption.add(cbxExperiment);
+       pnlOption.add(cbxOutput);
+       pnlOption.add(lblParallel);
+       pnlOption.add(cboParallel);
+       pnlOption.add(cbxBatch);
+       pnlOption.add(cbxChecksums);
+       tab1.add(pnlOption);
+       
+   }//end buildOptPanel
+   
+   
+ //buildOptPanel
+   private void buildOptPanel2(){
+       
+       pnlOption2 = new JPanel();
+       pnlOption2.setLayout(new FlowLayout());
+       pnlOption2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       cbxExperiment2 = new JCheckBox("Test Mode");
+       cbxOutput2 = new JCheckBox("Output Window");
+       
+       //Test Mode opens the preview table: no need for the output window
+       cbxExperiment2.setToolTipText("Show the new names in a preview table, without renaming");
+          
+       //on network shares, several renames in flight hide the round trips
+       String[] parallelValue2 = {"1", "2", "4", "8", "16", "32"};
+       cboParallel2 = new JComboBox<String>(parallelValue2);
+       cboParallel2.setMaximumSize(new Dimension(50, 25));
+       lblParallel2 = new JLabel("Parallel renames: ");
+       
+       cbxChecksums2 = new JCheckBox("Checksums");
+       cbxChecksums2.setToolTipText("Write the SHA-256 of every file, under its new name, to "
+               + ContentHasher.MANIFEST + " in the folder");
+       
+       cbxBatch2 = new JCheckBox("Every manuscript sub-folder");
+       cbxBatch2.setToolTipText("Rename the files of every folder under the chosen one; "
+               + "the prefix follows the folder name, or replaces {folder} by it");
+          
+       pnlOption2.add(cbxExperiment2);
+       pnlOption2.add(cbxOutput2);
+       pnlOption2.add(lblParallel2);
+       pnlOption2.add(cboParallel2);
+       pnlOption2.add(cbxBatch2);
+       pnlOption2.add(cbxChecksums2);
+       tab2.add(pnlOption2);
+       
+   }//end buildOptPanel
+      
+   
+   private void buildCtrlPanel(){
+       
+       pnlCtrl = new JPanel();
+//       pnlCtrl.setLayout(new BoxLayout(pnlCtrl, BoxLayout.X_AXIS));
+       pnlCtrl.setLayout(new FlowLayout());
+       pnlCtrl.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       //setup the ctrl panel ---------------------
+       btnOk = new JButton("Ok");
+       btnOk.setEnabled(false);
+       btnOk.addActionListener(this);
+       
+       btnCancel = new JButton("Cancel");
+       btnCancel.addActionListener(this);
+       
+       btnAbout = new JButton("About");
+       btnAbout.addActionListener(this);
+       
+       btnUndo = new JButton("Undo last batch");
+       btnUndo.setToolTipText("Give the files of the last rename of the chosen folder their old names back");
+       btnUndo.setEnabled(false);
+       btnUndo.addActionListener(this);
+       
+       prgRename = new JProgressBar(0, 100);
+       prgRename.setStringPainted(true);
+       prgRename.setVisible(false);
+       
+       pnlCtrl.add(btnOk);
+       pnlCtrl.add(btnCancel);
+       pnlCtrl.add(btnAbout);
+       pnlCtrl.add(btnUndo);
+       pnlCtrl.add(prgRename);
+       
+       //the saved rules: loaded into the tab, or the rules of the tab saved
+       cboProfile = new JComboBox<String>(profiles.names().toArray(new String[0]));
+       JButton btnLoadProfile = new JButton("Load");
+       btnLoadProfile.setToolTipText("Set the rules of this tab to those of the profile");
+       btnLoadProfile.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       loadProfile(false);
+               }
+       });
+       JButton btnSaveProfile = new JButton("Save as...");
+       btnSaveProfile.setToolTipText("Keep the rules of this tab as a profile, for other manuscripts and the batch mapping file");
+       btnSaveProfile.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       saveProfile(false);
+               }
+       });
+       JPanel pnlProfile = new JPanel();
+       pnlProfile.setLayout(new FlowLayout());
+       pnlProfile.add(new JLabel("Rule profile: "));
+       pnlProfile.add(cboProfile);
+       pnlProfile.add(btnLoadProfile);
+       pnlProfile.add(btnSaveProfile);
+       
+       tab1.add(pnlProfile);
+       tab1.add(pnlCtrl);
+       
+   }//end buildCtrlPanel
+   
+
+   private void buildCtrlPanel2(){
+       
+       pnlCtrl2 = new JPanel();
+       pnlCtrl2.setLayout(new FlowLayout());
+       pnlCtrl2.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       
+       //setup the ctrl panel ---------------------
+       btnOk2 = new JButton("Ok");
+       btnOk2.setEnabled(false);
+       btnOk2.addActionListener(this);
+       
+       btnCancel2 = new JButton("Cancel");
+       btnCancel2.addActionListener(this);
+       
+       btnAbout2 = new JButton("About");
+       btnAbout2.addActionListener(this);
+       
+       btnUndo2 = new JButton("Undo last batch");
+       btnUndo2.setToolTipText("Give the files of the last rename of the chosen folder their old names back");
+       btnUndo2.setEnabled(false);
+       btnUndo2.addActionListener(this);
+       
+       prgRename2 = new JProgressBar(0, 100);
+       prgRename2.setStringPainted(true);
+       prgRename2.setVisible(false);
+       
+       pnlCtrl2.add(btnOk2);
+       pnlCtrl2.add(btnCancel2);
+       pnlCtrl2.add(btnAbout2);
+       pnlCtrl2.add(btnUndo2);
+       pnlCtrl2.add(prgRename2);
+       
+       //the saved rules: loaded into the tab, or the rules of the tab saved
+       cboProfile2 = new JComboBox<String>(profiles.names().toArray(new String[0]));
+       JButton btnLoadProfile2 = new JButton("Load");
+       btnLoadProfile2.setToolTipText("Set the rules of this tab to those of the profile");
+       btnLoadProfile2.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       loadProfile(true);
+               }
+       });
+       JButton btnSaveProfile2 = new JButton("Save as...");
+       btnSaveProfile2.setToolTipText("Keep the rules of this tab as a profile, for other manuscripts and the batch mapping file");
+       btnSaveProfile2.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       saveProfile(true);
+               }
+       });
+       JPanel pnlProfile2 = new JPanel();
+       pnlProfile2.setLayout(new FlowLayout());
+       pnlProfile2.add(new JLabel("Rule profile: "));
+       pnlProfile2.add(cboProfile2);
+       pnlProfile2.add(btnLoadProfile2);
+       pnlProfile2.add(btnSaveProfile2);
+       
+       tab2.add(pnlProfile2);
+       tab2.add(pnlCtrl2);
+       
+   }//end buildCtrlPanel
+   
+   
+   
+   /* The third tab: a folder, the list giving the side of each of its files, and the
+    * few rules that still apply (prefix, suffix, digits, numbering, order of the positions).
+    */
+   private void buildListTab(){
+       
+       tab3.setLayout(new BoxLayout(tab3, BoxLayout.Y_AXIS));
+       
+       JLabel lblDesc3 = new JLabel("<html>Give each file the side a list says it shows, e.g. the spreadsheet of a "
+               + "cataloguer saved as CSV or TSV: one line per file, its name or its position (from 1) in the order "
+               + "chosen below, then its side (12r, 45bis v, cover; for a spread 45v-46r). The files the list does "
+               + "not name keep their names.</html>");
+       lblDesc3.setMaximumSize(new Dimension(WIDTH-10, HEIGHT/6));
+       JPanel pnlDesc3 = new JPanel(new BorderLayout());
+       pnlDesc3.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       pnlDesc3.add(lblDesc3, BorderLayout.CENTER);
+       tab3.add(pnlDesc3);
+       
+       //the folder, and the list of its files
+       txtDirectory3 = new JTextField();
+       txtDirectory3.setMaximumSize(stdDim);
+       JButton btnSelectDirectory3 = new JButton("select");
+       btnSelectDirectory3.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       chooseMoveTo(txtDirectory3);
+               }
+       });
+       tab3.add(row(new JLabel("Folder: "), txtDirectory3, btnSelectDirectory3));
+       
+       txtList3 = new JTextField();
+       txtList3.setMaximumSize(stdDim);
+       JButton btnSelectList3 = new JButton("select");
+       btnSelectList3.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       JFileChooser fc = new JFileChooser();
+                       fc.setFileFilter(new FileNameExtensionFilter("CSV or TSV list", "csv", "tsv", "txt", "tab"));
+                       if(fc.showOpenDialog(Rename.this) == JFileChooser.APPROVE_OPTION)
+                               txtList3.setText(fc.getSelectedFile().getPath());
+               }
+       });
+       tab3.add(row(new JLabel("List: "), txtList3, btnSelectList3));
+       
+       //the rules that still apply
+       txtPrefix3 = new JTextField();
+       txtPrefix3.setMaximumSize(stdDim);
+       txtSuffix3 = new JTextField();
+       txtSuffix3.setMaximumSize(stdDim);
+       tab3.add(row(new JLabel("Prefix: "), txtPrefix3, new JLabel("  suffix: "), txtSuffix3));
+       
+       cboNumbering3 = new JComboBox<NumberingScheme>(NumberingScheme.choices());
+       cboNumbering3.setMaximumSize(new Dimension(200, 25));
+       cboSequence3 = new JComboBox<String>(new String[]{"", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"});
+       cboSequence3.setMaximumSize(new Dimension(50, 25));
+       cbxSpread3 = new JCheckBox("one file per spread (v/r)");
+       tab3.add(row(new JLabel("Numbering: "), cboNumbering3, new JLabel("  number of digits: "), cboSequence3, cbxSpread3));
+       
+       cboOrder3 = new JComboBox<SortOrder>(SortOrder.values());
+       cboOrder3.setToolTipText("The order the positions of the list count the files in");
+       cboOrder3.setMaximumSize(cboOrder3.getPreferredSize());
+       tab3.add(row(new JLabel("Positions in the order: "), cboOrder3));
+       
+       cboTarget3 = new JComboBox<FileSystemProfile>(FileSystemProfile.values());
+       cboTarget3.setSelectedItem(FileSystemProfile.forPlatform());
+       cboTarget3.setMaximumSize(cboTarget3.getPreferredSize());
+       cbxSanitize3 = new JCheckBox("fix refused characters");
+       cbxSanitize3.setToolTipText("Replace the characters the target refuses with _ instead of stopping");
+       tab3.add(row(new JLabel("Target file system: "), cboTarget3, cbxSanitize3));
+       
+       //optional: the folder the files are moved to, or given links in, as in the other tabs
+       txtMoveTo3 = new JTextField();
+       txtMoveTo3.setMaximumSize(stdDim);
+       txtMoveTo3.setToolTipText(MOVE_TO_TIP);
+       JButton btnSelectMoveTo3 = new JButton("select");
+       btnSelectMoveTo3.addActionListener(new ActionListener(){
+               public void actionPerformed(ActionEvent e){
+                       chooseMoveTo(txtMoveTo3);
+               }
+       });
+       cboOutput3 = new JComboBox<OutputMode>(OutputMode.values());
+       cboOutput3.setToolTipText(MOVE_TO_TIP);
+       cboOutput3.setMaximumSize(cboOutput3.getPreferredSize());
+       tab3.add(row(new JLabel("Optional: "), cboOutput3, txtMoveTo3, btnSelectMoveTo3));
+       
+       cbxExperiment3 = new JCheckBox("Test mode");
+       cbxExperiment3.setSelected(true);
+       cbxOutput3 = new JCheckBox("Output window");
+       cboParallel3 = new JComboBox<String>(new String[]{"1", "2", "4", "8", "16", "32"});
+       cboParallel3.setMaximumSize(new Dimension(50, 25));
+       cbxChecksums3 = new JCheckBox("Checksums");
+       cbxChecksums3.setToolTipText("Write the SHA-256 of every file, under its new name, to "
+               + ContentHasher.MANIFEST + " in the folder");
+       tab3.add(row(cbxExperiment3, cbxOutput3, new JLabel("  parallel renames: "), cboParallel3, cbxChecksums3));
+       
+       btnOk3 = new JButton("Ok");
+       btnOk3.addActionListener(this);
+       btnCancel3 = new JButton("Cancel");
+       btnCancel3.addActionListener(this);
+       prgRename3 = new JProgressBar(0, 100);
+       prgRename3.setStringPainted(true);
+       prgRename3.setVisible(false);
+       JPanel pnlCtrl3 = new JPanel(new FlowLayout());
+       pnlCtrl3.add(btnOk3);
+       pnlCtrl3.add(btnCancel3);
+       pnlCtrl3.add(prgRename3);
+       tab3.add(pnlCtrl3);
+       
+   }//end buildListTab
+   
+   
+   //one row of the third tab
+   private JPanel row(JComponent... components){
+       
+       JPanel panel = new JPanel();
+       panel.setLayout(new BoxLayout(panel, BoxLayout.X_AXIS));
+       panel.setBorder(BorderFactory.createEmptyBorder(5,10,5,10));
+       for(JComponent component : components)
+               panel.add(component);
+       return panel;
+   }
+   
+   
+   
+   //the getFileExtension seems useful, so we left it open for public use.
+   public String getFileExtension(String filename){
+       return RenameJob.getFileExtension(filename);
+   }
+   
+   
+   //this will get the FileName without the extension
+   public String getFileName(String filename){
+       return RenameJob.getFileName(filename);
+   }
+       
+   
+   public void aboutMessage() {
+	   
+	   JOptionPane.showMessageDialog(null, "Folio Batch Renamer \n"
+	   		+ "A tool to batch-rename files or folders according to the fashion used for manuscript material (folio, recto, verso) \n"
+	   		+ "Licence: GNU GPL v3\n"
+	   		+ "Project manager: Marjorie Burghart \n"
+	   		+ "CIHAM UMR 5648 - 2015");   
+   }
+   
+   
+   public void actionPerformed(ActionEvent e){
+       JButton clickedButton = (JButton) e.getSource();
+       
+       //while a rename pass is running, Cancel stops it instead of clearing the form
+       if(worker != null && (clickedButton == btnCancel || clickedButton == btnCancel2 || clickedButton == btnCancel3)){
+               worker.requestStop();
+               return;
+       }
+              
+       //when we click the ok button... then
+       if(clickedButton == btnOk){
+               
+               String cboString = (String) cboSequence.getSelectedItem();
+               
+               /* we have to check if user have entered any value, is the chosen digit is NOT NONE.
+                * the ComboBox selection is NOT "None"
+                */
+               if(cboString.equals("None") == false && txtFoliation.getText().trim().equals("")){
+                       String temp = txtSequence.getText();
+                       
+                       // then it has to be have some value for the textfield
+                       if(temp.equals("") || temp == null){
+                               JOptionPane.showMessageDialog(null, "Please fill in the 'From folio' number field");
+                               txtSequence.grabFocus();
+                               //something to highlight the field in future?
+                               return;
+                       }
+               }
+               
+               if(checkFoliation(txtFoliation, cboNumbering) == false)
+                       return;
+               
+            //   JOptionPane.showMessageDialog(null, "rename invoked");
+                       renameFile();   
+                               
+       }
+       else if(clickedButton == btnUndo){
+               undoLast(cbxBatch.isSelected(), (String) cboParallel.getSelectedItem(), prgRename);
+       }
+       else if(clickedButton == btnCancel){
+               btnOk.setEnabled(false);
+               btnUndo.setEnabled(false);
+               txtDirectory.setText("");
+               directory = null;
+               cbxPrefix.setSelected(false);
+               cbxRename.setSelected(false);
+               cbxSuffix.setSelected(false);
+               txtPrefix.setEditable(false);
+               txtPrefix.setText("");
+               txtSuffix.setEditable(false);
+               txtSuffix.setText("");
+               txtRename.setEditable(false);
+               txtRename.setText("");
+               
+               cbxIgnoreExtension.setSelected(false);
+//               txtSequence.setEditable(false);
+               txtSequence.setText("");
+               txtFoliation.setText("");
+               txtMoveTo.setText("");
+               cboOutput.setSelectedItem(OutputMode.MOVE);
+               cboNumbering.setSelectedIndex(0);
+               cboSequence.setSelectedIndex(0);
+               
+       }
+       else if(clickedButton == btnAbout){
+    	   aboutMessage();
+       }
+       
+       
+     //when we click the ok button in tab2... then
+       if(clickedButton == btnOk2){
+               
+               String cboString = (String) cboSequence2.getSelectedItem();
+               
+               /* we have to check if user have entered any value, is the chosen digit is NOT NONE.
+                * the ComboBox selection is NOT "None"
+                */
+               if(cboString.equals("None") == false && txtFoliation2.getText().trim().equals("")){
+                       String temp = txtSequence2.getText();
+                       
+                       // then it has to be have some value for the textfield
+                       if(temp.equals("") || temp == null){
+                               JOptionPane.showMessageDialog(null, "Please fill in the 'From folio' number field");
+                               txtSequence2.grabFocus();
+                               //something to highlight the field in future?
+                               return;
+                       }
+               }
+               
+               if(checkFoliation(txtFoliation2, cboNumbering2) == false)
+                       return;
+               
+            //   JOptionPane.showMessageDialog(null, "rename invoked");
+                       renameFileSingle();   
+                               
+       }
+       else if(clickedButton == btnUndo2){
+               undoLast(cbxBatch2.isSelected(), (String) cboParallel2.getSelectedItem(), prgRename2);
+       }
+       else if(clickedButton == btnCancel2){
+               btnOk2.setEnabled(false);
+               btnUndo2.setEnabled(false);
+               txtDirectory2.setText("");
+               directory = null;
+               cbxPrefix2.setSelected(false);
+               cbxRename2.setSelected(false);
+               cbxSuffix2.setSelected(false);
+               txtPrefix2.setEditable(false);
+               txtPrefix2.setText("");
+               txtSuffix2.setEditable(false);
+               txtSuffix2.setText("");
+               txtRename2.setEditable(false);
+               txtRename2.setText("");
+               
+               cbxIgnoreExtension2.setSelected(false);
+ //              txtSequence2.setEditable(false);
+               txtSequence2.setText("");
+               txtFoliation2.setText("");
+               txtMoveTo2.setText("");
+               cboOutput2.setSelectedItem(OutputMode.MOVE);
+               cboNumbering2.setSelectedIndex(0);
+               txtSeparator.setText(" - ");
+               cboSequence2.setSelectedIndex(0);
+               
+       }
+       else if(clickedButton == btnAbout2){
+    	   aboutMessage();
+       }
+       
+       
+       //the tab of the sides from a list
+       if(clickedButton == btnOk3){
+               renameFromList();
+       }
+       else if(clickedButton == btnCancel3){
+               txtDirectory3.setText("");
+               txtList3.setText("");
+               txtPrefix3.setText("");
+               txtSuffix3.setText("");
+               cbxSpread3.setSelected(false);
+               cboNumbering3.setSelectedIndex(0);
+               cboSequence3.setSelectedIndex(0);
+       }
+       
+       
+   }
+   
+   
+   /* The rows of the output window: the lines held by outputLog.
+    * refresh() is called by the timer of the output window, on the EDT, and turns
+    * everything logged since the previous call into a single change event.
+    */
+   class LogListModel extends AbstractListModel<String>{
+               private static final long serialVersionUID = 1L;
+               private int size = 0;
+               private long total = 0;
+               
+               public int getSize(){
+                       return size;
+               }
+               
+               public String getElementAt(int index){
+                       return outputLog.get(index).replace("\t", "    ");
+               }
+               
+               void refresh(){
+                       long newTotal = outputLog.total();
+                       if(newTotal == total)
+                               return;
+                       
+                       int oldSize = size;
+                       int newSize = outputLog.size();
+                       boolean shifted = newTotal - total > newSize - oldSize;  //the ring dropped its oldest lines
+                       total = newTotal;
+                       size = newSize;
+                       
+                       if(newSize > oldSize)
+                               fireIntervalAdded(this, oldSize, newSize - 1);
+                       if(shifted && oldSize > 0)
+                               fireContentsChanged(this, 0, oldSize - 1);
+                       if(newSize > 0)
+                               lstOutput.ensureIndexIsVisible(newSize - 1);
+               }
+               
+       }//end of nested class LogListModel
+   
+   
+   /* Runs one RenameJob off the event dispatch thread.
+    * Output lines go to the bounded outputLog, which the output window reads at its own
+    * pace, and to the console when the echo is on. The progress bar follows the position
+    * in the file list, and the Cancel button asks the job to stop between two files.
+    */
+   class RenameWorker extends SwingWorker<Boolean, Void> implements RenameJob.Listener{
+               private final RenameJob job;
+               private final JProgressBar progressBar;
+               private volatile boolean stopRequested = false;
+               
+               //constructor
+               RenameWorker(RenameJob job, final JProgressBar progressBar){
+                       super();
+                       this.job = job;
+                       this.progressBar = progressBar;
+                       
+                       btnOk.setEnabled(false);
+                       btnOk2.setEnabled(false);
+                       btnOk3.setEnabled(false);
+                       btnUndo.setEnabled(false);
+                       btnUndo2.setEnabled(false);
+                       progressBar.setValue(0);
+                       progressBar.setVisible(true);
+                       
+                       addPropertyChangeListener(new PropertyChangeListener(){
+                               public void propertyChange(PropertyChangeEvent evt){
+                                       if("progress".equals(evt.getPropertyName()))
+                                               progressBar.setValue((Integer) evt.getNewValue());
+                               }
+                       });
+               }
+               
+               protected Boolean doInBackground() throws IOException{
+                       return job.run(this);
+               }
+               
+               void requestStop(){
+                       stopRequested = true;
+               }
+               
+               public boolean isStopRequested(){
+                       return stopRequested;
+               }
+               
+               //echo a line to the console, and keep it for the output window
+               public void log(String line){
+                       if(CONSOLE_ON)
+                               System.out.println(line);
+                       outputLog.add(line);
+               }
+               
+               public void progress(int done, int total){
+                       setProgress(total == 0 ? 100 : (int) (done * 100L / total));
+               }
+               
+               //back to idle, on the EDT
+               protected void finished(){
+                       worker = null;
+                       outputLog.flushSpill();
+                       progressBar.setVisible(false);
+                       btnOk.setEnabled(directory != null);
+                       btnOk2.setEnabled(directory != null);
+                       btnOk3.setEnabled(true);
+                       btnUndo.setEnabled(directory != null);
+                       btnUndo2.setEnabled(directory != null);
+               }
+               
+               protected void done(){
+                       finished();
+                       
+                       boolean overallResult;
+                       int failCount = job.getFailCount();
+                       try {
+                               overallResult = get();
+                       }
+                       catch (InterruptedException e) {
+                               return;
+                       }
+                       catch (ExecutionException e) {
+                               JOptionPane.showMessageDialog(null, "Renaming stopped: " + e.getCause().getMessage());
+                               return;
+                       }
+                       
+                       int renamed = job.getMetrics() == null ? 0 : job.getMetrics().getRenamed();
+                       if(job.wasCancelled() && renamed == 0){
+                               System.out.println("Cancelled, no file renamed");
+                               JOptionPane.showMessageDialog(null, "Renaming cancelled: no file was renamed");
+                       }
+                       else if(job.wasCancelled() && job.getTargetDirectory() != null && job.getOutput().isView()){
+                               System.out.println("Stopped, " + job.getLeftCount() + " file(s) left");
+                               JOptionPane.showMessageDialog(null, "View stopped: " + renamed + " file(s) linked, "
+                                       + job.getLeftCount() + " without a link; build the view again to complete it");
+                       }
+                       else if(job.wasCancelled()){
+                               System.out.println("Stopped, " + job.getLeftCount() + " file(s) left");
+                               JOptionPane.showMessageDialog(null, "Renaming stopped: " + renamed + " file(s) renamed, "
+                                       + job.getLeftCount() + " left as they were" + (failCount > 0 ? ", " + failCount + " failure(s)" : ""));
+                       }
+                       else if(job.isUndo()){
+                               System.out.println("Overall Result: "+overallResult);
+                               if(job.getFileCount() == 0)
+                                       JOptionPane.showMessageDialog(null, "Nothing to undo in this folder");
+                               else if(overallResult)
+                                       JOptionPane.showMessageDialog(null, "Last batch undone: every file has its old name back");
+                               else
+                                       JOptionPane.showMessageDialog(null, "Last batch undone with "+ failCount+ " file(s) left alone or failed, see the output");
+                       }
+                       else if(job.isExperiment() == false){
+                               System.out.println("Overall Result: "+overallResult);
+                               if(overallResult)
+                                       JOptionPane.showMessageDialog(null, "All files renamed successfully!");
+                               else
+                                       JOptionPane.showMessageDialog(null, "File renamed with "+ failCount+ " failure(s)");
+                       }//end if
+               }
+               
+       }//end of nested class RenameWorker
+   
+   
+   /* Runs a BatchRename: the rules of the tab applied to every manuscript folder under
+    * the chosen folder. The output window gets a line per folder and the totals.
+    */
+   class BatchWorker extends RenameWorker{
+               private final BatchRename batch;
+               private final boolean undo;
+               private List<BatchRename.FolderResult> results;
+               
+               //constructor
+               BatchWorker(RenameJob rules, BatchRename batch, JProgressBar progressBar){
+                       super(rules, progressBar);
+                       this.batch = batch;
+                       this.undo = rules.isUndo();
+               }
+               
+               protected Boolean doInBackground() throws IOException{
+                       results = batch.run(this);
+                       for(BatchRename.FolderResult result : results){
+                               if(result.isSuccess() == false)
+                                       return false;
+                       }
+                       return true;
+               }
+               
+               protected void done(){
+                       finished();
+                       try {
+                               boolean overallResult = get();
+                               String report = BatchRename.report(results);
+                               String totals = report.substring(report.lastIndexOf("Total:"));
+                               System.out.println("Overall Result: "+overallResult);
+                               JOptionPane.showMessageDialog(null, (overallResult ? (undo ? "Last batch undone in every manuscript folder!\n" : "All manuscript folders renamed successfully!\n") : "") + totals);
+                       }
+                       catch (InterruptedException e) {
+                       }
+                       catch (ExecutionException e) {
+                               JOptionPane.showMessageDialog(null, "Batch stopped: " + e.getCause().getMessage());
+                       }
+               }
+               
+       }//end of nested class BatchWorker
+   
+   
+   /* for nested class */
+   //special nested class for TextField Limit
+       class JTextFieldLimit extends PlainDocument{
+               private int limit;
+               private boolean toUpperCase = false;
+               
+               //constructor
+               JTextFieldLimit(int limit){
+                       super();
+                       this.limit = limit;
+               }
+               
+               JTextFieldLimit(int limit, boolean upperCase){
+                       super();
+                       this.limit = limit;
+                       toUpperCase = upperCase;
+               }
+               
+               public void insertString(int offset, String str, AttributeSet attr) throws BadLocationException{
+                       if(str == null)
+                               return;
+                       if((getLength() + str.length())<= limit){
+                               if(toUpperCase) str = str.toUpperCase();
+                               super.insertString(offset, str, attr);
+                                       
+                       }
+               }
+               
+       }//end of nested class
+}
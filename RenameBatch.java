@@ -0,0 +1,55 @@
+/* Folio Batch Renamer
+ *
+ * RenameBatch is what a rename pass expects of the object that carries out its renames:
+ * a RenameTransaction renames the files inside their folder, a MoveTransaction moves
+ * them to another folder, possibly on another volume, under their new names, and a
+ * ViewTransaction gives them links bearing the new names in another folder.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.IOException;
+
+public interface RenameBatch {
+
+       //told of each file as soon as it has its new name, on the thread that moved it
+       interface RenamedListener {
+               void renamed(int i);
+       }
+
+       //queues one rename; returns true when it was queued
+       boolean add(String oldName, String newName);
+
+       //number of renames run side by side
+       void setParallelism(int parallelism);
+
+       void setRenamedListener(RenamedListener renamedListener);
+
+       //receives the latency of every move
+       void setMetrics(RunMetrics metrics);
+
+       int size();
+
+       String getOldName(int i);
+
+       String getNewName(int i);
+
+       //true when execute() gave the i-th queued file its new name
+       boolean isRenamed(int i);
+
+       int getFailCount();
+
+       //true when execute() was stopped and no file kept its new name
+       boolean isRolledBack();
+
+       //true when execute() was stopped before every file had its new name
+       boolean isStopped();
+
+       //carries out the renames; returns true when every one succeeded and none was left by a stop
+       boolean execute(RenameJob.Listener listener) throws IOException;
+
+}
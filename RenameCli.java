@@ -0,0 +1,431 @@
+/* Folio Batch Renamer
+ *
+ * RenameCli is the command-line entry point of the renamer, for scripted use on headless
+ * machines. It takes the same rules as the two tabs of the GUI and runs a RenameJob
+ * directly: it never touches Swing or AWT, so no display is needed and the start-up cost
+ * is only that of the JVM.
+ *
+ *   java -cp <classes> folioFileRename.RenameCli [options] <folder>
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+public class RenameCli {
+
+       private static final String USAGE = "Usage: RenameCli [options] <folder>\n"
+               + "  --start <n>           folio number from which the numbering starts (required unless --undo,\n"
+               + "                        --foliation, --profile or --names-from)\n"
+               + "  --foliation <text>    the sides to name, in order, instead of one run from --start, e.g.\n"
+               + "                        \"cover, 1r-45v, 45bis r-v, 46r-...\": sides (12r), folios (12), ranges\n"
+               + "                        (1r-45v), marked folios (45bis r), labels (cover), an open last range;\n"
+               + "                        \"roman: i-xii, page: 1-318\" changes the numbering from that item on\n"
+               + "  --names-from <file>   take the side of each file from a CSV or TSV list, one line per file:\n"
+               + "                        its name or its position (from 1) in the --sort order, then its side\n"
+               + "                        (12r, 45bis v, cover; for a spread 45v-46r); files not listed stay\n"
+               + "  --numbering <scheme>  folio (default: 1r, 1v...), page (1, 2...), roman (i, ii...), or\n"
+               + "                        signature (A1r... A8v, B1r...; signature4 for quires of 4 leaves)\n"
+               + "  --digits <n>          number of digits of the folio number (default: no padding)\n"
+               + "  --start-with <side>   recto or verso (default: recto)\n"
+               + "  --prefix <text>       text placed before the folio number\n"
+               + "  --suffix <text>       text placed after the recto / verso suffix\n"
+               + "  --pre-recto <text>    text between the folio number and the recto suffix\n"
+               + "  --pre-verso <text>    text between the folio number and the verso suffix\n"
+               + "  --recto <text>        recto suffix (default: r)\n"
+               + "  --verso <text>        verso suffix (default: v)\n"
+               + "  --spread              single file for v/r: each file holds a verso and the following recto\n"
+               + "  --separator <text>    separator between verso and recto in spread mode (default: \" - \")\n"
+               + "  --folders             rename the folders instead of the files\n"
+               + "  --ignore-extension    the files have no extension\n"
+               + "  --sort <order>        name (default), natural (IMG_2 before IMG_10), modified (oldest first)\n"
+               + "                        or captured (EXIF capture time, images without one last)\n"
+               + "  --target <profile>    file system the names must suit: portable, windows (also SMB shares),\n"
+               + "                        exfat, macos or linux (default: that of this computer); a name it\n"
+               + "                        refuses, or two names of the same file, stop the rename beforehand\n"
+               + "  --sanitize            replace the characters the target refuses with _ instead of stopping\n"
+               + "  --move-to <folder>    move the files to <folder> under their new names (with --batch, to a\n"
+               + "                        folder of the same name under it); on another volume each file is\n"
+               + "                        copied, checked, then deleted from the source folder; not added to\n"
+               + "                        the undo log\n"
+               + "  --link-to <folder>    leave the files as they are and publish hard links to them, under\n"
+               + "                        their new names, in <folder> (same volume); run again, only the links\n"
+               + "                        that changed are redone and those no longer named are removed\n"
+               + "  --symlink-to <folder> the same with symbolic links (any volume, folders too)\n"
+               + "  --profile <name>      take the rules of a saved profile; the options after it change them\n"
+               + "  --save-profile <name> save the rules given before it as a profile, then stop (no folder)\n"
+               + "  --profiles <file>     the file of the profiles (default: " + RuleProfiles.FILE + " in the home\n"
+               + "                        folder); to be given before --profile\n"
+               + "  --test                test mode: show the new names, do not rename\n"
+               + "  --parallel <n>        number of renames run side by side (default: 1)\n"
+               + "  --quiet               do not echo every file on the console\n"
+               + "  --checksums           write the SHA-256 of every file, under its new name, to\n"
+               + "                        .folio-rename.manifest-sha256.txt in <folder> (sha256sum -c format)\n"
+               + "  --watch               keep running: name each new file of <folder> once it is complete,\n"
+               + "                        after the files already named (stop with Ctrl-C); not with --test,\n"
+               + "                        --checksums, --parallel, --metrics, --batch or --mapping\n"
+               + "  --stable <ms>         watch: time a file must stay unchanged to be complete (default: 2000)\n"
+               + "  --metrics <file>      write the counts and timings of the pass to <file> as JSON\n"
+               + "                        (with --batch, an array with one object per folder)\n"
+               + "  --undo                give the files of the last rename of <folder> their old names back\n"
+               + "                        (of every manuscript folder with --batch); --start is not needed\n"
+               + "  --batch               rename every manuscript folder (any folder holding files) under <folder>;\n"
+               + "                        the prefix is the folder name followed by --prefix, or --prefix with\n"
+               + "                        {folder} replaced by the folder name\n"
+               + "  --mapping <file>      batch: take the prefixes from a file of folder<TAB>prefix lines; a line\n"
+               + "                        may add<TAB>start (12, 12v or a foliation) and<TAB>profile\n"
+               + "  --workers <n>         batch: number of folders renamed side by side (default: 1)\n";
+
+
+       public static void main(String[] args) {
+
+               RenameJob job = new RenameJob();
+               boolean quiet = false;
+               boolean batch = false;
+               String mapping = null;
+               String metricsFile = null;
+               boolean watch = false;
+               long stableMillis = 2000;
+               boolean parallel = false;       //options a watch cannot honour
+               boolean checksums = false;
+               int workers = 1;
+               boolean startGiven = false;
+               File profilesFile = RuleProfiles.defaultFile();
+               RuleProfiles profiles = null;
+               String saveProfile = null;
+               String folder = null;
+
+               try {
+                       for(int i = 0; i < args.length; i++){
+                               String arg = args[i];
+
+                               if(arg.equals("--start")){
+                                       job.setStartingNum(Integer.parseInt(value(args, ++i, arg)));
+                                       startGiven = true;
+                               }
+                               else if(arg.equals("--foliation")){
+                                       job.setFoliation(value(args, ++i, arg));
+                                       startGiven = true;
+                               }
+                               else if(arg.equals("--names-from")){
+                                       job.setManifest(new File(value(args, ++i, arg)));
+                                       startGiven = true;
+                               }
+                               else if(arg.equals("--numbering")){
+                                       NumberingScheme numbering = NumberingScheme.forName(value(args, ++i, arg));
+                                       if(numbering == null)
+                                               throw new IllegalArgumentException("--numbering must be folio, page, roman or signature[<leaves>]");
+                                       job.setNumbering(numbering);
+                               }
+                               else if(arg.equals("--digits")){
+                                       String digits = value(args, ++i, arg);
+                                       Integer.parseInt(digits);
+                                       job.setDigits(digits);
+                               }
+                               else if(arg.equals("--start-with")){
+                                       String side = value(args, ++i, arg);
+                                       if(side.equals("recto") == false && side.equals("verso") == false)
+                                               throw new IllegalArgumentException("--start-with must be recto or verso");
+                                       job.setStartWithVerso(side.equals("verso"));
+                               }
+                               else if(arg.equals("--prefix"))
+                                       job.setPrefix(value(args, ++i, arg));
+                               else if(arg.equals("--suffix"))
+                                       job.setSuffix(value(args, ++i, arg));
+                               else if(arg.equals("--pre-recto"))
+                                       job.setPreRecto(value(args, ++i, arg));
+                               else if(arg.equals("--pre-verso"))
+                                       job.setPreVerso(value(args, ++i, arg));
+                               else if(arg.equals("--recto"))
+                                       job.setFolioRecto(value(args, ++i, arg));
+                               else if(arg.equals("--verso"))
+                                       job.setFolioVerso(value(args, ++i, arg));
+                               else if(arg.equals("--separator"))
+                                       job.setSeparator(value(args, ++i, arg));
+                               else if(arg.equals("--spread"))
+                                       job.setSpread(true);
+                               else if(arg.equals("--folders"))
+                                       job.setFolders(true);
+                               else if(arg.equals("--ignore-extension"))
+                                       job.setIgnoreExtension(true);
+                               else if(arg.equals("--sort")){
+                                       String order = value(args, ++i, arg);
+                                       if(order.equals("name"))
+                                               job.setSortOrder(SortOrder.NAME);
+                                       else if(order.equals("natural"))
+                                               job.setSortOrder(SortOrder.NATURAL);
+                                       else if(order.equals("modified"))
+                                               job.setSortOrder(SortOrder.MODIFIED);
+                                       else if(order.equals("captured"))
+                                               job.setSortOrder(SortOrder.CAPTURED);
+                                       else
+                                               throw new IllegalArgumentException("--sort must be name, natural, modified or captured");
+                               }
+                               else if(arg.equals("--target")){
+                                       FileSystemProfile profile = FileSystemProfile.forName(value(args, ++i, arg));
+                                       if(profile == null)
+                                               throw new IllegalArgumentException("--target must be portable, windows, exfat, macos or linux");
+                                       job.setProfile(profile);
+                               }
+                               else if(arg.equals("--sanitize"))
+                                       job.setSanitize(true);
+                               else if(arg.equals("--move-to") || arg.equals("--link-to") || arg.equals("--symlink-to")){
+                                       if(job.getTargetDirectory() != null)
+                                               throw new IllegalArgumentException("Only one of --move-to, --link-to and --symlink-to can be given");
+                                       job.setTargetDirectory(new File(value(args, ++i, arg)));
+                                       job.setOutput(arg.equals("--move-to") ? OutputMode.MOVE
+                                                       : arg.equals("--link-to") ? OutputMode.HARD_LINKS : OutputMode.SYMBOLIC_LINKS);
+                               }
+                               else if(arg.equals("--profiles")){
+                                       if(profiles != null)
+                                               throw new IllegalArgumentException("--profiles must come before --profile");
+                                       profilesFile = new File(value(args, ++i, arg));
+                               }
+                               else if(arg.equals("--profile")){
+                                       if(profiles == null)
+                                               profiles = loadProfiles(profilesFile);
+                                       profiles.apply(value(args, ++i, arg), job);
+                                       startGiven = true;
+                               }
+                               else if(arg.equals("--save-profile"))
+                                       saveProfile = value(args, ++i, arg);
+                               else if(arg.equals("--test"))
+                                       job.setExperiment(true);
+                               else if(arg.equals("--parallel")){
+                                       int parallelism = Integer.parseInt(value(args, ++i, arg));
+                                       if(parallelism < 1)
+                                               throw new IllegalArgumentException("--parallel must be at least 1");
+                                       job.setParallelism(parallelism);
+                                       parallel = true;
+                               }
+                               else if(arg.equals("--batch"))
+                                       batch = true;
+                               else if(arg.equals("--mapping"))
+                                       mapping = value(args, ++i, arg);
+                               else if(arg.equals("--workers")){
+                                       workers = Integer.parseInt(value(args, ++i, arg));
+                                       if(workers < 1)
+                                               throw new IllegalArgumentException("--workers must be at least 1");
+                               }
+                               else if(arg.equals("--quiet"))
+                                       quiet = true;
+                               else if(arg.equals("--watch"))
+                                       watch = true;
+                               else if(arg.equals("--stable")){
+                                       stableMillis = Long.parseLong(value(args, ++i, arg));
+                                       if(stableMillis < 0)
+                                               throw new IllegalArgumentException("--stable cannot be negative");
+                               }
+                               else if(arg.equals("--metrics"))
+                                       metricsFile = value(args, ++i, arg);
+                               else if(arg.equals("--checksums")){
+                                       job.setChecksums(true);
+                                       checksums = true;
+                               }
+                               else if(arg.equals("--undo"))
+                                       job.setUndo(true);
+                               else if(arg.equals("--help") || arg.equals("-h")){
+                                       System.out.print(USAGE);
+                                       return;
+                               }
+                               else if(arg.startsWith("--") || folder != null)
+                                       throw new IllegalArgumentException("Unexpected argument: " + arg);
+                               else
+                                       folder = arg;
+                       }
+
+                       if(saveProfile != null){
+                               if(profiles == null)
+                                       profiles = loadProfiles(profilesFile);
+                               profiles.put(saveProfile, job);
+                               saveProfiles(profiles, profilesFile);
+                               System.out.println("Profile " + saveProfile + " saved to " + profilesFile);
+                               return;
+                       }
+                       if(folder == null || (startGiven == false && job.isUndo() == false))
+                               throw new IllegalArgumentException("A folder and --start are required");
+                       if(job.getFoliation().isEmpty() == false)
+                               FoliationSequence.parse(job.getFoliation(), job.getNumbering());
+                       if(job.getManifest() != null && (watch || batch || job.isUndo()))
+                               throw new IllegalArgumentException("--names-from cannot be used with --watch, --batch or --undo");
+                       if(job.getTargetDirectory() != null && (watch || job.isUndo()))
+                               throw new IllegalArgumentException("--move-to, --link-to and --symlink-to cannot be used with --watch or --undo");
+                       if(watch && (job.isExperiment() || checksums || parallel || metricsFile != null || batch || mapping != null))
+                               throw new IllegalArgumentException("--test, --checksums, --parallel, --metrics, --batch and --mapping cannot be used with --watch");
+                       if(mapping != null && batch == false)
+                               throw new IllegalArgumentException("--mapping can only be used with --batch");
+               }
+               catch (IllegalArgumentException e) {
+                       usageError(e.getMessage());
+               }
+
+               File directory = new File(folder);
+               if(directory.isDirectory() == false)
+                       usageError("Not a folder: " + folder);
+               job.setDirectory(directory);
+
+               final boolean echo = !quiet;
+               RenameJob.Listener console = new RenameJob.Listener(){
+                       public void log(String line){
+                               if(echo)
+                                       System.out.println(line);
+                       }
+                       public void progress(int done, int total){
+                       }
+                       public boolean isStopRequested(){
+                               return false;
+                       }
+               };
+
+               if(watch){
+                       runWatch(job, stableMillis, console);
+                       return;
+               }
+
+               if(batch){
+                       if(mapping != null && profiles == null)
+                               profiles = loadProfiles(profilesFile);
+                       runBatch(job, directory, mapping, profiles, workers, console, quiet, metricsFile);
+                       return;
+               }
+
+               boolean overallResult;
+               try {
+                       overallResult = job.run(console);
+               }
+               catch (IOException e) {
+                       System.err.println("Rename of " + folder + " stopped: " + e.getMessage());
+                       System.exit(1);
+                       return;
+               }
+               if(metricsFile != null)
+                       writeMetrics(metricsFile, job.getMetrics().toJson());
+
+               if(job.isExperiment() == false){
+                       System.out.println("Overall Result: "+overallResult);
+                       if(overallResult == false){
+                               System.err.println("File renamed with "+ job.getFailCount()+ " failure(s)");
+                               System.exit(1);
+                       }
+               }
+
+       }//end main
+
+
+       private static void runBatch(RenameJob rules, File root, String mapping, RuleProfiles profiles, int workers,
+                       RenameJob.Listener console, boolean quiet, String metricsFile){
+
+               List<BatchRename.FolderResult> results;
+               try {
+                       BatchRename batch = new BatchRename(rules, root);
+                       batch.setWorkers(workers);
+                       batch.setProfiles(profiles);
+                       if(mapping != null)
+                               batch.loadMapping(new File(mapping));
+                       results = batch.run(console);
+               }
+               catch (IllegalArgumentException e) {
+                       usageError(e.getMessage());
+                       return;
+               }
+               catch (IOException e) {
+                       System.err.println("Batch stopped: " + e.getMessage());
+                       System.exit(1);
+                       return;
+               }
+
+               if(quiet)
+                       System.out.print(BatchRename.report(results));
+               if(metricsFile != null){
+                       StringBuilder json = new StringBuilder("[");
+                       for(BatchRename.FolderResult result : results){
+                               if(result.metrics == null)
+                                       continue;
+                               if(json.length() > 1)
+                                       json.append(",\n");
+                               json.append(result.metrics.toJson());
+                       }
+                       writeMetrics(metricsFile, json.append(']').toString());
+               }
+               for(BatchRename.FolderResult result : results){
+                       if(result.isSuccess() == false)
+                               System.exit(1);
+               }
+       }
+
+
+       private static void runWatch(RenameJob rules, long stableMillis, RenameJob.Listener console){
+               try {
+                       WatchFolder watch = new WatchFolder(rules);
+                       watch.setStableMillis(stableMillis);
+                       watch.run(console);
+               }
+               catch (IllegalArgumentException e) {
+                       usageError(e.getMessage());
+               }
+               catch (IOException e) {
+                       System.err.println("Watch stopped: " + e.getMessage());
+                       System.exit(1);
+               }
+       }
+
+
+       //a file of profiles that cannot be read stops the command
+       private static RuleProfiles loadProfiles(File file){
+               RuleProfiles profiles = new RuleProfiles();
+               try {
+                       profiles.load(file);
+               }
+               catch (IOException e) {
+                       System.err.println("Cannot read the rule profiles: " + e.getMessage());
+                       System.exit(1);
+               }
+               return profiles;
+       }
+
+
+       private static void saveProfiles(RuleProfiles profiles, File file){
+               try {
+                       profiles.save(file);
+               }
+               catch (IOException e) {
+                       System.err.println("Cannot save the rule profiles to " + file + ": " + e.getMessage());
+                       System.exit(1);
+               }
+       }
+
+
+       //a failure to write the metrics does not change the result of the pass
+       private static void writeMetrics(String file, String json){
+               try {
+                       Files.write(Paths.get(file), (json + "\n").getBytes("UTF-8"));
+               }
+               catch (IOException e) {
+                       System.err.println("Cannot write the metrics to " + file + ": " + e.getMessage());
+               }
+       }
+
+
+       //the value following an option, e.g. the "5" of "--digits 5"
+       private static String value(String[] args, int i, String option){
+               if(i >= args.length)
+                       throw new IllegalArgumentException("Missing value after " + option);
+               return args[i];
+       }
+
+
+       private static void usageError(String message){
+               System.err.println(message);
+               System.err.print(USAGE);
+               System.exit(2);
+       }
+
+}
@@ -0,0 +1,572 @@
+/* Folio Batch Renamer
+ *
+ * RenameJob holds the rules of one rename pass (the same rules as the two tabs of the GUI)
+ * and performs the pass over a directory. It does not depend on Swing or AWT, so that it
+ * can be driven by the GUI (Rename) as well as from the command line (RenameCli).
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RenameJob {
+
+       /* Receives the lines and the progress of a running pass, and tells the pass
+        * whether it should stop before the next file. With a parallelism above 1 it is
+        * called from several threads at once.
+        */
+       public interface Listener {
+               void log(String line);
+               void progress(int done, int total);
+               boolean isStopRequested();
+       }
+
+       private File directory;
+       private String prefix = "";
+       private String suffix = "";
+       private String preRecto = "";
+       private String preVerso = "";
+       private String folioRecto = "r";
+       private String folioVerso = "v";
+       private String separator = " - ";
+       private String digits = "";
+       private int startingNum = 1;
+       private boolean startWithVerso = false;
+       private boolean spread = false;          //tab 2: one file holds the verso and the following recto
+       private boolean folders = false;         //rename the folders instead of the files
+       private boolean ignoreExtension = false;
+       private boolean experiment = false;      //test mode, nothing is renamed
+       private int parallelism = 1;             //renames run side by side
+       private SortOrder sortOrder = SortOrder.NAME;
+       private boolean undo = false;            //undo the last batch of the UndoLog instead
+       private boolean checksums = false;       //write the SHA-256 of every file, see ContentHasher
+       private String foliation = "";           //a FoliationSequence replacing the starting folio, or ""
+       private NumberingScheme numbering = NumberingScheme.FOLIO;
+       private FileSystemProfile profile = FileSystemProfile.forPlatform();   //the rules the new names must follow
+       private boolean sanitize = false;        //mend the new names the profile refuses instead of stopping
+       private File targetDirectory;            //move the files there under their new names, or null
+       private OutputMode output = OutputMode.MOVE;   //what is done in the target directory
+       private File manifest;                   //a NameManifest giving the side of each file, or null
+
+       private int failCount = 0;
+       private int fileCount = 0;
+       private int leftCount = 0;
+       private boolean cancelled = false;
+       private RunMetrics metrics;
+
+
+       public RenameJob(){
+       }
+
+
+       //a job with the same rules as other, and no result yet
+       public RenameJob(RenameJob other){
+               directory = other.directory;
+               prefix = other.prefix;
+               suffix = other.suffix;
+               preRecto = other.preRecto;
+               preVerso = other.preVerso;
+               folioRecto = other.folioRecto;
+               folioVerso = other.folioVerso;
+               separator = other.separator;
+               digits = other.digits;
+               startingNum = other.startingNum;
+               startWithVerso = other.startWithVerso;
+               spread = other.spread;
+               folders = other.folders;
+               ignoreExtension = other.ignoreExtension;
+               experiment = other.experiment;
+               parallelism = other.parallelism;
+               sortOrder = other.sortOrder;
+               undo = other.undo;
+               checksums = other.checksums;
+               foliation = other.foliation;
+               numbering = other.numbering;
+               profile = other.profile;
+               sanitize = other.sanitize;
+               targetDirectory = other.targetDirectory;
+               output = other.output;
+               manifest = other.manifest;
+       }
+
+
+       public void setDirectory(File directory){ this.directory = directory; }
+       public void setPrefix(String prefix){ this.prefix = prefix; }
+       public void setSuffix(String suffix){ this.suffix = suffix; }
+       public void setPreRecto(String preRecto){ this.preRecto = preRecto; }
+       public void setPreVerso(String preVerso){ this.preVerso = preVerso; }
+       public void setFolioRecto(String folioRecto){ this.folioRecto = folioRecto; }
+       public void setFolioVerso(String folioVerso){ this.folioVerso = folioVerso; }
+       public void setSeparator(String separator){ this.separator = separator; }
+       public void setDigits(String digits){ this.digits = digits; }
+       public void setStartingNum(int startingNum){ this.startingNum = startingNum; }
+       public void setStartWithVerso(boolean startWithVerso){ this.startWithVerso = startWithVerso; }
+       public void setSpread(boolean spread){ this.spread = spread; }
+       public void setFolders(boolean folders){ this.folders = folders; }
+       public void setIgnoreExtension(boolean ignoreExtension){ this.ignoreExtension = ignoreExtension; }
+       public void setExperiment(boolean experiment){ this.experiment = experiment; }
+       public void setParallelism(int parallelism){ this.parallelism = parallelism; }
+       public void setSortOrder(SortOrder sortOrder){ this.sortOrder = sortOrder; }
+       public void setUndo(boolean undo){ this.undo = undo; }
+       public void setChecksums(boolean checksums){ this.checksums = checksums; }
+       public void setFoliation(String foliation){ this.foliation = foliation.trim(); }
+       public void setNumbering(NumberingScheme numbering){ this.numbering = numbering; }
+       public void setProfile(FileSystemProfile profile){ this.profile = profile; }
+       public void setSanitize(boolean sanitize){ this.sanitize = sanitize; }
+       public void setTargetDirectory(File targetDirectory){ this.targetDirectory = targetDirectory; }
+       public void setOutput(OutputMode output){ this.output = output; }
+       public void setManifest(File manifest){ this.manifest = manifest; }
+
+       public File getDirectory(){ return directory; }
+       public String getPrefix(){ return prefix; }
+       public String getSuffix(){ return suffix; }
+       public String getPreRecto(){ return preRecto; }
+       public String getPreVerso(){ return preVerso; }
+       public String getFolioRecto(){ return folioRecto; }
+       public String getFolioVerso(){ return folioVerso; }
+       public String getSeparator(){ return separator; }
+       public String getDigits(){ return digits; }
+       public int getStartingNum(){ return startingNum; }
+       public boolean isStartWithVerso(){ return startWithVerso; }
+       public boolean isSpread(){ return spread; }
+       public boolean isIgnoreExtension(){ return ignoreExtension; }
+       public boolean isSanitize(){ return sanitize; }
+       public boolean isFolders(){ return folders; }
+       public boolean isExperiment(){ return experiment; }
+       public boolean isUndo(){ return undo; }
+       public SortOrder getSortOrder(){ return sortOrder; }
+       public String getFoliation(){ return foliation; }
+       public NumberingScheme getNumbering(){ return numbering; }
+       public FileSystemProfile getProfile(){ return profile; }
+       public File getTargetDirectory(){ return targetDirectory; }
+       public OutputMode getOutput(){ return output; }
+       public File getManifest(){ return manifest; }
+
+       //number of renames that failed during the last run()
+       public int getFailCount(){ return failCount; }
+
+       //number of files (or folders) the last run() found to rename
+       public int getFileCount(){ return fileCount; }
+
+       //true when the last run() was stopped by its listener before every file was renamed
+       public boolean wasCancelled(){ return cancelled; }
+
+       //number of files the last run() left untouched because it was stopped
+       public int getLeftCount(){ return leftCount; }
+
+       //counts and timings of the last run(), or null before the first one
+       public RunMetrics getMetrics(){ return metrics; }
+
+
+       /* The naming plan for the current rules; it is built once per pass, and the loop
+        * only asks it for the name of the i-th renamed file. An invalid foliation throws
+        * IllegalArgumentException.
+        */
+       public FolioNamingPlan getNamingPlan(){
+               int width = digits.equals("") ? 1 : Integer.parseInt(digits);
+               FoliationSequence sequence = foliation.isEmpty() ? null : FoliationSequence.parse(foliation, numbering);
+               return new FolioNamingPlan(prefix, suffix, preRecto + folioRecto, preVerso + folioVerso,
+                               separator, width, startingNum, startWithVerso, spread, numbering, sequence);
+       }
+
+
+       //fails when the foliation names fewer files than the folder holds
+       static void checkCapacity(FolioNamingPlan plan, int count) throws IOException{
+               if(count > plan.capacity())
+                       throw new IOException("The foliation names " + plan.capacity() + " file(s), the folder holds " + count);
+       }
+
+
+       /* The files (or folders) of the directory, listed with their type in one pass, in the
+        * order they receive their folio numbers. The names the new names must not take go
+        * to otherNames when it is not null: those of the other entries, or of the entries of
+        * the target directory when there is one (those a view did not make, for a view).
+        */
+       public List<DirectoryScan.Entry> listEntries(Collection<String> otherNames) throws IOException{
+               List<DirectoryScan.Entry> entries = DirectoryScan.scan(directory.toPath(), folders,
+                               targetDirectory == null ? otherNames : null);
+               if(targetDirectory != null && otherNames != null)
+                       otherNames.addAll(namesInTarget(targetDirectory.toPath()));
+               DirectoryScan.sort(directory.toPath(), entries, sortOrder);
+               if(manifest == null)
+                       checkCapacity(getNamingPlan(), entries.size());
+               return entries;
+       }
+
+
+       /* Goes through the list of files (or folders) of the directory, in the chosen order,
+        * and renames each according to the rules. The renames are done as one
+        * RenameTransaction, so that a new name still held by another file of the folder
+        * does not make the rename fail; the files already under their new name (run again
+        * after a correction, only the files after it change) are not moved, and the others
+        * are moved once each, in chains. A batch left unfinished by an earlier run is
+        * recovered first. The renames done are appended to the UndoLog of the directory.
+        * With setChecksums(true), every file is hashed by a ContentHasher as soon as it has
+        * its final name, and the manifest of the folder is written at the end.
+        * With setUndo(true), the last batch of the UndoLog is undone instead.
+        * Before anything is renamed, every new name is checked by a PreflightCheck against
+        * the file system profile: a name it refuses, or two names designating the same file,
+        * stop the pass (with setSanitize(true), the refused characters are replaced first).
+        * With a target directory, the files are moved there under their new names by a
+        * MoveTransaction instead, copied and verified when it is on another volume; the
+        * names are then checked against the entries of the target, the manifest is written
+        * there, and the moves are not added to the UndoLog. With an output mode of hard or
+        * symbolic links, the files keep their names and a ViewTransaction publishes links
+        * to them under the new names in the target directory instead.
+        * With a manifest, the new names are those a NameManifest gives the files it names,
+        * and the files it does not name are left alone.
+        * The counts and timings of the pass go to a RunMetrics, published when it ends.
+        * Returns true when every rename succeeded (always true in test mode), false when the
+        * pass was stopped before every file was renamed (see wasCancelled()).
+        */
+       public boolean run(Listener listener) throws IOException{
+
+               metrics = new RunMetrics(directory.getPath(), undo ? "undo" : experiment ? "test" : "rename");
+               try {
+                       return runPass(listener);
+               }
+               finally {
+                       metrics.setCancelled(cancelled);
+                       RunMetrics.publish(metrics);
+               }
+       }
+
+
+       private boolean runPass(Listener listener) throws IOException{
+
+               Path dir = directory.toPath();
+               Path target = targetDirectory == null ? null : targetDirectory.toPath();
+               failCount = 0;
+               fileCount = 0;
+               leftCount = 0;
+               cancelled = false;
+               if(target != null && target.toAbsolutePath().normalize().equals(dir.toAbsolutePath().normalize()))
+                       throw new IOException("The target folder is the folder renamed: " + target);
+
+               if(experiment == false && RenameTransaction.recover(dir, listener))
+                       listener.log("");
+               else if(experiment && Files.exists(dir.resolve(RenameTransaction.JOURNAL)))
+                       listener.log("An unfinished rename will be recovered before the next real run\n");
+
+               if(undo)
+                       return undoLast(listener);
+
+               long start = System.nanoTime();
+               List<String> otherNames = new ArrayList<String>();
+               List<DirectoryScan.Entry> fileList = DirectoryScan.scan(dir, folders, otherNames);
+               metrics.addPhase(RunMetrics.Phase.LIST, System.nanoTime() - start);
+               start = System.nanoTime();
+               DirectoryScan.sort(dir, fileList, sortOrder);
+               metrics.addPhase(RunMetrics.Phase.SORT, System.nanoTime() - start);
+               fileCount = fileList.size();
+               metrics.setScanned(fileCount);
+
+               start = System.nanoTime();
+               FolioNamingPlan plan = getNamingPlan();
+               String[] listed = null;          //the names given by the manifest
+               if(manifest != null)
+                       listed = new NameManifest(manifest).names(fileList, this, listener);
+               else
+                       checkCapacity(plan, fileList.size());
+               if(target != null){
+                       otherNames = namesInTarget(target);        //the names the moved files must not take
+                       if(experiment)
+                               listener.log("To be " + (output.isView() ? "published as " + output + " " : "moved to ") + target + "\n");
+               }
+               int unlisted = 0;
+               for(int i = 0; listed != null && i < listed.length; i++){
+                       if(listed[i] == null){
+                               unlisted++;
+                               if(target == null)
+                                       otherNames.add(fileList.get(i).name);      //keeps its name
+                       }
+               }
+               if(unlisted > 0)
+                       listener.log(unlisted + " file(s) not in the name list, left alone\n");
+               PreflightCheck check = new PreflightCheck(profile, target == null ? dir : target, fileList.size(), otherNames);
+               StringBuilder newName = new StringBuilder(64);
+               SpreadNameBuffer spreadName = plan.newSpreadBuffer();      //only the folio numbers are written per file
+               RenameBatch transaction = target == null ? new RenameTransaction(dir)
+                               : output.isView() ? new ViewTransaction(dir, target, fileList, folders, output == OutputMode.SYMBOLIC_LINKS)
+                               : new MoveTransaction(dir, target);
+               transaction.setParallelism(parallelism);
+               List<DirectoryScan.Entry> queued = new ArrayList<DirectoryScan.Entry>(fileList.size());
+               final int[] rows = new int[fileList.size()];     //the row of each queued rename
+               final ContentHasher hasher = checksums && experiment == false
+                               ? new ContentHasher(target == null ? dir : target, fileList.size(), Runtime.getRuntime().availableProcessors()) : null;
+
+               //the pool of the hasher is shut down however the pass ends
+               try {
+                       for(int i = 0; i < fileList.size(); i++){
+
+                               // stop cleanly between two files
+                               if(listener.isStopRequested()){
+                                       cancelled = true;
+                                       leftCount = fileList.size();
+                                       return false;
+                               }
+
+                               /* get the file extension that we need, and form a new name,
+                                * we would check if the Ignore File Extension is selected
+                                */
+                               String fileName = fileList.get(i).name;
+                               String fileExtension = extension(fileName);
+
+                               //the New File Name
+                               String newFileName;
+                               if(listed != null){
+                                       if(listed[i] == null)
+                                               continue;
+                                       newFileName = finalName(listed[i]);
+                               }
+                               else if(spreadName != null)
+                                       newFileName = finalName(spreadName.name(i, fileExtension).toString());
+                               else {
+                                       newName.setLength(0);
+                                       newFileName = finalName(plan.appendName(i, fileExtension, newName).toString());
+                               }
+                               check.add(i, newFileName);
+
+                               // ! In the Experimental Mode, only show the new name
+                               if(experiment){
+                                       listener.progress(i, fileList.size());
+                                       listener.log(fileName);
+                                       listener.log(" -> "+newFileName+"\n");
+                               }
+                               else if(transaction.add(fileName, newFileName)){
+                                       rows[queued.size()] = i;
+                                       queued.add(fileList.get(i));
+                               }
+                               else if(hasher != null)
+                                       hasher.submit(i, fileName);     //already has its name
+                       }
+
+                       metrics.addPhase(RunMetrics.Phase.PLAN, System.nanoTime() - start);
+                       if(check.isClean() == false){
+                               listener.log("Pre-flight check: " + check.summary() + "\n" + check.report());
+                               if(experiment == false)
+                                       throw new IOException("Pre-flight check: " + check.summary() + ", nothing renamed");
+                       }
+                       if(experiment){
+                               listener.progress(fileList.size(), fileList.size());
+                               return true;
+                       }
+                       metrics.setSkipped(fileList.size() - transaction.size());
+                       if(transaction.size() < fileList.size() - unlisted)
+                               listener.log((fileList.size() - unlisted - transaction.size()) + " file(s) already named, "
+                                       + transaction.size() + " to rename\n");
+
+                       // ! Perform the file renames
+                       final RenameBatch renames = transaction;
+                       if(hasher != null){
+                               transaction.setRenamedListener(new RenameBatch.RenamedListener(){
+                                       public void renamed(int i){
+                                               hasher.submit(rows[i], renames.getNewName(i));
+                                       }
+                               });
+                       }
+                       transaction.setMetrics(metrics);
+                       start = System.nanoTime();
+                       boolean overallResult = transaction.execute(listener);
+                       failCount = transaction.getFailCount();
+                       cancelled = transaction.isStopped();
+                       if(cancelled)
+                               leftCount = Math.max(0, transaction.size() - renamedCount(transaction) - failCount);
+                       metrics.setFailed(failCount);
+                       if(hasher != null){
+                               finishChecksums(hasher, transaction, rows, target == null, listener);
+                               metrics.setBytesHashed(hasher.getBytes());
+                       }
+                       metrics.addPhase(RunMetrics.Phase.EXECUTE, System.nanoTime() - start);
+                       metrics.setRenamed(renamedCount(transaction));
+                       if(target != null){
+                               listener.log((output.isView() ? "A view is" : "The moves to another folder are") + " not added to the undo log\n");
+                               return overallResult;
+                       }
+                       try {
+                               UndoLog.append(dir, folders, transaction, queued);
+                       }
+                       catch (IOException e) {
+                               listener.log("The renames could not be added to the undo log: " + e.getMessage() + "\n");
+                       }
+                       return overallResult;
+               }
+               finally {
+                       if(hasher != null)
+                               hasher.close();
+               }
+
+       }//end runPass
+
+
+       //the names the new names must not take in the target directory
+       private List<String> namesInTarget(Path target) throws IOException{
+               return output.isView() ? ViewTransaction.foreignNames(target) : namesIn(target);
+       }
+
+
+       //the names of the entries of dir, none when it does not exist yet
+       static List<String> namesIn(Path dir) throws IOException{
+               List<String> names = new ArrayList<String>();
+               if(Files.isDirectory(dir) == false)
+                       return names;
+               DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+               try {
+                       for(Path entry : stream)
+                               names.add(entry.getFileName().toString());
+               }
+               finally {
+                       stream.close();
+               }
+               return names;
+       }
+
+
+       private static int renamedCount(RenameBatch transaction){
+               int count = 0;
+               for(int i = 0; i < transaction.size(); i++){
+                       if(transaction.isRenamed(i))
+                               count++;
+               }
+               return count;
+       }
+
+
+       /* Hashes the files the transaction did not rename, under the name they kept (unless
+        * they stayed behind in another folder), then waits for the hashing and writes the
+        * manifest; a pass stopped midway, only partly renamed, moved or linked, gets none.
+        */
+       private void finishChecksums(ContentHasher hasher, RenameBatch transaction, int[] rows, boolean inPlace,
+                       Listener listener) throws IOException{
+               if(transaction.isStopped() || transaction.isRolledBack()){
+                       hasher.finish();
+                       listener.log("Checksums: the pass was stopped, no manifest written\n");
+                       return;
+               }
+               for(int i = 0; inPlace && i < transaction.size(); i++){
+                       if(transaction.isRenamed(i) == false)
+                               hasher.submit(rows[i], transaction.getOldName(i));
+               }
+               hasher.finish();
+               listener.log("Checksums: " + hasher.summary() + "\n");
+               listener.log("Manifest written to " + hasher.writeManifest() + "\n");
+       }
+
+
+       /* Gives the files of the last batch of the UndoLog their old names back. A file is
+        * only renamed back when it still has the size and file key it had after the rename;
+        * the moves go through a RenameTransaction, so names exchanged between files of the
+        * batch (a shift by one leaf) are no obstacle, and run on the chosen parallelism.
+        * In test mode the renames are only listed.
+        */
+       private boolean undoLast(Listener listener) throws IOException{
+
+               Path dir = directory.toPath();
+               UndoLog.Batch batch = UndoLog.last(dir);
+               if(batch == null){
+                       listener.log("Nothing to undo in " + directory + "\n");
+                       return true;
+               }
+               listener.log("Undoing the renames of " + batch.date + " in " + directory + "\n");
+
+               long start = System.nanoTime();
+               Map<String, DirectoryScan.Entry> current = new HashMap<String, DirectoryScan.Entry>();
+               for(DirectoryScan.Entry entry : DirectoryScan.scan(dir, batch.folders))
+                       current.put(entry.name, entry);
+               metrics.addPhase(RunMetrics.Phase.LIST, System.nanoTime() - start);
+               metrics.setScanned(current.size());
+
+               RenameTransaction transaction = new RenameTransaction(dir);
+               transaction.setParallelism(parallelism);
+               int skipped = 0;
+               for(UndoLog.Record record : batch.records){
+                       DirectoryScan.Entry entry = current.get(record.newName);
+                       if(entry == null || (batch.folders == false && entry.size != record.size)
+                                       || (record.fileKey != null && entry.fileKey != null && record.fileKey.equals(entry.fileKey) == false)){
+                               listener.log(record.newName + ": " + (entry == null ? "not found" : "changed since the rename") + ", left alone\n");
+                               skipped++;
+                               continue;
+                       }
+                       if(experiment)
+                               listener.log(record.newName + "\n -> " + record.oldName + "\n");
+                       else
+                               transaction.add(record.newName, record.oldName);
+               }
+               fileCount = batch.records.size();
+               metrics.setSkipped(skipped);
+               if(experiment)
+                       return true;
+
+               transaction.setMetrics(metrics);
+               start = System.nanoTime();
+               boolean overallResult = transaction.execute(listener);
+               metrics.addPhase(RunMetrics.Phase.EXECUTE, System.nanoTime() - start);
+               metrics.setRenamed(renamedCount(transaction));
+               metrics.setFailed(transaction.getFailCount());
+               failCount = transaction.getFailCount() + skipped;
+               cancelled = transaction.isStopped();
+               if(cancelled)
+                       leftCount = Math.max(0, transaction.size() - renamedCount(transaction) - transaction.getFailCount());
+               //a batch only partly undone can be undone again: the files already back are "not found"
+               if(overallResult && cancelled == false)
+                       UndoLog.markUndone(dir, batch);
+               return overallResult && skipped == 0;
+
+       }//end undoLast
+
+
+       //the new name as given to the file: mended for the profile when sanitizing
+       public String finalName(String name){
+               return sanitize ? profile.sanitize(name) : name;
+       }
+
+
+       //the extension the new name keeps from fileName
+       public String extension(String fileName){
+               if (folders) {
+                       // folder => extension is irrelevant
+                       return "";
+               } else if(ignoreExtension){
+                       return "";
+               } else {
+                       // file => extension is relevant
+                       return getFileExtension(fileName);
+               }
+       }
+
+
+       //the extension of the file name, dot included, or "" when there is none
+       public static String getFileExtension(String filename){
+
+               int dotIndex = filename.lastIndexOf(".");
+               if(dotIndex >= 0)
+                       return filename.substring(dotIndex);
+               else
+                       return "";
+       }
+
+
+       //this will get the FileName without the extension
+       public static String getFileName(String filename){
+
+               int dotIndex = filename.lastIndexOf(".");
+               if(dotIndex >= 0)
+                       return filename.substring(0, dotIndex);
+               else
+                       return "";
+       }
+
+}
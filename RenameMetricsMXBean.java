@@ -0,0 +1,37 @@
+/* Folio Batch Renamer
+ *
+ * RenameMetricsMXBean is what the renamer shows through JMX, under the name
+ * "folioFileRename:type=RenameMetrics": totals since the start of the process, and the
+ * metrics of the last finished pass (see RunMetrics).
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+public interface RenameMetricsMXBean {
+
+       long getRuns();
+       long getFilesRenamedTotal();
+       long getFailuresTotal();
+
+       String getLastFolder();
+       String getLastMode();
+       long getLastScanned();
+       long getLastRenamed();
+       long getLastSkipped();
+       long getLastFailed();
+       double getLastListMillis();
+       double getLastSortMillis();
+       double getLastPlanMillis();
+       double getLastExecuteMillis();
+       long getLastMoveP50Micros();
+       long getLastMoveP99Micros();
+       long getLastBytesHashed();
+
+       //the whole last pass, as RunMetrics.toJson() gives it
+       String getLastSummaryJson();
+
+}
@@ -0,0 +1,874 @@
+/* Folio Batch Renamer
+ *
+ * RenameTransaction performs a whole batch of renames inside one folder without the
+ * targets getting in the way of each other. Renaming one file after the other fails as
+ * soon as a new name is still held by a file of the same batch (re-foliating a folder
+ * that already uses folio names, or shifting the foliation by one leaf). A file already
+ * under its new name is not part of the batch. The others are put in order:
+ *  - each new name is held by at most one file of the batch, so the renames form chains
+ *    (A takes the name of B, which takes the name of C, which takes a free name) and
+ *    cycles (two files exchanging their names). A chain is renamed from its free end,
+ *    each move freeing the name the next one takes; a cycle is opened by moving one of
+ *    its files to a temporary name. A leaf inserted at folio 400 of 500 is one chain:
+ *    the files after it are moved once each, and no temporary name is needed;
+ *  - when two names of the batch differ only by case, and could be the same file, the
+ *    batch runs in two phases instead: every file to a unique temporary name, then every
+ *    temporary name to its final name.
+ * Before anything is moved, the moves are written to a journal in the folder. If the run
+ * is interrupted (crash, power cut, killed process), recover() finds the journal on the
+ * next run and finishes the moves, or undoes those done when the batch was being
+ * cancelled (in two phases: rolls back an interruption in phase 1, forward one in phase
+ * 2), so that no file is left under a temporary name. A temporary name is emptied again
+ * later in the run, so the names alone do not tell whether a move to it was made: the
+ * journal notes when those moves are over, and lists the moves to undo before undoing
+ * them. A file that cannot get a name back keeps the journal, for the next run to retry.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RenameTransaction implements RenameBatch {
+
+       public static final String JOURNAL = ".folio-rename.journal";
+       private static final String HEADER = "folio-rename journal 1";          //two phases
+       private static final String CHAINED = "folio-rename journal 2";         //the moves in order
+       private static final String PHASE2 = "PHASE2";
+       private static final String READY = "READY";            //chained: the journal is complete
+       private static final String CHAINS = "CHAINS";          //chained: the moves to temporary names are over
+       private static final String UNDO = "UNDO ";             //chained: a move to undo, by its number
+       private static final String CANCEL = "CANCEL";          //chained: the moves listed are being undone
+       private static final byte TO_NEW = 0, TO_TEMP = 1, FROM_TEMP = 2;   //the kinds of moves of a chain
+       private static final int CUT = 256;     //files of the shortest piece of a chain cut for the threads
+       private static final Charset UTF8 = Charset.forName("UTF-8");
+       private static final int JOURNAL_CHUNK = 1 << 16;
+
+       private final Path directory;
+       private final List<String> oldNames = new ArrayList<String>();
+       private final List<String> newNames = new ArrayList<String>();
+       private final List<String> tempNames = new ArrayList<String>();
+       private final String runId = Long.toString(System.currentTimeMillis(), 36);
+       private boolean[] moved;       //the file is under its temporary name
+       private int[] moveRow;         //chained: the file of each move, in order
+       private byte[] moveKind;
+       private int[] chainStart;      //chained: the first move of each chain, and the end
+       private int[] waiting;         //chained: the file taking the old name of each file, or -1
+       private int tempMoves;         //chained: the moves to a temporary name, made before the chains
+       private boolean[] renamed;     //the file is under its new name
+       private int failCount = 0;
+       private boolean rolledBack = false;
+       private boolean stopped = false;
+       private int parallelism = 1;
+       private int cut = CUT;
+       private RenamedListener renamedListener;
+       private RunMetrics metrics;
+
+
+       public RenameTransaction(Path directory){
+               this.directory = directory;
+       }
+
+
+       /* Queues one rename; a file that already has its new name is left alone.
+        * Returns true when the rename was queued.
+        */
+       public boolean add(String oldName, String newName){
+               if(oldName.equals(newName))
+                       return false;
+               tempNames.add(".folio-rename-" + runId + "-" + oldNames.size() + ".tmp");
+               moveRow = null;         //to be planned again
+               oldNames.add(oldName);
+               newNames.add(newName);
+               return true;
+       }
+
+
+       //number of moves run side by side in each phase (1: one after the other)
+       public void setParallelism(int parallelism){
+               if(parallelism < 1)
+                       throw new IllegalArgumentException("The parallelism must be at least 1");
+               this.parallelism = parallelism;
+               moveRow = null;         //the chains are cut for the threads
+       }
+
+
+       //the shortest piece of a chain cut for the threads, CUT unless a test wants short chains cut
+       void setCut(int cut){
+               if(cut < 1)
+                       throw new IllegalArgumentException("A piece has at least 1 file");
+               this.cut = cut;
+               moveRow = null;
+       }
+
+
+       public void setRenamedListener(RenamedListener renamedListener){
+               this.renamedListener = renamedListener;
+       }
+
+
+       //receives the latency of every move of both phases
+       public void setMetrics(RunMetrics metrics){
+               this.metrics = metrics;
+       }
+
+
+       public int size(){
+               return oldNames.size();
+       }
+
+
+       public String getOldName(int i){
+               return oldNames.get(i);
+       }
+
+
+       public String getNewName(int i){
+               return newNames.get(i);
+       }
+
+
+       //true when execute() gave the i-th queued file its new name
+       public boolean isRenamed(int i){
+               return renamed != null && renamed[i];
+       }
+
+
+       public int getFailCount(){
+               return failCount;
+       }
+
+
+       //true when execute() was stopped during phase 1 and undid its moves
+       public boolean isRolledBack(){
+               return rolledBack;
+       }
+
+
+       //true when execute() was stopped before the renames were done (and undid its moves)
+       public boolean isStopped(){
+               return stopped;
+       }
+
+
+       /* Renames the batch, in chains when it can be, else in two phases. A file whose new
+        * name is taken by a file outside the batch keeps its old name and counts as a
+        * failure. When the listener asks to stop before the chains are done (during phase 1
+        * in two phases), the files already moved go back to their old names and nothing is
+        * renamed. With a parallelism above 1, the chains (the moves of each phase) are shared
+        * between that many threads. Returns true when every rename succeeded, false after
+        * a stop.
+        */
+       public boolean execute(final RenameJob.Listener listener) throws IOException{
+
+               if(Files.exists(directory.resolve(JOURNAL)))
+                       throw new IOException("An unfinished rename journal is present in " + directory);
+               if(plan())
+                       return executeChained(listener);
+               return executeInPhases(listener);
+       }
+
+
+       /* Puts the renames in chains, each move taking a name that is free or that the move
+        * before it freed. The files that step aside to a temporary name (one per cycle, and
+        * one per cut when long chains are cut so that the threads share them) are moved first.
+        * Returns false when two old names, or two new names, differ only by case: which file
+        * holds which name then depends on the file system.
+        */
+       private boolean plan(){
+
+               int n = oldNames.size();
+               if(moveRow != null)
+                       return true;
+               int[] holder = caselessIndex(oldNames);
+               if(holder == null || distinctTargets() == false)
+                       return false;
+
+               //next[i]: the file of the batch holding the new name of i; waiting[j]: the file waiting for the name of j
+               int[] next = new int[n];
+               waiting = new int[n];
+               Arrays.fill(waiting, -1);
+               for(int i = 0; i < n; i++){
+                       int j = caselessFind(holder, oldNames, newNames.get(i));
+                       next[i] = j;
+                       if(j >= 0)
+                               waiting[j] = i;
+               }
+
+               //the files in the order they are renamed, chain after chain
+               int[] order = new int[n];
+               boolean[] aside = new boolean[n];       //moved to its temporary name first
+               List<Integer> starts = new ArrayList<Integer>();
+               int length = parallelism == 1 ? n : Math.max(cut, (n + 4 * parallelism - 1) / (4 * parallelism));
+               int k = 0;
+               //chains, from the file whose new name is free
+               for(int i = 0; i < n; i++){
+                       if(next[i] >= 0)
+                               continue;
+                       int first = k;
+                       for(int j = i; j >= 0; j = waiting[j])
+                               order[k++] = j;
+                       cut(order, first, k, length, aside, starts);
+               }
+               //what is left are cycles: the first file steps aside, the others follow, it comes back
+               boolean[] planned = new boolean[n];
+               for(int c = 0; c < k; c++)
+                       planned[order[c]] = true;
+               for(int i = 0; i < n; i++){
+                       if(planned[i])
+                               continue;
+                       int first = k;
+                       for(int j = waiting[i]; j != i; j = waiting[j]){
+                               order[k++] = j;
+                               planned[j] = true;
+                       }
+                       order[k++] = i;
+                       planned[i] = true;
+                       aside[i] = true;
+                       cut(order, first, k, length, aside, starts);
+               }
+               starts.add(k);
+
+               int temps = 0;
+               for(int i = 0; i < n; i++){
+                       if(aside[i])
+                               temps++;
+               }
+               moveRow = new int[temps + n];
+               moveKind = new byte[temps + n];
+               int m = 0;
+               for(int i = 0; i < n; i++){
+                       if(aside[i]){
+                               moveRow[m] = i;
+                               moveKind[m++] = TO_TEMP;
+                       }
+               }
+               for(int c = 0; c < n; c++){
+                       moveRow[m] = order[c];
+                       moveKind[m++] = aside[order[c]] ? FROM_TEMP : TO_NEW;
+               }
+               tempMoves = temps;
+               chainStart = new int[starts.size()];
+               for(int c = 0; c < chainStart.length; c++)
+                       chainStart[c] = temps + starts.get(c);
+               return true;
+
+       }//end plan
+
+
+       /* Notes the chain order[first..end) in starts, cut in pieces of length files when it
+        * is longer: the last file of each piece but the last steps aside, so that the next
+        * piece can start at once.
+        */
+       private static void cut(int[] order, int first, int end, int length, boolean[] aside, List<Integer> starts){
+               for(int start = first; start < end; start += length){
+                       starts.add(start);
+                       if(start > first)
+                               aside[order[start - 1]] = true;
+               }
+       }
+
+
+       private String from(int move){
+               int i = moveRow[move];
+               return moveKind[move] == FROM_TEMP ? tempNames.get(i) : oldNames.get(i);
+       }
+
+
+       private String to(int move){
+               int i = moveRow[move];
+               return moveKind[move] == TO_TEMP ? tempNames.get(i) : newNames.get(i);
+       }
+
+
+       /* Moves the files stepping aside to their temporary names, then runs the chains side
+        * by side, each one move after the other. A move that fails leaves its file where it
+        * is; the moves after it in the chain, which needed its name, fail in turn. A file
+        * left under its temporary name that way (the first file of a cycle, the last file of
+        * a piece of a cut chain) gets its old name back: the move of the file that took that
+        * name is undone first, and so on along the chain, and the files undone count as
+        * failures. When the listener asks to stop, every move made is undone. A file that
+        * cannot go back keeps the journal, so that the next run gives it its name.
+        */
+       private boolean executeChained(final RenameJob.Listener listener) throws IOException{
+
+               final int n = oldNames.size();
+               final int total = moveRow.length;
+               final AtomicInteger done = new AtomicInteger();
+               final boolean[] moveDone = new boolean[total];
+               final boolean[] failed = new boolean[n];
+               Path journal = directory.resolve(JOURNAL);
+               boolean keep = false;          //a file is still under its temporary name
+               moved = new boolean[n];
+               renamed = new boolean[n];
+               failCount = 0;
+               rolledBack = false;
+               stopped = false;
+
+               FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+               try {
+                       StringBuilder text = new StringBuilder(JOURNAL_CHUNK + 1024).append(CHAINED).append('\n');
+                       for(int m = 0; m < total; m++){
+                               escape(text, from(m)).append('\t');
+                               escape(text, to(m)).append('\n');
+                               if(text.length() >= JOURNAL_CHUNK){
+                                       write(channel, text);
+                                       text.setLength(0);
+                               }
+                       }
+                       write(channel, text.append(READY).append('\n'));
+                       channel.force(true);   //every move is on disk before the first one is made
+
+                       //the files stepping aside first, then the chains
+                       Parallel.forEach(tempMoves, parallelism, new Parallel.Step(){
+                               public void run(int m){
+                                       if(listener.isStopRequested() == false)
+                                               move(m, moveDone, failed, listener, done);
+                               }
+                       });
+                       //the chains empty the temporary names again: recover() must not fill them back
+                       write(channel, new StringBuilder(CHAINS).append('\n'));
+                       channel.force(true);
+                       Parallel.forEach(chainStart.length - 1, parallelism, new Parallel.Step(){
+                               public void run(int c){
+                                       for(int m = chainStart[c]; m < chainStart[c + 1]; m++){
+                                               if(listener.isStopRequested())
+                                                       return;
+                                               move(m, moveDone, failed, listener, done);
+                                       }
+                               }
+                       });
+
+                       if(listener.isStopRequested() && done.get() < total){
+                               stopped = true;
+                               undo(channel, moveDone, failed, false, listener);
+                               rolledBack = true;
+                               for(int i = 0; i < n; i++)
+                                       rolledBack &= renamed[i] == false && moved[i] == false;
+                               listener.log(rolledBack ? "Cancelled: no file renamed\n" : "Cancelled: some files could not go back, see above\n");
+                       }
+                       else {
+                               boolean[] undo = stranded();
+                               if(undo != null)
+                                       undo(channel, undo, failed, true, listener);
+                       }
+                       for(int i = 0; i < n; i++)
+                               keep |= moved[i];
+               }
+               finally {
+                       channel.close();
+               }
+
+               if(keep)
+                       listener.log("\t*The journal " + JOURNAL + " is kept: the next run gives the files left under a temporary name their names\n\n");
+               else
+                       Files.delete(journal);
+               listener.progress(total, total);
+               return failCount == 0 && stopped == false;
+
+       }//end executeChained
+
+
+       /* The moves to undo so that every file left under its temporary name gets its old
+        * name back: its move there, the move of the file that took its old name, the move of
+        * the file that took the old name of the latter, and so on along the chain. Null when
+        * no file is left under its temporary name.
+        */
+       private boolean[] stranded(){
+               int n = oldNames.size();
+               int[] chainMove = new int[n];
+               int[] tempMove = new int[n];
+               Arrays.fill(tempMove, -1);
+               for(int m = 0; m < moveRow.length; m++){
+                       if(moveKind[m] == TO_TEMP)
+                               tempMove[moveRow[m]] = m;
+                       else
+                               chainMove[moveRow[m]] = m;
+               }
+               boolean[] undo = null;
+               for(int i = 0; i < n; i++){
+                       if(moved[i] == false)
+                               continue;
+                       if(undo == null)
+                               undo = new boolean[moveRow.length];
+                       undo[tempMove[i]] = true;
+                       for(int j = waiting[i]; j >= 0 && renamed[j] && undo[chainMove[j]] == false; j = waiting[j]){
+                               undo[chainMove[j]] = true;
+                               if(tempMove[j] >= 0)
+                                       undo[tempMove[j]] = true;
+                       }
+               }
+               return undo;
+       }
+
+
+       /* Undoes the moves marked, the last one first. They are listed in the journal, then
+        * CANCEL, before the first one is undone, so that recover() knows which to undo. A file
+        * that cannot go back, and, when count is true, a renamed file undone, count as
+        * failures.
+        */
+       private void undo(FileChannel channel, boolean[] undo, boolean[] failed, boolean count, RenameJob.Listener listener) throws IOException{
+
+               StringBuilder text = new StringBuilder(JOURNAL_CHUNK + 64);
+               for(int m = 0; m < undo.length; m++){
+                       if(undo[m] == false)
+                               continue;
+                       text.append(UNDO).append(m).append('\n');
+                       if(text.length() >= JOURNAL_CHUNK){
+                               write(channel, text);
+                               text.setLength(0);
+                       }
+               }
+               write(channel, text.append(CANCEL).append('\n'));
+               channel.force(true);   //the list is on disk before the first move back
+
+               boolean[] stuck = new boolean[oldNames.size()];
+               for(int m = undo.length - 1; m >= 0; m--){
+                       int i = moveRow[m];
+                       if(undo[m] == false || stuck[i])
+                               continue;
+                       try {
+                               Files.move(directory.resolve(to(m)), directory.resolve(from(m)));
+                               if(count && renamed[i] && failed[i] == false){
+                                       failed[i] = true;
+                                       failCount++;
+                                       listener.log(oldNames.get(i) + "\n -> " + newNames.get(i) + "\n"
+                                               + "\n\t*Renamed successfully?: false (back to its old name: a file of its chain could not move)\n\n");
+                               }
+                               renamed[i] = false;
+                               moved[i] = moveKind[m] == FROM_TEMP;
+                       }
+                       catch (IOException e) {
+                               stuck[i] = true;
+                               if(failed[i] == false){
+                                       failed[i] = true;
+                                       failCount++;
+                               }
+                               listener.log("\t*" + oldNames.get(i) + " kept as " + to(m) + ": " + e + "\n\n");
+                       }
+               }
+
+       }//end undo
+
+
+       //makes one move of the chains, unless its file already failed to move
+       private void move(int m, boolean[] moveDone, boolean[] failed, RenameJob.Listener listener, AtomicInteger done){
+               int i = moveRow[m];
+               if(failed[i] == false){
+                       try {
+                               long start = System.nanoTime();
+                               Files.move(directory.resolve(from(m)), directory.resolve(to(m)));
+                               if(metrics != null)
+                                       metrics.recordMove(System.nanoTime() - start);
+                               moveDone[m] = true;
+                               moved[i] = moveKind[m] == TO_TEMP;
+                               if(moveKind[m] != TO_TEMP){
+                                       renamed[i] = true;
+                                       if(renamedListener != null)
+                                               renamedListener.renamed(i);
+                                       listener.log(oldNames.get(i) + "\n -> " + newNames.get(i) + "\n"
+                                               + "\n\t*Renamed successfully?: true\n\n");
+                               }
+                       }
+                       catch (IOException e) {
+                               failed[i] = true;
+                               reportFailure(listener, i, e);
+                       }
+               }
+               listener.progress(done.incrementAndGet(), moveRow.length);
+       }
+
+
+       /* Runs both phases. A file whose new name is taken by a file outside the batch goes
+        * back to its old name and counts as a failure. When the listener asks to stop during
+        * phase 1, the files already moved go back to their old names and nothing is renamed.
+        * Phase 2 stays sequential when two new names could designate the same file.
+        */
+       private boolean executeInPhases(final RenameJob.Listener listener) throws IOException{
+
+               final int n = oldNames.size();
+               final int total = 2 * n;
+               final AtomicInteger done = new AtomicInteger();
+               final boolean[] blocked = new boolean[n];   //the new name is held outside the batch
+               Path journal = directory.resolve(JOURNAL);
+               boolean keep = false;          //a file is still under its temporary name
+               moved = new boolean[n];
+               renamed = new boolean[n];
+               failCount = 0;
+               rolledBack = false;
+               stopped = false;
+
+               FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+               try {
+                       StringBuilder text = new StringBuilder(JOURNAL_CHUNK + 1024).append(HEADER).append('\n');
+                       for(int i = 0; i < n; i++){
+                               escape(text, oldNames.get(i)).append('\t');
+                               escape(text, tempNames.get(i)).append('\t');
+                               escape(text, newNames.get(i)).append('\n');
+                               if(text.length() >= JOURNAL_CHUNK){
+                                       write(channel, text);
+                                       text.setLength(0);
+                               }
+                       }
+                       write(channel, text);
+                       channel.force(true);   //the whole batch is on disk before the first move
+
+                       // phase 1: everything to its temporary name
+                       Parallel.forEach(n, parallelism, new Parallel.Step(){
+                               public void run(int i){
+                                       if(listener.isStopRequested())
+                                               return;
+                                       try {
+                                               long start = System.nanoTime();
+                                               Files.move(directory.resolve(oldNames.get(i)), directory.resolve(tempNames.get(i)));
+                                               if(metrics != null)
+                                                       metrics.recordMove(System.nanoTime() - start);
+                                               moved[i] = true;
+                                       }
+                                       catch (IOException e) {
+                                               reportFailure(listener, i, e);
+                                       }
+                                       listener.progress(done.incrementAndGet(), total);
+                               }
+                       });
+                       if(listener.isStopRequested()){
+                               stopped = true;
+                               rollBack(listener);
+                               channel.close();
+                               Files.delete(journal);
+                               return false;
+                       }
+                       write(channel, new StringBuilder(PHASE2).append('\n'));
+                       channel.force(true);
+
+                       // phase 2: everything to its final name
+                       Parallel.forEach(n, distinctTargets() ? parallelism : 1, new Parallel.Step(){
+                               public void run(int i){
+                                       if(moved[i]){
+                                               try {
+                                                       long start = System.nanoTime();
+                                                       Files.move(directory.resolve(tempNames.get(i)), directory.resolve(newNames.get(i)));
+                                                       if(metrics != null)
+                                                               metrics.recordMove(System.nanoTime() - start);
+                                                       moved[i] = false;
+                                                       renamed[i] = true;
+                                                       if(renamedListener != null)
+                                                               renamedListener.renamed(i);
+                                                       listener.log(oldNames.get(i) + "\n -> " + newNames.get(i) + "\n"
+                                                               + "\n\t*Renamed successfully?: true\n\n");
+                                               }
+                                               catch (IOException e) {
+                                                       blocked[i] = true;
+                                                       reportFailure(listener, i, e);
+                                               }
+                                       }
+                                       listener.progress(done.incrementAndGet(), total);
+                               }
+                       });
+
+                       //back to the old names, once no other file of the batch is moving
+                       for(int i = 0; i < n; i++){
+                               if(blocked[i] == false)
+                                       continue;
+                               try {
+                                       Files.move(directory.resolve(tempNames.get(i)), directory.resolve(oldNames.get(i)));
+                                       moved[i] = false;
+                               }
+                               catch (IOException e) {
+                                       listener.log("\t*Old name of " + oldNames.get(i) + " taken as well, kept as " + tempNames.get(i) + "\n\n");
+                                       keep = true;
+                               }
+                       }
+               }
+               finally {
+                       channel.close();
+               }
+
+               if(keep)
+                       listener.log("\t*The journal " + JOURNAL + " is kept: the next run gives the files left under a temporary name their names\n\n");
+               else
+                       Files.delete(journal);
+               listener.progress(total, total);
+               return failCount == 0;
+
+       }//end executeInPhases
+
+
+       /* Looks for the journal of an interrupted batch in dir and finishes its work: the
+        * moves of chains are made, or those listed undone when the batch was being cancelled
+        * or a file of a chain was going back to its old name; in two phases, files
+        * interrupted in phase 1 go back to their old names, files interrupted in phase 2 go
+        * on to their new names. Returns false when there was nothing to recover: no journal,
+        * or one cut short before its header was complete, which is deleted. A file left
+        * under a temporary name, both its names being taken, keeps the journal and throws.
+        */
+       public static boolean recover(Path dir, RenameJob.Listener listener) throws IOException{
+
+               Path journal = dir.resolve(JOURNAL);
+               if(Files.exists(journal) == false)
+                       return false;
+
+               List<String[]> entries = new ArrayList<String[]>();
+               List<Integer> undo = new ArrayList<Integer>();
+               boolean forward = false;
+               boolean chained = false;
+               boolean ready = false;
+               boolean chains = false;
+               boolean empty = false;
+               BufferedReader reader = Files.newBufferedReader(journal, UTF8);
+               try {
+                       String line = reader.readLine();
+                       if(line == null || (line.length() < HEADER.length() && HEADER.startsWith(line))
+                                       || (line.length() < CHAINED.length() && CHAINED.startsWith(line)))
+                               empty = true;        //cut short while its header was written
+                       chained = CHAINED.equals(line);
+                       if(empty == false && HEADER.equals(line) == false && chained == false)
+                               throw new IOException("Unknown rename journal format in " + journal);
+                       forward = chained;
+                       while(empty == false && (line = reader.readLine()) != null){
+                               if(line.equals(PHASE2) || line.equals(CANCEL)){
+                                       forward = line.equals(PHASE2);
+                                       continue;
+                               }
+                               if(line.equals(READY)){
+                                       ready = true;
+                                       continue;
+                               }
+                               if(line.equals(CHAINS)){
+                                       chains = true;
+                                       continue;
+                               }
+                               if(ready && line.startsWith(UNDO)){
+                                       //a number cut short is never followed by CANCEL, and the list is then not used
+                                       try {
+                                               undo.add(Integer.valueOf(line.substring(UNDO.length())));
+                                       }
+                                       catch (NumberFormatException e) {
+                                       }
+                                       continue;
+                               }
+                               String[] fields = line.split("\t", -1);
+                               //the journal is complete before the first move: a line cut short
+                               //by the interruption never belongs to a file that was moved
+                               if(chained && fields.length == 2)
+                                       entries.add(new String[]{ unescape(fields[0]), unescape(fields[1]) });
+                               else if(chained == false && fields.length == 3)
+                                       entries.add(new String[]{ unescape(fields[0]), unescape(fields[1]), unescape(fields[2]) });
+                       }
+               }
+               finally {
+                       reader.close();
+               }
+               if(empty){
+                       //no move is made before the header is complete
+                       Files.delete(journal);
+                       listener.log("Empty rename journal removed from " + dir + ": cut short before any file was renamed\n");
+                       return false;
+               }
+
+               listener.log("Unfinished rename found in " + dir + ", rolling " + (forward ? "forward" : "back") + "\n");
+               int left = 0;                  //files still under a temporary name
+               if(chained){
+                       if(ready && forward)            //else cut short before the first move
+                               replay(dir, entries, chains, listener);
+                       else if(ready)
+                               replay(dir, entries, undo, listener);
+                       for(String[] move : entries){
+                               if(DirectoryScan.isToolFile(move[1]) && Files.exists(dir.resolve(move[1]), LinkOption.NOFOLLOW_LINKS)){
+                                       listener.log(move[0] + " kept as " + move[1] + ": its names are taken\n");
+                                       left++;
+                               }
+                       }
+               }
+               else {
+                       for(String[] entry : entries){
+                               Path temp = dir.resolve(entry[1]);
+                               if(Files.exists(temp) == false)
+                                       continue;
+                               Path target = dir.resolve(forward ? entry[2] : entry[0]);
+                               if(Files.exists(target))
+                                       target = dir.resolve(entry[0]);   //the new name got taken: keep the old one
+                               if(Files.exists(target)){
+                                       listener.log(entry[0] + " kept as " + entry[1] + ": both names are taken\n");
+                                       left++;
+                                       continue;
+                               }
+                               Files.move(temp, target);
+                               listener.log(entry[0] + " -> " + target.getFileName() + "\n");
+                       }
+               }
+               if(left > 0)
+                       throw new IOException(left + " file(s) of an unfinished rename are still under a temporary name in " + dir
+                               + ": free their names, or give them one, then run again; the journal " + JOURNAL + " is kept until then");
+
+               Files.delete(journal);
+               return true;
+
+       }//end recover
+
+
+       /* Makes the moves of a chained journal that are not done yet, in order: those whose
+        * source is there and whose target is free. Once the chains began (CHAINS), a move to
+        * a temporary name is never made again, its file having moved on already. A file
+        * left under its temporary name then goes back to its old name when it is free.
+        */
+       private static void replay(Path dir, List<String[]> moves, boolean chains, RenameJob.Listener listener) throws IOException{
+               for(String[] move : moves){
+                       if(chains && DirectoryScan.isToolFile(move[1]))
+                               continue;
+                       replay(dir, move[0], move[1], listener);
+               }
+               for(String[] move : moves){
+                       if(DirectoryScan.isToolFile(move[1]))
+                               replay(dir, move[1], move[0], listener);
+               }
+       }
+
+
+       /* Undoes the moves listed by UNDO lines, the last one first, as executeChained() does:
+        * a move is undone when its target is there and its source free.
+        */
+       private static void replay(Path dir, List<String[]> moves, List<Integer> undo, RenameJob.Listener listener) throws IOException{
+               for(int k = undo.size() - 1; k >= 0; k--){
+                       int m = undo.get(k).intValue();
+                       if(m >= 0 && m < moves.size())
+                               replay(dir, moves.get(m)[1], moves.get(m)[0], listener);
+               }
+       }
+
+
+       //moves from to to in dir when from is there and to is free
+       private static void replay(Path dir, String from, String to, RenameJob.Listener listener) throws IOException{
+               Path source = dir.resolve(from);
+               Path target = dir.resolve(to);
+               if(Files.exists(source, LinkOption.NOFOLLOW_LINKS) == false || Files.exists(target, LinkOption.NOFOLLOW_LINKS))
+                       return;
+               Files.move(source, target);
+               listener.log(from + " -> " + to + "\n");
+       }
+
+
+       private void rollBack(RenameJob.Listener listener) throws IOException{
+               for(int i = 0; i < moved.length; i++){
+                       if(moved[i]){
+                               Files.move(directory.resolve(tempNames.get(i)), directory.resolve(oldNames.get(i)));
+                               moved[i] = false;
+                       }
+               }
+               rolledBack = true;
+               listener.log("Cancelled: no file renamed\n");
+       }
+
+
+       private synchronized void reportFailure(RenameJob.Listener listener, int i, IOException e){
+               failCount++;
+               listener.log(oldNames.get(i) + "\n -> " + newNames.get(i) + "\n"
+                       + "\n\t*Renamed successfully?: false ("
+                       + (e instanceof FileAlreadyExistsException ? "name already taken" : e.toString()) + ")\n\n");
+       }
+
+
+       /* True when no two new names can designate the same file, even on a file system that
+        * ignores case; only then may the moves of phase 2 run side by side.
+        */
+       private boolean distinctTargets(){
+               return caselessIndex(newNames) != null;
+       }
+
+
+       /* An open-addressing index of names, case ignored: slot -> row + 1, 0 when free.
+        * No lower-case copy of the names is made, which counts for a folder of a million
+        * files. Null when two of the names differ only by case.
+        */
+       private static int[] caselessIndex(List<String> names){
+               int capacity = Integer.highestOneBit(Math.max(16, 2 * names.size()) - 1) << 1;
+               int[] table = new int[capacity];
+               for(int i = 0; i < names.size(); i++){
+                       String name = names.get(i);
+                       int slot = caselessHash(name) & (capacity - 1);
+                       for(; table[slot] != 0; slot = (slot + 1) & (capacity - 1)){
+                               if(names.get(table[slot] - 1).equalsIgnoreCase(name))
+                                       return null;
+                       }
+                       table[slot] = i + 1;
+               }
+               return table;
+       }
+
+
+       //the row of names holding name, case ignored, or -1
+       private static int caselessFind(int[] table, List<String> names, String name){
+               int mask = table.length - 1;
+               for(int slot = caselessHash(name) & mask; table[slot] != 0; slot = (slot + 1) & mask){
+                       if(names.get(table[slot] - 1).equalsIgnoreCase(name))
+                               return table[slot] - 1;
+               }
+               return -1;
+       }
+
+
+       //a hash equal for names equal but for case, as String.equalsIgnoreCase() compares them
+       private static int caselessHash(String name){
+               int h = 0;
+               for(int i = 0; i < name.length(); i++)
+                       h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+               h *= 0x9E3779B9;
+               return h ^ (h >>> 16);
+       }
+
+
+       private static void write(FileChannel channel, CharSequence text) throws IOException{
+               ByteBuffer buffer = UTF8.encode(CharBuffer.wrap(text));
+               while(buffer.hasRemaining())
+                       channel.write(buffer);
+       }
+
+
+       //file names may hold tabs or line breaks: keep one journal (or undo log) entry per line
+       static StringBuilder escape(StringBuilder out, String name){
+               for(int i = 0; i < name.length(); i++){
+                       char c = name.charAt(i);
+                       if(c == '\\') out.append("\\\\");
+                       else if(c == '\t') out.append("\\t");
+                       else if(c == '\n') out.append("\\n");
+                       else if(c == '\r') out.append("\\r");
+                       else out.append(c);
+               }
+               return out;
+       }
+
+
+       static String unescape(String field){
+               if(field.indexOf('\\') < 0)
+                       return field;
+               StringBuilder out = new StringBuilder(field.length());
+               for(int i = 0; i < field.length(); i++){
+                       char c = field.charAt(i);
+                       if(c == '\\' && i + 1 < field.length()){
+                               char next = field.charAt(++i);
+                               out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+                       }
+                       else
+                               out.append(c);
+               }
+               return out.toString();
+       }
+
+}
@@ -0,0 +1,257 @@
+/* Folio Batch Renamer
+ *
+ * RuleProfiles keeps named sets of naming rules, e.g. one per institution or shelfmark
+ * series, so that the rules of a manuscript are chosen by name instead of being set again
+ * field by field. All the profiles sit in one small text file, read in a single pass at
+ * start-up:
+ *
+ *   # folio-rename rule profiles 1
+ *   <name><TAB>prefix=Ms-12_<TAB>digits=3<TAB>start=1 ...
+ *
+ * one line per profile, holding only the rules that differ from those of a new RenameJob
+ * (the starting folio always), with tabs, line breaks and backslashes escaped. A profile
+ * is applied to a RenameJob, so the two tabs of the GUI, the command line and BatchRename
+ * all share it. What belongs to one run rather than to the rules (the folder, test mode,
+ * the parallelism, the checksums, the folder to move to) is not part of a profile.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class RuleProfiles {
+
+       public static final String FILE = ".folio-rename-profiles";
+       private static final String HEADER = "# folio-rename rule profiles 1";
+       private static final Charset UTF8 = Charset.forName("UTF-8");
+
+       //the rules of each profile, as key=value pairs, by name
+       private final Map<String, Map<String, String>> profiles = new TreeMap<String, Map<String, String>>(String.CASE_INSENSITIVE_ORDER);
+
+
+       //the file of the profiles of the user, in the home folder
+       public static File defaultFile(){
+               return new File(System.getProperty("user.home"), FILE);
+       }
+
+
+       /* Reads the profiles of a file, in place of those held. A missing file holds no
+        * profile; a line that cannot be read stops the load, naming the line.
+        */
+       public void load(File file) throws IOException{
+               profiles.clear();
+               if(file.exists() == false)
+                       return;
+               BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF8);
+               try {
+                       String line = reader.readLine();
+                       if(line == null)
+                               return;
+                       if(line.equals(HEADER) == false)
+                               throw new IOException(file + " is not a file of rule profiles");
+                       int number = 1;
+                       while((line = reader.readLine()) != null){
+                               number++;
+                               if(line.trim().isEmpty() || line.startsWith("#"))
+                                       continue;
+                               String[] fields = line.split("\t", -1);
+                               Map<String, String> rules = new LinkedHashMap<String, String>();
+                               for(int i = 1; i < fields.length; i++){
+                                       int equals = fields[i].indexOf('=');
+                                       if(equals < 0)
+                                               throw new IOException(file.getName() + ", line " + number + ": expected key=value, not " + fields[i]);
+                                       rules.put(fields[i].substring(0, equals), RenameTransaction.unescape(fields[i].substring(equals + 1)));
+                               }
+                               try {
+                                       apply(rules, new RenameJob());
+                               }
+                               catch (IllegalArgumentException e) {
+                                       throw new IOException(file.getName() + ", line " + number + ": " + e.getMessage());
+                               }
+                               profiles.put(RenameTransaction.unescape(fields[0]), rules);
+                       }
+               }
+               finally {
+                       reader.close();
+               }
+       }
+
+
+       //writes every profile to file, which is replaced in one move
+       public void save(File file) throws IOException{
+               Path target = file.toPath();
+               Path temp = target.resolveSibling(file.getName() + ".tmp");
+               BufferedWriter writer = Files.newBufferedWriter(temp, UTF8);
+               try {
+                       writer.write(HEADER + "\n");
+                       StringBuilder line = new StringBuilder(256);
+                       for(Map.Entry<String, Map<String, String>> profile : profiles.entrySet()){
+                               line.setLength(0);
+                               RenameTransaction.escape(line, profile.getKey());
+                               for(Map.Entry<String, String> rule : profile.getValue().entrySet())
+                                       RenameTransaction.escape(line.append('\t').append(rule.getKey()).append('='), rule.getValue());
+                               writer.append(line).append('\n');
+                       }
+               }
+               finally {
+                       writer.close();
+               }
+               Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+       }
+
+
+       //the names of the profiles, in alphabetical order
+       public List<String> names(){
+               return new ArrayList<String>(profiles.keySet());
+       }
+
+
+       public boolean contains(String name){
+               return profiles.containsKey(name);
+       }
+
+
+       //keeps the rules of job under name, in place of a profile of that name
+       public void put(String name, RenameJob job){
+               if(name.trim().isEmpty())
+                       throw new IllegalArgumentException("A profile needs a name");
+               profiles.remove(name);
+               profiles.put(name, capture(job));
+       }
+
+
+       public void remove(String name){
+               profiles.remove(name);
+       }
+
+
+       //gives job the rules of the named profile
+       public void apply(String name, RenameJob job){
+               Map<String, String> rules = profiles.get(name);
+               if(rules == null)
+                       throw new IllegalArgumentException("No rule profile named " + name);
+               apply(rules, job);
+       }
+
+
+       //the rules of job that differ from those of a new RenameJob, the starting folio always
+       static Map<String, String> capture(RenameJob job){
+               RenameJob none = new RenameJob();
+               Map<String, String> rules = new LinkedHashMap<String, String>();
+               putIfChanged(rules, "prefix", job.getPrefix(), none.getPrefix());
+               putIfChanged(rules, "suffix", job.getSuffix(), none.getSuffix());
+               putIfChanged(rules, "preRecto", job.getPreRecto(), none.getPreRecto());
+               putIfChanged(rules, "preVerso", job.getPreVerso(), none.getPreVerso());
+               putIfChanged(rules, "recto", job.getFolioRecto(), none.getFolioRecto());
+               putIfChanged(rules, "verso", job.getFolioVerso(), none.getFolioVerso());
+               putIfChanged(rules, "separator", job.getSeparator(), none.getSeparator());
+               putIfChanged(rules, "digits", job.getDigits(), none.getDigits());
+               rules.put("start", Integer.toString(job.getStartingNum()));
+               putIfChanged(rules, "startWith", job.isStartWithVerso() ? "verso" : "recto", "recto");
+               putIfChanged(rules, "spread", Boolean.toString(job.isSpread()), "false");
+               putIfChanged(rules, "foliation", job.getFoliation(), none.getFoliation());
+               putIfChanged(rules, "numbering", job.getNumbering().getName(), none.getNumbering().getName());
+               putIfChanged(rules, "sort", job.getSortOrder().name().toLowerCase(Locale.ROOT), none.getSortOrder().name().toLowerCase(Locale.ROOT));
+               putIfChanged(rules, "target", job.getProfile().name().toLowerCase(Locale.ROOT), none.getProfile().name().toLowerCase(Locale.ROOT));
+               putIfChanged(rules, "sanitize", Boolean.toString(job.isSanitize()), "false");
+               putIfChanged(rules, "folders", Boolean.toString(job.isFolders()), "false");
+               putIfChanged(rules, "ignoreExtension", Boolean.toString(job.isIgnoreExtension()), "false");
+               return rules;
+       }
+
+
+       private static void putIfChanged(Map<String, String> rules, String key, String value, String standard){
+               if(value.equals(standard) == false)
+                       rules.put(key, value);
+       }
+
+
+       /* Sets the rules of job from key=value pairs; the rules not given keep their value.
+        * An unknown key or a value that cannot be read throws an IllegalArgumentException.
+        */
+       static void apply(Map<String, String> rules, RenameJob job){
+               for(Map.Entry<String, String> rule : rules.entrySet()){
+                       String key = rule.getKey();
+                       String value = rule.getValue();
+                       if(key.equals("prefix"))
+                               job.setPrefix(value);
+                       else if(key.equals("suffix"))
+                               job.setSuffix(value);
+                       else if(key.equals("preRecto"))
+                               job.setPreRecto(value);
+                       else if(key.equals("preVerso"))
+                               job.setPreVerso(value);
+                       else if(key.equals("recto"))
+                               job.setFolioRecto(value);
+                       else if(key.equals("verso"))
+                               job.setFolioVerso(value);
+                       else if(key.equals("separator"))
+                               job.setSeparator(value);
+                       else if(key.equals("digits")){
+                               if(value.isEmpty() == false)
+                                       Integer.parseInt(value);
+                               job.setDigits(value);
+                       }
+                       else if(key.equals("start"))
+                               job.setStartingNum(Integer.parseInt(value));
+                       else if(key.equals("startWith")){
+                               if(value.equals("recto") == false && value.equals("verso") == false)
+                                       throw new IllegalArgumentException("startWith must be recto or verso");
+                               job.setStartWithVerso(value.equals("verso"));
+                       }
+                       else if(key.equals("spread"))
+                               job.setSpread(bool(key, value));
+                       else if(key.equals("foliation"))
+                               job.setFoliation(value);
+                       else if(key.equals("numbering")){
+                               NumberingScheme numbering = NumberingScheme.forName(value);
+                               if(numbering == null)
+                                       throw new IllegalArgumentException("Unknown numbering: " + value);
+                               job.setNumbering(numbering);
+                       }
+                       else if(key.equals("sort"))
+                               job.setSortOrder(SortOrder.valueOf(value.toUpperCase(Locale.ROOT)));
+                       else if(key.equals("target")){
+                               FileSystemProfile profile = FileSystemProfile.forName(value);
+                               if(profile == null)
+                                       throw new IllegalArgumentException("Unknown target: " + value);
+                               job.setProfile(profile);
+                       }
+                       else if(key.equals("sanitize"))
+                               job.setSanitize(bool(key, value));
+                       else if(key.equals("folders"))
+                               job.setFolders(bool(key, value));
+                       else if(key.equals("ignoreExtension"))
+                               job.setIgnoreExtension(bool(key, value));
+                       else
+                               throw new IllegalArgumentException("Unknown rule: " + key);
+               }
+               if(job.getFoliation().isEmpty() == false)
+                       FoliationSequence.parse(job.getFoliation(), job.getNumbering());
+       }
+
+
+       private static boolean bool(String key, String value){
+               if(value.equals("true") == false && value.equals("false") == false)
+                       throw new IllegalArgumentException(key + " must be true or false");
+               return value.equals("true");
+       }
+
+}
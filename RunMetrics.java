@@ -0,0 +1,261 @@
+/* Folio Batch Renamer
+ *
+ * RunMetrics measures one pass of a RenameJob: how many files were scanned, renamed,
+ * skipped (already named, or left alone by an undo) and failed, the time spent in each
+ * phase (listing the folder, sorting, naming, executing the renames), the latency of
+ * each move and the bytes hashed. toJson() gives it as one JSON object for scripts and
+ * dashboards; publish() makes it the last pass shown through JMX.
+ * The latencies go into a histogram of buckets growing by powers of two, each split in
+ * 16, so that the record of a move is one atomic increment whatever the size of the
+ * folder, and p50 / p99 are read to within about 6%.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class RunMetrics {
+
+       public enum Phase { LIST, SORT, PLAN, EXECUTE }
+
+       public static final String JMX_NAME = "folioFileRename:type=RenameMetrics";
+       private static final int SUB_BITS = 4;
+
+       private final String folder;
+       private final String mode;                //rename, test or undo
+       private final String started;
+       private final long[] phases = new long[Phase.values().length];   //nanoseconds
+       private final AtomicLongArray moves = new AtomicLongArray(64 << SUB_BITS);
+       private final AtomicLong moveCount = new AtomicLong();
+       private final AtomicLong moveMax = new AtomicLong();
+       private int scanned, renamed, skipped, failed;
+       private long bytesHashed;
+       private boolean cancelled;
+
+
+       public RunMetrics(String folder, String mode){
+               this.folder = folder;
+               this.mode = mode;
+               this.started = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date());
+       }
+
+
+       public void addPhase(Phase phase, long nanos){
+               phases[phase.ordinal()] += nanos;
+       }
+
+       public void setScanned(int scanned){
+               this.scanned = scanned;
+       }
+
+       public void setRenamed(int renamed){
+               this.renamed = renamed;
+       }
+
+       public void setSkipped(int skipped){
+               this.skipped = skipped;
+       }
+
+       public void setFailed(int failed){
+               this.failed = failed;
+       }
+
+       public void setBytesHashed(long bytesHashed){
+               this.bytesHashed = bytesHashed;
+       }
+
+       public void setCancelled(boolean cancelled){
+               this.cancelled = cancelled;
+       }
+
+       public String getFolder(){
+               return folder;
+       }
+
+       public String getMode(){
+               return mode;
+       }
+
+       public int getScanned(){
+               return scanned;
+       }
+
+       public int getRenamed(){
+               return renamed;
+       }
+
+       public int getSkipped(){
+               return skipped;
+       }
+
+       public int getFailed(){
+               return failed;
+       }
+
+       public long getBytesHashed(){
+               return bytesHashed;
+       }
+
+       public double getMillis(Phase phase){
+               return phases[phase.ordinal()] / 1e6;
+       }
+
+
+       //one move of a file; any thread may call it
+       public void recordMove(long nanos){
+               moves.incrementAndGet(bucket(nanos));
+               moveCount.incrementAndGet();
+               long max = moveMax.get();
+               while(nanos > max && moveMax.compareAndSet(max, nanos) == false)
+                       max = moveMax.get();
+       }
+
+
+       //the move latency under which a fraction p of the moves fall, in microseconds
+       public long moveMicros(double p){
+               long count = moveCount.get();
+               if(count == 0)
+                       return 0;
+               long rank = Math.max(1, (long) Math.ceil(p * count));
+               long seen = 0;
+               for(int i = 0; i < moves.length(); i++){
+                       seen += moves.get(i);
+                       if(seen >= rank)
+                               return Math.min(upperBound(i), moveMax.get()) / 1000;
+               }
+               return moveMax.get() / 1000;
+       }
+
+
+       //values below 16 have a bucket each; above, 16 buckets per power of two
+       private static int bucket(long value){
+               if(value < (1 << SUB_BITS))
+                       return (int) Math.max(value, 0);
+               int exponent = 63 - Long.numberOfLeadingZeros(value);
+               int sub = (int) (value >> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+               return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+       }
+
+       private static long upperBound(int bucket){
+               if(bucket < (1 << SUB_BITS))
+                       return bucket;
+               int exponent = (bucket >> SUB_BITS) + SUB_BITS - 1;
+               long sub = bucket & ((1 << SUB_BITS) - 1);
+               long step = 1L << (exponent - SUB_BITS);
+               return (((1 << SUB_BITS) + sub) << (exponent - SUB_BITS)) + step - 1;
+       }
+
+
+       public String toJson(){
+               StringBuilder json = new StringBuilder(512).append('{');
+               json.append("\"folder\":");
+               quote(json, folder);
+               json.append(",\"mode\":\"").append(mode).append('"');
+               json.append(",\"started\":\"").append(started).append('"');
+               json.append(",\"cancelled\":").append(cancelled);
+               json.append(",\"files\":{\"scanned\":").append(scanned).append(",\"renamed\":").append(renamed)
+                       .append(",\"skipped\":").append(skipped).append(",\"failed\":").append(failed).append('}');
+               json.append(",\"phases_ms\":{");
+               for(Phase phase : Phase.values()){
+                       if(phase.ordinal() > 0)
+                               json.append(',');
+                       json.append('"').append(phase.name().toLowerCase(Locale.ROOT)).append("\":")
+                               .append(String.format(Locale.ROOT, "%.3f", getMillis(phase)));
+               }
+               json.append('}');
+               json.append(",\"move_latency_us\":{\"count\":").append(moveCount.get())
+                       .append(",\"p50\":").append(moveMicros(0.50)).append(",\"p99\":").append(moveMicros(0.99))
+                       .append(",\"max\":").append(moveMax.get() / 1000).append('}');
+               json.append(",\"bytes_hashed\":").append(bytesHashed);
+               return json.append('}').toString();
+       }
+
+
+       //a JSON string
+       static StringBuilder quote(StringBuilder json, String text){
+               json.append('"');
+               for(int i = 0; i < text.length(); i++){
+                       char c = text.charAt(i);
+                       if(c == '"' || c == '\\')
+                               json.append('\\').append(c);
+                       else if(c < 0x20)
+                               json.append(String.format("\\u%04x", (int) c));
+                       else
+                               json.append(c);
+               }
+               return json.append('"');
+       }
+
+
+       // JMX ----------------------------------------------------------------------
+
+       private static final Published PUBLISHED = new Published();
+
+
+       //makes metrics the last pass, and adds it to the totals
+       public static void publish(RunMetrics metrics){
+               PUBLISHED.add(metrics);
+       }
+
+
+       /* Registers the metrics with the platform MBean server. The command line does not
+        * call it: a process that ends with its pass has nobody to show them to.
+        */
+       public static void enableJmx(){
+               try {
+                       ObjectName name = new ObjectName(JMX_NAME);
+                       if(ManagementFactory.getPlatformMBeanServer().isRegistered(name) == false)
+                               ManagementFactory.getPlatformMBeanServer().registerMBean(PUBLISHED, name);
+               }
+               catch (JMException e) {
+                       System.err.println("Rename metrics not available through JMX: " + e.getMessage());
+               }
+       }
+
+
+       private static final class Published implements RenameMetricsMXBean {
+               private volatile RunMetrics last = new RunMetrics("", "none");
+               private final AtomicLong runs = new AtomicLong();
+               private final AtomicLong renamedTotal = new AtomicLong();
+               private final AtomicLong failuresTotal = new AtomicLong();
+
+               void add(RunMetrics metrics){
+                       runs.incrementAndGet();
+                       renamedTotal.addAndGet(metrics.renamed);
+                       failuresTotal.addAndGet(metrics.failed);
+                       last = metrics;
+               }
+
+               public long getRuns(){ return runs.get(); }
+               public long getFilesRenamedTotal(){ return renamedTotal.get(); }
+               public long getFailuresTotal(){ return failuresTotal.get(); }
+
+               public String getLastFolder(){ return last.folder; }
+               public String getLastMode(){ return last.mode; }
+               public long getLastScanned(){ return last.scanned; }
+               public long getLastRenamed(){ return last.renamed; }
+               public long getLastSkipped(){ return last.skipped; }
+               public long getLastFailed(){ return last.failed; }
+               public double getLastListMillis(){ return last.getMillis(Phase.LIST); }
+               public double getLastSortMillis(){ return last.getMillis(Phase.SORT); }
+               public double getLastPlanMillis(){ return last.getMillis(Phase.PLAN); }
+               public double getLastExecuteMillis(){ return last.getMillis(Phase.EXECUTE); }
+               public long getLastMoveP50Micros(){ return last.moveMicros(0.50); }
+               public long getLastMoveP99Micros(){ return last.moveMicros(0.99); }
+               public long getLastBytesHashed(){ return last.bytesHashed; }
+               public String getLastSummaryJson(){ return last.toJson(); }
+       }
+
+}
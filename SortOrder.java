@@ -0,0 +1,30 @@
+/* Folio Batch Renamer
+ *
+ * SortOrder is the order in which the files (or folders) of a folder receive their
+ * folio numbers.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+public enum SortOrder {
+
+       NAME("alphabetical"),                //case ignored, IMG_10 before IMG_2, as the tool always did
+       NATURAL("natural (IMG_2 before IMG_10)"),
+       MODIFIED("modification time"),
+       CAPTURED("capture time (EXIF)");     //images without one come last
+
+       private final String label;
+
+       SortOrder(String label){
+               this.label = label;
+       }
+
+       public String toString(){
+               return label;
+       }
+
+}
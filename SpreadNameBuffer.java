@@ -0,0 +1,148 @@
+/* Folio Batch Renamer
+ *
+ * SpreadNameBuffer writes the names of a run of spreads (verso - recto) in one reusable
+ * character buffer. The prefix, the recto and verso texts, the separator, the suffix and
+ * the extension are laid out once; for each spread only the two folio numbers are
+ * written over the previous ones. The layout is redone only when a number grows by one
+ * digit or the extension changes, so naming a spread allocates nothing: the buffer is
+ * itself the name, as a CharSequence, and toString() is only needed where a String is.
+ * A buffer is used by one thread at a time; FolioNamingPlan.newSpreadBuffer() gives one.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+public final class SpreadNameBuffer implements CharSequence {
+
+       private final String prefix;
+       private final String folioVerso;
+       private final String separator;
+       private final String folioRecto;
+       private final String suffix;
+       private final int digits;
+       private final int startingNum;
+
+       private char[] chars = new char[64];
+       private int length = 0;
+       private int versoAt, versoWidth = -1;     //where the verso number is written, on how many characters
+       private int rectoAt, rectoWidth = -1;
+       private String extension;
+
+
+       SpreadNameBuffer(String prefix, String folioVerso, String separator, String folioRecto, String suffix,
+                       int digits, int startingNum){
+               this.prefix = prefix;
+               this.folioVerso = folioVerso;
+               this.separator = separator;
+               this.folioRecto = folioRecto;
+               this.suffix = suffix;
+               this.digits = digits;
+               this.startingNum = startingNum;
+       }
+
+
+       //the buffer now holds the name of the i-th spread, the same as FolioNamingPlan.appendName()
+       public SpreadNameBuffer name(int index, String extension){
+               int verso = startingNum + index - 1;
+               int recto = startingNum + index;
+               int vw = width(verso), rw = width(recto);
+               if(vw != versoWidth || rw != rectoWidth || extension.equals(this.extension) == false)
+                       layout(vw, rw, extension);
+               write(versoAt, vw, verso);
+               write(rectoAt, rw, recto);
+               return this;
+       }
+
+
+       private void layout(int vw, int rw, String extension){
+               length = 0;
+               put(prefix);
+               versoAt = length;
+               skip(vw);
+               put(folioVerso);
+               put(separator);
+               rectoAt = length;
+               skip(rw);
+               put(folioRecto);
+               put(suffix);
+               put(extension);
+               versoWidth = vw;
+               rectoWidth = rw;
+               this.extension = extension;
+       }
+
+
+       private void put(String text){
+               int at = length;
+               skip(text.length());
+               text.getChars(0, text.length(), chars, at);
+       }
+
+
+       //makes room for n characters at the end of the name
+       private void skip(int n){
+               if(length + n > chars.length){
+                       char[] bigger = new char[Math.max(2 * chars.length, length + n)];
+                       System.arraycopy(chars, 0, bigger, 0, length);
+                       chars = bigger;
+               }
+               length += n;
+       }
+
+
+       //characters appendPadded() writes for number, the sign counting in the width
+       private int width(int number){
+               long value = Math.abs((long) number);
+               int length = 1;
+               for(long rest = value / 10; rest > 0; rest /= 10)
+                       length++;
+               if(number < 0)
+                       return 1 + Math.max(digits - 1, length);
+               return Math.max(digits, length);
+       }
+
+
+       //number zero-padded on exactly width characters, from at
+       private void write(int at, int width, int number){
+               long value = Math.abs((long) number);
+               int end = at + width;
+               int i = end - 1;
+               do {
+                       chars[i--] = (char) ('0' + value % 10);
+                       value /= 10;
+               } while(value > 0);
+               int first = number < 0 ? at + 1 : at;
+               while(i >= first)
+                       chars[i--] = '0';
+               if(number < 0)
+                       chars[at] = '-';
+       }
+
+
+       public int length(){
+               return length;
+       }
+
+
+       public char charAt(int index){
+               if(index < 0 || index >= length)
+                       throw new IndexOutOfBoundsException(Integer.toString(index));
+               return chars[index];
+       }
+
+
+       public CharSequence subSequence(int start, int end){
+               if(start < 0 || end > length || start > end)
+                       throw new IndexOutOfBoundsException(start + ", " + end);
+               return new String(chars, start, end - start);
+       }
+
+
+       public String toString(){
+               return new String(chars, 0, length);
+       }
+
+}
@@ -0,0 +1,218 @@
+/* Folio Batch Renamer
+ *
+ * UndoLog is the record of the renames done in a folder, kept in the folder itself so
+ * that it travels with the files. Every real pass appends one batch, one line per file
+ * that was renamed: old name, new name, size and file key (the inode on Unix-like
+ * systems), so that undoing can tell the renamed file from another one given its name
+ * since. The file is only ever appended to: a batch that was undone gets an "undone"
+ * line, and a batch cut short by a crash has no "end" line and is ignored.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class UndoLog {
+
+       public static final String FILE = ".folio-rename.undo";
+       private static final String HEADER = "folio-rename undo 1";
+       private static final String BATCH = "batch";
+       private static final String END = "end";
+       private static final String UNDONE = "undone";
+       private static final String NO_KEY = "-";
+       private static final Charset UTF8 = Charset.forName("UTF-8");
+       private static final int CHUNK = 1 << 16;
+
+       //one rename of a batch
+       public static final class Record {
+               public final String oldName;
+               public final String newName;
+               public final long size;
+               public final String fileKey;      //null when the file system has none
+
+               Record(String oldName, String newName, long size, String fileKey){
+                       this.oldName = oldName;
+                       this.newName = newName;
+                       this.size = size;
+                       this.fileKey = fileKey;
+               }
+       }
+
+       //the renames of one pass
+       public static final class Batch {
+               public final String id;
+               public final boolean folders;
+               public final String date;
+               public final List<Record> records = new ArrayList<Record>();
+
+               Batch(String id, boolean folders, String date){
+                       this.id = id;
+                       this.folders = folders;
+                       this.date = date;
+               }
+       }
+
+
+       private UndoLog(){
+       }
+
+
+       /* Appends the renames that transaction did to the log of dir; entries are the
+        * entries queued in the transaction, in the same order, null for a row to leave out
+        * (renamed back since). Nothing is written when no file was renamed.
+        */
+       public static void append(Path dir, boolean folders, RenameBatch transaction, List<DirectoryScan.Entry> entries) throws IOException{
+
+               String id = Long.toString(System.currentTimeMillis(), 36);
+               StringBuilder text = new StringBuilder(CHUNK + 1024);
+
+               //the log is only created for a batch that renamed something
+               int first = 0;
+               while(first < transaction.size() && (transaction.isRenamed(first) == false || entries.get(first) == null))
+                       first++;
+               if(first == transaction.size())
+                       return;
+
+               Path log = dir.resolve(FILE);
+               FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+               try {
+                       if(channel.size() == 0)
+                               text.append(HEADER).append('\n');
+                       text.append(BATCH).append('\t').append(id).append('\t').append(folders ? "folders" : "files").append('\t')
+                               .append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date())).append('\n');
+                       for(int i = first; i < transaction.size(); i++){
+                               DirectoryScan.Entry entry = entries.get(i);
+                               if(transaction.isRenamed(i) == false || entry == null)
+                                       continue;
+                               RenameTransaction.escape(text, transaction.getOldName(i)).append('\t');
+                               RenameTransaction.escape(text, transaction.getNewName(i)).append('\t');
+                               text.append(entry.size).append('\t');
+                               RenameTransaction.escape(text, entry.fileKey == null ? NO_KEY : entry.fileKey).append('\n');
+                               if(text.length() >= CHUNK){
+                                       write(channel, text);
+                                       text.setLength(0);
+                               }
+                       }
+                       text.append(END).append('\t').append(id).append('\n');
+                       write(channel, text);
+                       channel.force(false);
+               }
+               finally {
+                       channel.close();
+               }
+       }
+
+
+       /* The last batch of the log of dir that was not undone yet, or null. The log is read
+        * twice rather than held in memory: once for the batch ids, once for the records of
+        * the batch wanted.
+        */
+       public static Batch last(Path dir) throws IOException{
+
+               Path log = dir.resolve(FILE);
+               if(Files.exists(log) == false)
+                       return null;
+
+               List<String> complete = new ArrayList<String>();
+               Set<String> undone = new HashSet<String>();
+               BufferedReader reader = open(log);
+               try {
+                       String line;
+                       while((line = reader.readLine()) != null){
+                               if(line.startsWith(END + "\t"))
+                                       complete.add(line.substring(END.length() + 1));
+                               else if(line.startsWith(UNDONE + "\t"))
+                                       undone.add(line.substring(UNDONE.length() + 1));
+                       }
+               }
+               finally {
+                       reader.close();
+               }
+
+               String wanted = null;
+               for(int i = complete.size() - 1; i >= 0 && wanted == null; i--){
+                       if(undone.contains(complete.get(i)) == false)
+                               wanted = complete.get(i);
+               }
+               if(wanted == null)
+                       return null;
+
+               Batch batch = null;
+               reader = open(log);
+               try {
+                       String line;
+                       while((line = reader.readLine()) != null){
+                               String[] fields = line.split("\t", -1);
+                               if(batch == null){
+                                       if(fields.length == 4 && fields[0].equals(BATCH) && fields[1].equals(wanted))
+                                               batch = new Batch(wanted, fields[2].equals("folders"), fields[3]);
+                               }
+                               else if(fields.length == 4){
+                                       String key = RenameTransaction.unescape(fields[3]);
+                                       batch.records.add(new Record(RenameTransaction.unescape(fields[0]), RenameTransaction.unescape(fields[1]),
+                                               Long.parseLong(fields[2]), key.equals(NO_KEY) ? null : key));
+                               }
+                               else if(fields.length == 2 && fields[0].equals(END) && fields[1].equals(wanted))
+                                       break;
+                       }
+               }
+               catch (NumberFormatException e) {
+                       throw new IOException("Damaged undo log " + log);
+               }
+               finally {
+                       reader.close();
+               }
+               return batch;
+       }
+
+
+       //records that the batch was undone, so that the next undo goes one batch further back
+       public static void markUndone(Path dir, Batch batch) throws IOException{
+               FileChannel channel = FileChannel.open(dir.resolve(FILE), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+               try {
+                       write(channel, new StringBuilder(UNDONE).append('\t').append(batch.id).append('\n'));
+                       channel.force(false);
+               }
+               finally {
+                       channel.close();
+               }
+       }
+
+
+       //a reader past the header; an empty log (left by an older version) reads as no batch
+       private static BufferedReader open(Path log) throws IOException{
+               BufferedReader reader = Files.newBufferedReader(log, UTF8);
+               String header = reader.readLine();
+               if(header != null && HEADER.equals(header) == false){
+                       reader.close();
+                       throw new IOException("Unknown undo log format in " + log);
+               }
+               return reader;
+       }
+
+
+       private static void write(FileChannel channel, CharSequence text) throws IOException{
+               ByteBuffer buffer = UTF8.encode(CharBuffer.wrap(text));
+               while(buffer.hasRemaining())
+                       channel.write(buffer);
+       }
+
+}
@@ -0,0 +1,336 @@
+/* Folio Batch Renamer
+ *
+ * ViewTransaction publishes a view of a folder: another folder holding, under the new
+ * names, hard links or symbolic links to the files, which keep their own names (a DAM
+ * indexing the masters by their capture names does not see anything change). A link
+ * costs no space for the content, so several views of a collection (by folio, by page)
+ * can sit side by side.
+ * The names the view made are listed in a hidden file of the view folder. Building the
+ * view again only touches what changed: a link that already leads to the right file is
+ * left as it is (the file key read by DirectoryScan, which follows the links, tells),
+ * a link leading elsewhere is replaced in one atomic move, and the names of the last
+ * view that are no longer given are removed. A name held by a file the view did not make
+ * is never touched. The links are made side by side on the chosen parallelism.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ViewTransaction implements RenameBatch {
+
+       public static final String STATE = ".folio-rename.view";
+       private static final String HEADER = "# folio-rename view";
+       private static final Charset UTF8 = Charset.forName("UTF-8");
+
+       private final Path source;
+       private final Path view;
+       private final boolean folders;
+       private final boolean symbolic;
+       private final Map<String, String> sourceKeys;    //the file key of each file of source, by name
+       private final List<String> oldNames = new ArrayList<String>();
+       private final List<String> newNames = new ArrayList<String>();
+       private final String runId = Long.toString(System.currentTimeMillis(), 36);
+       private boolean[] renamed;
+       private int failCount = 0;
+       private boolean stopped = false;
+       private int parallelism = 1;
+       private RenamedListener renamedListener;
+       private RunMetrics metrics;
+
+
+       /* A view of the files (or folders) of source in the folder view, made of hard or
+        * symbolic links; entries are those of source as DirectoryScan listed them.
+        */
+       public ViewTransaction(Path source, Path view, List<DirectoryScan.Entry> entries, boolean folders, boolean symbolic){
+               this.source = source;
+               this.view = view;
+               this.folders = folders;
+               this.symbolic = symbolic;
+               this.sourceKeys = keys(entries);
+       }
+
+
+       //every file is queued: even under the same name, it needs its link
+       public boolean add(String oldName, String newName){
+               oldNames.add(oldName);
+               newNames.add(newName);
+               return true;
+       }
+
+
+       public void setParallelism(int parallelism){
+               if(parallelism < 1)
+                       throw new IllegalArgumentException("The parallelism must be at least 1");
+               this.parallelism = parallelism;
+       }
+
+
+       public void setRenamedListener(RenamedListener renamedListener){
+               this.renamedListener = renamedListener;
+       }
+
+
+       public void setMetrics(RunMetrics metrics){
+               this.metrics = metrics;
+       }
+
+
+       public int size(){
+               return oldNames.size();
+       }
+
+
+       public String getOldName(int i){
+               return oldNames.get(i);
+       }
+
+
+       public String getNewName(int i){
+               return newNames.get(i);
+       }
+
+
+       //true when the view holds the i-th file under its new name, made now or before
+       public boolean isRenamed(int i){
+               return renamed != null && renamed[i];
+       }
+
+
+       public int getFailCount(){
+               return failCount;
+       }
+
+
+       //a view stopped halfway keeps the links made: building it again completes it
+       public boolean isRolledBack(){
+               return false;
+       }
+
+
+       public boolean isStopped(){
+               return stopped;
+       }
+
+
+       /* The names of view a new view must not take: the entries the last view did not
+        * make. None when view does not exist yet.
+        */
+       public static List<String> foreignNames(Path view) throws IOException{
+               List<String> names = new ArrayList<String>();
+               if(Files.isDirectory(view) == false)
+                       return names;
+               Set<String> made = read(view.resolve(STATE), null);
+               for(String name : RenameJob.namesIn(view)){
+                       if(made.contains(name) == false && DirectoryScan.isToolFile(name) == false)
+                               names.add(name);
+               }
+               return names;
+       }
+
+
+       /* Makes the links, then removes the names of the last view no longer given and
+        * lists the names of this one. Returns true when every file has its link: false
+        * after a stop too, the view being only partly built.
+        */
+       public boolean execute(final RenameJob.Listener listener) throws IOException{
+
+               final int n = oldNames.size();
+               final AtomicInteger done = new AtomicInteger();
+               final AtomicInteger made = new AtomicInteger();
+               final AtomicInteger kept = new AtomicInteger();
+               renamed = new boolean[n];
+               failCount = 0;
+               stopped = false;
+
+               if(folders && symbolic == false)
+                       throw new IOException("Folders can only be given symbolic links");
+               Files.createDirectories(view);
+               if(symbolic == false && Files.getFileStore(source).equals(Files.getFileStore(view)) == false)
+                       throw new IOException("Hard links cannot lead to another volume: use symbolic links for " + view);
+
+               //what the view holds, and what the last view made of it
+               String kind = (symbolic ? "symbolic" : "hard") + "\t" + source.toAbsolutePath();
+               String[] lastKind = new String[1];
+               final Set<String> lastNames = read(view.resolve(STATE), lastKind);
+               final boolean sameKind = kind.equals(lastKind[0]);
+               List<String> others = new ArrayList<String>();
+               List<DirectoryScan.Entry> entries = DirectoryScan.scan(view, folders, others);
+               final Map<String, String> viewKeys = keys(entries);
+               final Set<String> taken = new HashSet<String>(viewKeys.keySet());
+               taken.addAll(others);
+
+               Parallel.forEach(n, parallelism, new Parallel.Step(){
+                       public void run(int i){
+                               if(listener.isStopRequested())
+                                       return;
+                               String name = newNames.get(i);
+                               Path from = source.resolve(oldNames.get(i));
+                               Path link = view.resolve(name);
+                               try {
+                                       long start = System.nanoTime();
+                                       boolean ours = lastNames.contains(name);
+                                       if(ours && sameKind && sameFile(sourceKeys.get(oldNames.get(i)), viewKeys.get(name), from, link))
+                                               kept.incrementAndGet();        //already the right link
+                                       else if(taken.contains(name) && ours == false)
+                                               throw new FileAlreadyExistsException(link.toString());
+                                       else {
+                                               link(from, link, ours && taken.contains(name), i);
+                                               made.incrementAndGet();
+                                               if(metrics != null)
+                                                       metrics.recordMove(System.nanoTime() - start);
+                                               listener.log(oldNames.get(i) + "\n -> " + link + "\n");
+                                       }
+                                       renamed[i] = true;
+                                       if(renamedListener != null)
+                                               renamedListener.renamed(i);
+                               }
+                               catch (IOException e) {
+                                       reportFailure(listener, i, e);
+                               }
+                               listener.progress(done.incrementAndGet(), n);
+                       }
+               });
+
+               //the names of the last view that this one does not give
+               Set<String> given = new HashSet<String>(newNames);
+               int removed = 0;
+               for(String name : lastNames){
+                       if(given.contains(name) == false && Files.isDirectory(view.resolve(name), LinkOption.NOFOLLOW_LINKS) == false){
+                               if(Files.deleteIfExists(view.resolve(name)))
+                                       removed++;
+                       }
+               }
+               //a link of the last view not reached (stop) or not replaced (failure) stays listed
+               Set<String> listed = new HashSet<String>();
+               for(int i = 0; i < n; i++){
+                       String name = newNames.get(i);
+                       if(renamed[i] || (lastNames.contains(name) && Files.exists(view.resolve(name), LinkOption.NOFOLLOW_LINKS)))
+                               listed.add(name);
+               }
+               write(view.resolve(STATE), kind, listed);
+               stopped = listener.isStopRequested() && done.get() < n;
+
+               listener.log("View " + view + ": " + made.get() + " link(s) made, " + kept.get() + " already there, "
+                       + removed + " removed" + (failCount > 0 ? ", " + failCount + " failed" : "")
+                       + (stopped ? ", stopped with " + (n - done.get()) + " file(s) left: build it again to complete it" : "") + "\n");
+               listener.progress(n, n);
+               return failCount == 0 && stopped == false;
+
+       }//end execute
+
+
+       //the file key of every entry, by name
+       private static Map<String, String> keys(List<DirectoryScan.Entry> entries){
+               Map<String, String> keys = new HashMap<String, String>(2 * entries.size());
+               for(DirectoryScan.Entry entry : entries)
+                       keys.put(entry.name, entry.fileKey);
+               return keys;
+       }
+
+
+       //true when the link leads to the file; the file keys answer without a look at the disk
+       private static boolean sameFile(String fileKey, String linkKey, Path file, Path link) throws IOException{
+               if(linkKey == null)
+                       return fileKey == null && Files.exists(link) && Files.isSameFile(file, link);
+               return linkKey.equals(fileKey);
+       }
+
+
+       /* Makes link lead to file; an existing link of the view is replaced through a
+        * temporary name, so that the name is never missing.
+        */
+       private void link(Path file, Path link, boolean replace, int i) throws IOException{
+               Path made = replace ? view.resolve(".folio-rename-" + runId + "-" + i + ".link") : link;
+               if(symbolic){
+                       Path target;
+                       try {
+                               target = view.toAbsolutePath().relativize(file.toAbsolutePath());    //the view moves with the masters
+                       }
+                       catch (IllegalArgumentException e) {
+                               target = file.toAbsolutePath();       //another drive letter
+                       }
+                       Files.createSymbolicLink(made, target);
+               }
+               else
+                       Files.createLink(made, file);
+               if(replace){
+                       try {
+                               Files.move(made, link, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                       }
+                       finally {
+                               Files.deleteIfExists(made);
+                       }
+               }
+       }
+
+
+       //the names listed in a state file, its kind line going to kind[0] when kind is not null
+       private static Set<String> read(Path state, String[] kind) throws IOException{
+               Set<String> names = new HashSet<String>();
+               if(Files.exists(state) == false)
+                       return names;
+               BufferedReader reader = Files.newBufferedReader(state, UTF8);
+               try {
+                       String line = reader.readLine();
+                       if(line == null || line.startsWith(HEADER + "\t") == false)
+                               throw new IOException(state + " is not the list of a view");
+                       if(kind != null)
+                               kind[0] = line.substring(HEADER.length() + 1);
+                       while((line = reader.readLine()) != null){
+                               if(line.isEmpty() == false)
+                                       names.add(RenameTransaction.unescape(line));
+                       }
+               }
+               finally {
+                       reader.close();
+               }
+               return names;
+       }
+
+
+       private static void write(Path state, String kind, Set<String> names) throws IOException{
+               Path temp = state.resolveSibling(STATE + ".tmp");
+               BufferedWriter writer = Files.newBufferedWriter(temp, UTF8);
+               try {
+                       writer.write(HEADER + "\t" + kind + "\n");
+                       StringBuilder line = new StringBuilder(64);
+                       for(String name : names){
+                               line.setLength(0);
+                               writer.append(RenameTransaction.escape(line, name)).append('\n');
+                       }
+               }
+               finally {
+                       writer.close();
+               }
+               Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+       }
+
+
+       private synchronized void reportFailure(RenameJob.Listener listener, int i, IOException e){
+               failCount++;
+               listener.log(oldNames.get(i) + "\n -> " + view.resolve(newNames.get(i)) + "\n"
+                       + "\n\t*Linked successfully?: false ("
+                       + (e instanceof FileAlreadyExistsException ? "name taken by a file the view did not make" : e.toString()) + ")\n\n");
+       }
+
+}
@@ -0,0 +1,316 @@
+/* Folio Batch Renamer
+ *
+ * WatchFolder names the images of a hot folder while a scanner or a camera writes them:
+ * instead of a whole pass over the folder for each new image, it keeps the index of the
+ * next folio and names each new file once, when the file is complete, i.e. when its
+ * size and modification time have not changed for a given time. The work per new image
+ * does not depend on the number of images already in the folder.
+ * The index is not stored anywhere: on start, the files that already carry the names of
+ * the rules for indices 0, 1, 2 ... are counted, and the other files of the folder are
+ * named after them, as new ones. Stopping and starting again therefore goes on where it
+ * stopped. The files that become complete together are renamed as one RenameTransaction,
+ * with its journal, and added to the UndoLog. Their new names are those of a pass (mended
+ * for the file system profile when sanitizing), and are checked by a PreflightCheck
+ * against the profile and the other names of the folder before any of them is given.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class WatchFolder {
+
+       //a file seen, not named yet
+       private static final class Pending {
+               long size = -1;
+               long lastModified = -1;
+               long unchangedSince = System.nanoTime();
+       }
+
+       private final RenameJob rules;
+       private final Path dir;
+       private final FolioNamingPlan plan;
+       private long stableMillis = 2000;
+       private int next = 0;                                                          //index of the next name
+       private final Map<String, Pending> pending = new LinkedHashMap<String, Pending>();   //in the order of arrival
+       private final Set<String> known = new HashSet<String>();                      //named, or given up
+
+
+       public WatchFolder(RenameJob rules){
+               if(rules.isFolders())
+                       throw new IllegalArgumentException("The watch mode names files only");
+               this.rules = rules;
+               this.dir = rules.getDirectory().toPath();
+               this.plan = rules.getNamingPlan();
+       }
+
+
+       //how long a file must stay unchanged before it is named
+       public void setStableMillis(long stableMillis){
+               if(stableMillis < 0)
+                       throw new IllegalArgumentException("The stable time cannot be negative");
+               this.stableMillis = stableMillis;
+       }
+
+
+       //index of the next name to give
+       public int getNext(){
+               return next;
+       }
+
+
+       /* Watches the folder until the listener asks to stop. The files already in the
+        * folder are taken into account first (see above).
+        */
+       public void run(RenameJob.Listener listener) throws IOException{
+
+               WatchService watcher = dir.getFileSystem().newWatchService();
+               try {
+                       //registered before the scan, so that no file arriving in between is missed
+                       WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                       if(RenameTransaction.recover(dir, listener))
+                               listener.log("");
+                       resume(listener);
+
+                       long poll = Math.max(50, Math.min(stableMillis / 2, 1000));
+                       while(listener.isStopRequested() == false){
+                               WatchKey signalled = watcher.poll(poll, TimeUnit.MILLISECONDS);
+                               if(signalled != null){
+                                       for(WatchEvent<?> event : signalled.pollEvents()){
+                                               if(event.kind() == StandardWatchEventKinds.OVERFLOW)
+                                                       rescan();
+                                               else
+                                                       noticed(event.context().toString());
+                                       }
+                                       if(signalled.reset() == false)
+                                               throw new IOException("The folder " + dir + " is no longer available");
+                               }
+                               nameStableFiles(listener);
+                       }
+                       key.cancel();
+               }
+               catch (InterruptedException e) {
+                       Thread.currentThread().interrupt();
+                       throw new InterruptedIOException("Interrupted");
+               }
+               finally {
+                       watcher.close();
+               }
+       }
+
+
+       /* Counts the files that already have the names of the rules, from index 0 on, and
+        * queues the others, in the order of the rules.
+        */
+       private void resume(RenameJob.Listener listener) throws IOException{
+
+               List<DirectoryScan.Entry> entries = DirectoryScan.scan(dir, false);
+               DirectoryScan.sort(dir, entries, rules.getSortOrder());
+               Set<String> names = new HashSet<String>(entries.size() * 2);
+               Set<String> extensions = new HashSet<String>();
+               for(DirectoryScan.Entry entry : entries){
+                       names.add(entry.name);
+                       extensions.add(rules.extension(entry.name));
+               }
+
+               //the name of index next is there, under one of the extensions of the folder
+               Set<String> ours = new HashSet<String>();
+               StringBuilder name = new StringBuilder(64);
+               next = 0;
+               while(next < plan.capacity()){
+                       String found = null;
+                       for(String extension : extensions){
+                               name.setLength(0);
+                               String candidate = rules.finalName(plan.appendName(next, extension, name).toString());
+                               if(names.contains(candidate)){
+                                       found = candidate;
+                                       break;
+                               }
+                       }
+                       if(found == null)
+                               break;
+                       ours.add(base(found));
+                       next++;
+               }
+
+               for(DirectoryScan.Entry entry : entries){
+                       if(ours.contains(base(entry.name)))
+                               known.add(entry.name);
+                       else
+                               noticed(entry.name);
+               }
+               listener.log("Watching " + dir + ": " + next + " file(s) already named, "
+                       + pending.size() + " to name, next name "
+                       + (next < plan.capacity() ? rules.finalName(plan.name(next, "")) : "none, the foliation is complete") + "\n");
+       }
+
+
+       //the name without the extension the rules keep
+       private String base(String name){
+               return name.substring(0, name.length() - rules.extension(name).length());
+       }
+
+
+       private void noticed(String name){
+               if(DirectoryScan.isToolFile(name) || known.contains(name) || pending.containsKey(name))
+                       return;
+               pending.put(name, new Pending());
+       }
+
+
+       //events were lost: look at the whole folder for files not seen yet
+       private void rescan() throws IOException{
+               for(DirectoryScan.Entry entry : DirectoryScan.scan(dir, false))
+                       noticed(entry.name);
+       }
+
+
+       /* Names, in their order of arrival, the pending files that did not change for the
+        * stable time. A file that is still changing, and every file after it, waits for
+        * the next round, so that the order of arrival is kept. A new name the pre-flight
+        * check refuses stops the watch before the files are renamed: every later file
+        * would be given a name of the same rules. The index only moves past the files that
+        * got their names, so a failure never leaves a side without its file.
+        */
+       private void nameStableFiles(RenameJob.Listener listener) throws IOException{
+
+               if(pending.isEmpty())
+                       return;
+               long now = System.nanoTime();
+               List<DirectoryScan.Entry> ready = new ArrayList<DirectoryScan.Entry>();
+               boolean waiting = false;
+
+               for(Iterator<Map.Entry<String, Pending>> it = pending.entrySet().iterator(); it.hasNext(); ){
+                       Map.Entry<String, Pending> item = it.next();
+                       Pending file = item.getValue();
+                       BasicFileAttributes attrs;
+                       try {
+                               attrs = Files.readAttributes(dir.resolve(item.getKey()), BasicFileAttributes.class);
+                       }
+                       catch (NoSuchFileException e) {
+                               it.remove();             //gone before it was complete
+                               continue;
+                       }
+                       if(attrs.isRegularFile() == false){
+                               it.remove();
+                               known.add(item.getKey());
+                               continue;
+                       }
+                       long lastModified = attrs.lastModifiedTime().toMillis();
+                       if(attrs.size() != file.size || lastModified != file.lastModified){
+                               file.size = attrs.size();
+                               file.lastModified = lastModified;
+                               file.unchangedSince = now;
+                       }
+                       if(waiting || now - file.unchangedSince < stableMillis * 1000000L){
+                               waiting = true;
+                               continue;
+                       }
+                       ready.add(new DirectoryScan.Entry(item.getKey(), attrs));
+               }
+               if(ready.isEmpty())
+                       return;
+
+               List<DirectoryScan.Entry> named = new ArrayList<DirectoryScan.Entry>(ready.size());
+               List<String> newNames = new ArrayList<String>(ready.size());
+               StringBuilder name = new StringBuilder(64);
+               for(DirectoryScan.Entry entry : ready){
+                       pending.remove(entry.name);
+                       if(next + newNames.size() >= plan.capacity()){
+                               known.add(entry.name);
+                               listener.log(entry.name + ": no name left in the foliation, left alone\n");
+                               continue;
+                       }
+                       name.setLength(0);
+                       newNames.add(rules.finalName(plan.appendName(next + newNames.size(), rules.extension(entry.name), name).toString()));
+                       named.add(entry);
+               }
+               if(named.isEmpty())
+                       return;
+
+               //the other names of the folder: the files named or given up before, and those still pending
+               List<String> others = new ArrayList<String>(known.size() + pending.size());
+               others.addAll(known);
+               others.addAll(pending.keySet());
+               PreflightCheck check = new PreflightCheck(rules.getProfile(), dir, newNames.size(), others);
+               for(int i = 0; i < newNames.size(); i++)
+                       check.add(i, newNames.get(i));
+               if(check.isClean() == false){
+                       listener.log("Pre-flight check: " + check.summary() + "\n" + check.report());
+                       throw new IOException("Pre-flight check: " + check.summary() + ", nothing renamed");
+               }
+
+               RenameTransaction transaction = new RenameTransaction(dir);
+               List<DirectoryScan.Entry> queued = new ArrayList<DirectoryScan.Entry>(named.size());
+               int[] index = new int[named.size()];    //the position in named of each file queued
+               for(int i = 0; i < named.size(); i++){
+                       DirectoryScan.Entry entry = named.get(i);
+                       if(transaction.add(entry.name, newNames.get(i))){
+                               index[queued.size()] = i;
+                               queued.add(entry);
+                       }
+               }
+               transaction.execute(listener);
+
+               //the files before the first failure keep their names; those renamed after it go
+               //back to their old names, to be named again next round, so that no side is skipped
+               int first = named.size();
+               for(int r = 0; r < transaction.size(); r++){
+                       if(transaction.isRenamed(r) == false)
+                               first = Math.min(first, index[r]);
+               }
+               RenameTransaction back = new RenameTransaction(dir);
+               List<DirectoryScan.Entry> kept = new ArrayList<DirectoryScan.Entry>(queued);
+               List<String> again = new ArrayList<String>();
+               for(int r = 0; r < transaction.size(); r++){
+                       if(transaction.isRenamed(r) == false)
+                               known.add(transaction.getOldName(r));   //its name was taken: not tried again
+                       else if(index[r] > first){
+                               back.add(transaction.getNewName(r), transaction.getOldName(r));
+                               again.add(transaction.getOldName(r));
+                               kept.set(r, null);
+                       }
+               }
+               if(back.size() > 0){
+                       listener.log(back.size() + " file(s) renamed after a failure go back to their old names, to be named next\n");
+                       if(back.execute(listener) == false)
+                               throw new IOException("A file renamed after a failure could not get its old name back: "
+                                       + "give it its old name again before watching " + dir + " again");
+               }
+               for(int i = 0; i < first; i++)
+                       known.add(newNames.get(i));
+               next += first;
+               UndoLog.append(dir, false, transaction, kept);
+
+               //those going back come first next round, before the files that arrived after them
+               if(again.isEmpty() == false){
+                       Map<String, Pending> later = new LinkedHashMap<String, Pending>(pending);
+                       pending.clear();
+                       for(String oldName : again)
+                               pending.put(oldName, new Pending());
+                       pending.putAll(later);
+               }
+       }
+
+}
@@ -0,0 +1,112 @@
+/* Folio Batch Renamer
+ *
+ * NamingBenchmark compares the naming of one file as the first version did it (the
+ * folio number through String.format, then string concatenation) with FolioNamingPlan,
+ * for both tabs: one face per file, and one spread (verso - recto) per file, the spreads
+ * also through a SpreadNameBuffer. Run with "-prof gc" for the bytes allocated per name.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamingBenchmark {
+
+       private static final String PREFIX = "Paris, BnF, lat. 16480, fol. ";
+
+       @Param({"1", "4"})
+       public int digits;
+
+       private FolioNamingPlan plan;
+       private FolioNamingPlan spreadPlan;
+       private SpreadNameBuffer spreadBuffer;
+       private final StringBuilder out = new StringBuilder(64);
+       private int index = 0;
+
+
+       @Setup
+       public void setUp(){
+               plan = new FolioNamingPlan(PREFIX, "", "r", "v", " - ", digits, 1, false, false);
+               spreadPlan = new FolioNamingPlan(PREFIX, "", "r", "v", " - ", digits, 1, false, true);
+               spreadBuffer = spreadPlan.newSpreadBuffer();
+       }
+
+
+       private int next(){
+               index = (index + 1) & 0xFFFF;
+               return index;
+       }
+
+
+       //nameSequence() of the first version
+       @Benchmark
+       public String stringFormat(){
+               return String.format("%0" + digits + "d", next());
+       }
+
+       @Benchmark
+       public StringBuilder appendPadded(){
+               out.setLength(0);
+               FolioNamingPlan.appendPadded(out, next(), digits);
+               return out;
+       }
+
+
+       //renameFile() of the first version: one face per file
+       @Benchmark
+       public String legacyName(){
+               int i = next();
+               String folio = (i % 2 == 0) ? "r" : "v";
+               return PREFIX + String.format("%0" + digits + "d", 1 + i / 2) + "" + folio + "" + ".tif";
+       }
+
+       @Benchmark
+       public StringBuilder planName(){
+               out.setLength(0);
+               return plan.appendName(next(), ".tif", out);
+       }
+
+
+       //renameFileSingle() of the first version: one spread per file
+       @Benchmark
+       public String legacySpreadName(){
+               int i = next();
+               return PREFIX + String.format("%0" + digits + "d", i) + "v" + " - " + String.format("%0" + digits + "d", i + 1) + "r" + "" + ".tif";
+       }
+
+       @Benchmark
+       public StringBuilder planSpreadName(){
+               out.setLength(0);
+               return spreadPlan.appendName(next(), ".tif", out);
+       }
+
+
+       //only the two folio numbers are written per name
+       @Benchmark
+       public CharSequence bufferSpreadName(){
+               return spreadBuffer.name(next(), ".tif");
+       }
+
+}
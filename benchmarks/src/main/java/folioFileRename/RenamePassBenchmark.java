@@ -0,0 +1,115 @@
+/* Folio Batch Renamer
+ *
+ * RenamePassBenchmark runs whole RenameJob passes over a synthetic folder of 1k to 1M
+ * empty files, created once per trial under bench.dir (a tmpfs such as /dev/shm keeps
+ * the disk out of the measure; the default is java.io.tmpdir). Each pass starts one
+ * leaf further than the previous one, so that every file is renamed, as when a
+ * foliation is shifted by one: one chain of the RenameTransaction, cut in pieces for the
+ * threads.
+ * The test mode pass only lists, sorts and names the files.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenamePassBenchmark {
+
+       @Param({"1000", "100000", "1000000"})
+       public int entries;
+
+       @Param({"1", "8"})
+       public int parallelism;
+
+       private Path folder;
+       private int start = 1;
+
+
+       //a listener that keeps nothing
+       private static final RenameJob.Listener QUIET = new RenameJob.Listener(){
+               public void log(String line){
+               }
+               public void progress(int done, int total){
+               }
+               public boolean isStopRequested(){
+                       return false;
+               }
+       };
+
+
+       @Setup(Level.Trial)
+       public void createFolder() throws IOException{
+               Path base = Paths.get(System.getProperty("bench.dir", System.getProperty("java.io.tmpdir")));
+               folder = Files.createTempDirectory(base, "folio-rename-bench");
+               for(int i = 0; i < entries; i++)
+                       Files.createFile(folder.resolve(String.format("IMG_%07d.tif", i)));
+       }
+
+
+       //the undo log grows by one batch per pass: start each measure from none
+       @Setup(Level.Iteration)
+       public void dropUndoLog() throws IOException{
+               Files.deleteIfExists(folder.resolve(UndoLog.FILE));
+       }
+
+
+       @TearDown(Level.Trial)
+       public void deleteFolder() throws IOException{
+               for(File file : folder.toFile().listFiles())
+                       Files.delete(file.toPath());
+               Files.delete(folder);
+       }
+
+
+       private RenameJob job(){
+               RenameJob job = new RenameJob();
+               job.setDirectory(folder.toFile());
+               job.setDigits("7");
+               job.setStartingNum(start++);
+               job.setParallelism(parallelism);
+               return job;
+       }
+
+
+       @Benchmark
+       public boolean renamePass() throws IOException{
+               return job().run(QUIET);
+       }
+
+       @Benchmark
+       public boolean testModePass() throws IOException{
+               RenameJob job = job();
+               job.setExperiment(true);
+               return job.run(QUIET);
+       }
+
+}
@@ -0,0 +1,107 @@
+/* Folio Batch Renamer
+ *
+ * SortBenchmark measures the orders in which the files of a folder can be numbered:
+ * the alphabetical order of the first version (Arrays.sort with CASE_INSENSITIVE_ORDER)
+ * and the natural order of NaturalOrder, over 1k to 1M camera-like names.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortBenchmark {
+
+       @Param({"1000", "100000", "1000000"})
+       public int entries;
+
+       private String[] names;
+       private List<DirectoryScan.Entry> shuffled;
+       private String[] work;
+       private List<DirectoryScan.Entry> workEntries;
+
+
+       @Setup(Level.Trial)
+       public void setUp() throws IOException{
+               Random random = new Random(42);
+               names = new String[entries];
+               shuffled = new ArrayList<DirectoryScan.Entry>(entries);
+               for(int i = 0; i < entries; i++){
+                       names[i] = (random.nextBoolean() ? "IMG_" : "img_") + (1 + random.nextInt(entries * 10)) + ".tif";
+                       shuffled.add(new DirectoryScan.Entry(names[i], ATTRIBUTES));
+               }
+               Collections.shuffle(shuffled, random);
+       }
+
+
+       //the sorts work in place: each call starts again from the shuffled names
+       @Setup(Level.Invocation)
+       public void copy(){
+               work = names.clone();
+               workEntries = new ArrayList<DirectoryScan.Entry>(shuffled);
+       }
+
+
+       @Benchmark
+       public String[] caseInsensitive(){
+               Arrays.sort(work, String.CASE_INSENSITIVE_ORDER);
+               return work;
+       }
+
+       @Benchmark
+       public List<DirectoryScan.Entry> byName(){
+               Collections.sort(workEntries, DirectoryScan.BY_NAME);
+               return workEntries;
+       }
+
+       @Benchmark
+       public List<DirectoryScan.Entry> natural(){
+               NaturalOrder.sort(workEntries);
+               return workEntries;
+       }
+
+
+       //the attributes of a regular file, the same for every entry
+       private static final BasicFileAttributes ATTRIBUTES = new BasicFileAttributes(){
+               public FileTime lastModifiedTime(){ return FileTime.fromMillis(0); }
+               public FileTime lastAccessTime(){ return FileTime.fromMillis(0); }
+               public FileTime creationTime(){ return FileTime.fromMillis(0); }
+               public boolean isRegularFile(){ return true; }
+               public boolean isDirectory(){ return false; }
+               public boolean isSymbolicLink(){ return false; }
+               public boolean isOther(){ return false; }
+               public long size(){ return 0; }
+               public Object fileKey(){ return null; }
+       };
+
+}
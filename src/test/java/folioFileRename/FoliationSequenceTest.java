@@ -0,0 +1,90 @@
+/* Folio Batch Renamer
+ *
+ * FoliationSequenceTest checks the parsing of a foliation description: ranges, open
+ * ranges, marked folios, labels, changes of scheme, the number of files named, and the
+ * items refused.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class FoliationSequenceTest {
+
+       private static String side(FoliationSequence sequence, int index){
+               return sequence.appendSide(index, 1, "r", "v", new StringBuilder()).toString();
+       }
+
+
+       private static String sides(FoliationSequence sequence){
+               StringBuilder out = new StringBuilder();
+               for(int i = 0; i < sequence.size(); i++)
+                       out.append(i == 0 ? "" : " ").append(side(sequence, i));
+               return out.toString();
+       }
+
+
+       @Test
+       public void rangesOfSidesAndFolios(){
+               assertEquals("1r 1v 2r 2v", sides(FoliationSequence.parse("1r-2v")));
+               assertEquals("3v 4r", sides(FoliationSequence.parse("3v-4r")));
+               assertEquals("1r 1v 2r 2v", sides(FoliationSequence.parse("1-2")));
+               assertEquals("12r 12v", sides(FoliationSequence.parse("12")));
+               assertEquals("1r 1v 3r", sides(FoliationSequence.parse("1r-v, 3r")));
+       }
+
+
+       @Test
+       public void marksAndLabels(){
+               assertEquals("cover 45r 45v 45bisr 45bisv 46r", sides(FoliationSequence.parse("cover, 45r-v, 45bis r-v, 46r")));
+               assertEquals("45bisr 45bisv", sides(FoliationSequence.parse("45bis")));
+               assertEquals("front flyleaf", sides(FoliationSequence.parse(" front flyleaf ")));
+       }
+
+
+       @Test
+       public void sizeCountsTheFiles(){
+               assertEquals(91, FoliationSequence.parse("cover, 1r-45v").size());
+               assertEquals(1, FoliationSequence.parse("12v").size());
+               assertEquals(4, FoliationSequence.parse("page: 1-4").size());
+       }
+
+
+       @Test
+       public void openRangeGoesOn(){
+               FoliationSequence sequence = FoliationSequence.parse("cover, 46r-...");
+               assertEquals(Integer.MAX_VALUE, sequence.size());
+               assertEquals("cover", side(sequence, 0));
+               assertEquals("46r", side(sequence, 1));
+               assertEquals("546v", side(sequence, 1002));
+       }
+
+
+       @Test
+       public void schemesChangeForTheItemsAfter(){
+               FoliationSequence sequence = FoliationSequence.parse("cover, roman: i-iv, page: 1-2, signature: A8r-B1v");
+               assertEquals("cover i ii iii iv 1 2 A8r A8v B1r B1v", sides(sequence));
+       }
+
+
+       @Test
+       public void refusesInvalidItems(){
+               String[] invalid = { "1r-...,2r", "5r-4v", "45bis r-46v", "1r,,2r", "roman: iiii", "signature: J1r" };
+               for(String text : invalid){
+                       try {
+                               FoliationSequence.parse(text);
+                               fail(text + " was accepted");
+                       }
+                       catch (IllegalArgumentException e) {
+                       }
+               }
+       }
+
+}
@@ -0,0 +1,91 @@
+/* Folio Batch Renamer
+ *
+ * FolioNamingPlanTest checks the names of a plan: the zero padding of the numbers, the
+ * order of rectos and versos, spreads, and that a SpreadNameBuffer gives the names
+ * appendName() gives.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FolioNamingPlanTest {
+
+       private static FolioNamingPlan plan(int digits, int start, boolean verso, boolean spread){
+               return new FolioNamingPlan("Ms_", "", "r", "v", "-", digits, start, verso, spread);
+       }
+
+
+       @Test
+       public void padsNumbersWithZeros(){
+               FolioNamingPlan plan = plan(3, 9, false, false);
+               assertEquals("Ms_009r.tif", plan.name(0, ".tif"));
+               assertEquals("Ms_009v.tif", plan.name(1, ".tif"));
+               assertEquals("Ms_010r.tif", plan.name(2, ".tif"));
+               assertEquals("Ms_1000r", plan(3, 1000, false, false).name(0, ""));
+       }
+
+
+       @Test
+       public void alternatesRectoAndVerso(){
+               FolioNamingPlan plan = plan(1, 1, false, false);
+               assertEquals("Ms_1r", plan.name(0, ""));
+               assertEquals("Ms_1v", plan.name(1, ""));
+               assertEquals("Ms_2r", plan.name(2, ""));
+               assertEquals(2, plan.folio(3));
+       }
+
+
+       @Test
+       public void startsOnAVerso(){
+               FolioNamingPlan plan = plan(1, 1, true, false);
+               assertEquals("Ms_1v", plan.name(0, ""));
+               assertEquals("Ms_2r", plan.name(1, ""));
+               assertEquals("Ms_2v", plan.name(2, ""));
+       }
+
+
+       @Test
+       public void namesSpreadsVersoThenRecto(){
+               FolioNamingPlan plan = plan(2, 1, false, true);
+               assertEquals("Ms_00v-01r.jpg", plan.name(0, ".jpg"));
+               assertEquals("Ms_01v-02r.jpg", plan.name(1, ".jpg"));
+               assertEquals("Ms_09v-10r.jpg", plan.name(9, ".jpg"));
+       }
+
+
+       @Test
+       public void namesPagesWithoutSides(){
+               FolioNamingPlan plan = new FolioNamingPlan("", "", "r", "v", "-", 1, 1, true, false, NumberingScheme.PAGE, null);
+               assertEquals("1", plan.name(0, ""));
+               assertEquals("2", plan.name(1, ""));
+       }
+
+
+       @Test
+       public void spreadBufferGivesTheNamesOfAppendName(){
+               for(int digits = 1; digits <= 4; digits++){
+                       FolioNamingPlan plan = plan(digits, 7, false, true);
+                       SpreadNameBuffer buffer = plan.newSpreadBuffer();
+                       //in order, then jumping back and across a change of width
+                       int[] indices = { 0, 1, 2, 3, 92, 93, 94, 2, 992, 993, 5000, 0 };
+                       for(int index : indices)
+                               assertEquals(plan.name(index, ".tif"), buffer.name(index, ".tif").toString());
+               }
+       }
+
+
+       @Test
+       public void capacityOfASequence(){
+               FoliationSequence sides = FoliationSequence.parse("1r-2v, cover");
+               assertEquals(5, new FolioNamingPlan("", "", "r", "v", "-", 1, 1, false, false, NumberingScheme.FOLIO, sides).capacity());
+               assertEquals(3, new FolioNamingPlan("", "", "r", "v", "-", 1, 1, false, true, NumberingScheme.FOLIO, sides).capacity());
+       }
+
+}
@@ -0,0 +1,108 @@
+/* Folio Batch Renamer
+ *
+ * ManifestReaderTest reads small CSV and TSV texts: quoted fields, doubled quotes, line
+ * breaks inside quotes, a byte order mark, the delimiter found from the first line,
+ * comments and blank lines, and a record longer than the buffer.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ManifestReaderTest {
+
+       //the records of text, fields joined by |
+       private static List<String> records(String text, char delimiter) throws IOException{
+               List<String> records = new ArrayList<String>();
+               ManifestReader reader = new ManifestReader(new StringReader(text), delimiter);
+               try {
+                       while(reader.next()){
+                               StringBuilder record = new StringBuilder();
+                               for(int i = 0; i < reader.fields(); i++)
+                                       record.append(i == 0 ? "" : "|").append(reader.field(i));
+                               records.add(record.toString());
+                       }
+               }
+               finally {
+                       reader.close();
+               }
+               return records;
+       }
+
+
+       @Test
+       public void quotedFieldsAndDoubledQuotes() throws IOException{
+               List<String> records = records("\"IMG, 1.tif\",12r\n\"say \"\"cover\"\"\",cover\n", (char) 0);
+               assertEquals(2, records.size());
+               assertEquals("IMG, 1.tif|12r", records.get(0));
+               assertEquals("say \"cover\"|cover", records.get(1));
+       }
+
+
+       @Test
+       public void lineBreakInsideQuotes() throws IOException{
+               ManifestReader reader = new ManifestReader(new StringReader("\"two\r\nlines\",1r\r\nnext,1v\r\n"), ',');
+               assertTrue(reader.next());
+               assertEquals("two\r\nlines", reader.field(0));
+               assertEquals("1r", reader.field(1));
+               assertEquals(1, reader.lineNumber());
+               assertTrue(reader.next());
+               assertEquals("next", reader.field(0));
+               assertEquals(3, reader.lineNumber());
+               assertFalse(reader.next());
+               reader.close();
+       }
+
+
+       @Test
+       public void skipsTheByteOrderMark() throws IOException{
+               assertEquals("IMG_1.tif|1r", records("\uFEFFIMG_1.tif\t1r\n", (char) 0).get(0));
+       }
+
+
+       @Test
+       public void findsTheDelimiter() throws IOException{
+               //a tab wins, else the more frequent of semicolon and comma
+               String[] texts = { "a\tb;c,d\n", "a;b;c,d\n", "a,b;c,d\n" };
+               String[] expected = { "a|b;c,d", "a|b|c,d", "a|b;c|d" };
+               for(int i = 0; i < texts.length; i++)
+                       assertEquals(expected[i], records(texts[i], (char) 0).get(0));
+               ManifestReader reader = new ManifestReader(new StringReader("x;y\n"), (char) 0);
+               reader.next();
+               assertEquals(';', reader.getDelimiter());
+               reader.close();
+       }
+
+
+       @Test
+       public void skipsCommentsAndBlankLines() throws IOException{
+               List<String> records = records("# files\n\nIMG_1,1r\n   \nIMG_2,1v", ',');
+               assertEquals(2, records.size());
+               assertEquals("IMG_2|1v", records.get(1));
+       }
+
+
+       @Test
+       public void readsRecordsLongerThanTheBuffer() throws IOException{
+               StringBuilder name = new StringBuilder();
+               for(int i = 0; i < 200000; i++)
+                       name.append((char) ('a' + i % 26));
+               List<String> records = records(name + ",1r\nlast,1v\n", ',');
+               assertEquals(name + "|1r", records.get(0));
+               assertEquals("last|1v", records.get(1));
+       }
+
+}
@@ -0,0 +1,104 @@
+/* Folio Batch Renamer
+ *
+ * NumberingSchemeTest checks how the schemes write and read their numbers: roman
+ * numerals, written and parsed only in their usual form, and signatures, quire after
+ * quire through the alphabet of the printers.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class NumberingSchemeTest {
+
+       private static String write(NumberingScheme scheme, int number){
+               StringBuilder out = new StringBuilder();
+               scheme.appendNumber(out, number, 3);
+               return out.toString();
+       }
+
+
+       private static void refused(NumberingScheme scheme, String text){
+               try {
+                       scheme.parseNumber(text);
+                       fail(text + " was accepted");
+               }
+               catch (IllegalArgumentException e) {
+               }
+       }
+
+
+       @Test
+       public void writesRomanNumerals(){
+               assertEquals("i", write(NumberingScheme.ROMAN, 1));
+               assertEquals("iv", write(NumberingScheme.ROMAN, 4));
+               assertEquals("xiv", write(NumberingScheme.ROMAN, 14));
+               assertEquals("mcmxcix", write(NumberingScheme.ROMAN, 1999));
+               assertEquals("0", write(NumberingScheme.ROMAN, 0));
+       }
+
+
+       @Test
+       public void readsRomanNumeralsBack(){
+               for(int number = 1; number <= 2000; number++)
+                       assertEquals(number, NumberingScheme.ROMAN.parseNumber(write(NumberingScheme.ROMAN, number)));
+               assertEquals(12, NumberingScheme.ROMAN.parseNumber("XII"));
+       }
+
+
+       @Test
+       public void refusesInvalidRomanNumerals(){
+               String[] invalid = { "iiii", "vx", "ic", "iix", "vv", "xxxx", "lc", "dm" };
+               for(String text : invalid)
+                       refused(NumberingScheme.ROMAN, text);
+       }
+
+
+       @Test
+       public void romanNumberLength(){
+               assertEquals(3, NumberingScheme.ROMAN.numberLength("xii-xv"));
+               assertEquals(0, NumberingScheme.ROMAN.numberLength("cover"));
+       }
+
+
+       @Test
+       public void writesSignatures(){
+               NumberingScheme signature = NumberingScheme.signature(8);
+               assertEquals("A1", write(signature, 1));
+               assertEquals("A8", write(signature, 8));
+               assertEquals("B1", write(signature, 9));
+               assertEquals("I1", write(signature, 8 * 8 + 1));
+               assertEquals("K1", write(signature, 9 * 8 + 1));     //no J
+               assertEquals("Z8", write(signature, 23 * 8));
+               assertEquals("AA1", write(signature, 23 * 8 + 1));
+               assertEquals("B2", write(NumberingScheme.signature(4), 6));
+       }
+
+
+       @Test
+       public void readsSignaturesBack(){
+               NumberingScheme signature = NumberingScheme.signature(8);
+               for(int number = 1; number <= 600; number++)
+                       assertEquals(number, signature.parseNumber(write(signature, number)));
+               refused(signature, "J1");
+               refused(signature, "A9");
+               refused(signature, "AB1");
+       }
+
+
+       @Test
+       public void schemesByName(){
+               assertEquals("roman", NumberingScheme.forName(" Roman ").getName());
+               assertEquals("signature4", NumberingScheme.forName("signature 4").getName());
+               assertNull(NumberingScheme.forName("hex"));
+       }
+
+}
@@ -0,0 +1,77 @@
+/* Folio Batch Renamer
+ *
+ * PreflightCheckTest checks the names a profile refuses (reserved names, forbidden
+ * characters, lengths), and the collisions among the new names and with the entries of
+ * the folder, case ignored or not as the profile says.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PreflightCheckTest {
+
+       private static PreflightCheck check(FileSystemProfile profile, List<String> others, String... names){
+               PreflightCheck check = new PreflightCheck(profile, null, names.length, others);
+               for(int i = 0; i < names.length; i++)
+                       check.add(i, names[i]);
+               return check;
+       }
+
+
+       @Test
+       public void refusesReservedNamesOnWindows(){
+               PreflightCheck check = check(FileSystemProfile.WINDOWS, Collections.<String>emptyList(), "CON.tif", "lpt1", "1r.tif", "CONSOLE.tif");
+               assertFalse(check.isClean());
+               assertEquals("{0, 1}", check.getInvalid().toString());
+               assertTrue(check(FileSystemProfile.LINUX, Collections.<String>emptyList(), "CON.tif").isClean());
+       }
+
+
+       @Test
+       public void refusesForbiddenCharactersAndTrailingDots(){
+               assertNotNull(FileSystemProfile.WINDOWS.problem("Ms:12r.tif"));
+               assertNotNull(FileSystemProfile.WINDOWS.problem("12r."));
+               assertNull(FileSystemProfile.LINUX.problem("Ms:12r.tif"));
+               assertNotNull(FileSystemProfile.LINUX.problem("a/b"));
+       }
+
+
+       @Test
+       public void findsCollisionsAmongNewNames(){
+               PreflightCheck check = check(FileSystemProfile.LINUX, Collections.<String>emptyList(), "1r.tif", "1v.tif", "1r.tif");
+               assertEquals("{0, 2}", check.getCollisions().toString());
+               assertTrue(check.getInvalid().isEmpty());
+       }
+
+
+       @Test
+       public void findsCollisionsWithTheFolder(){
+               PreflightCheck check = check(FileSystemProfile.LINUX, Arrays.asList("notes.txt", "1v.tif"), "1r.tif", "1v.tif");
+               assertEquals("{1}", check.getCollisions().toString());
+               assertTrue(check.report().contains("an entry of the folder"));
+       }
+
+
+       @Test
+       public void caseOnlyCollisionsDependOnTheProfile(){
+               assertEquals("{0, 1}", check(FileSystemProfile.WINDOWS, Collections.<String>emptyList(), "1R.tif", "1r.tif").getCollisions().toString());
+               assertEquals("{0}", check(FileSystemProfile.MACOS, Arrays.asList("IMG.TIF"), "img.tif").getCollisions().toString());
+               assertTrue(check(FileSystemProfile.LINUX, Arrays.asList("IMG.TIF"), "1R.tif", "1r.tif", "img.tif").isClean());
+       }
+
+}
@@ -0,0 +1,230 @@
+/* Folio Batch Renamer
+ *
+ * RenameTransactionRecoveryTest interrupts chained batches (a cycle, a swap, a chain cut
+ * in pieces of 8 files on two threads) after each of their moves, as a crash would, and checks that
+ * recover() then leaves every file under its new name with its own content, no temporary
+ * name in use and no journal. It also checks that a file of a cut chain left under its
+ * temporary name by a failure gets its old name back, and its chain with it.
+ *
+ * licence GNU GPL (v3)
+ *
+ */
+
+package folioFileRename;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RenameTransactionRecoveryTest {
+
+       private static final Charset UTF8 = Charset.forName("UTF-8");
+       private static final int CUT = 8;          //files of a piece of a cut chain
+       private static final int CHAIN = 5 * CUT;  //files of the chain cut: 5 pieces
+
+       @Rule
+       public TemporaryFolder folder = new TemporaryFolder();
+
+       //thrown by the listener where the run is cut short
+       private static final class Crash extends RuntimeException {
+               Crash(){
+                       super("crash");
+               }
+       }
+
+       //a listener that crashes at the given call of progress() or log(), counted from 1
+       private static final class Listener implements RenameJob.Listener {
+               private final int crashAtProgress;
+               private final String crashOn;
+               private final int crashAtLog;
+               private int progressCalls = 0;
+               private int logCalls = 0;
+
+               Listener(int crashAtProgress, String crashOn, int crashAtLog){
+                       this.crashAtProgress = crashAtProgress;
+                       this.crashOn = crashOn;
+                       this.crashAtLog = crashAtLog;
+               }
+
+               public synchronized void log(String line){
+                       if(crashOn != null && line.contains(crashOn) && ++logCalls == crashAtLog)
+                               throw new Crash();
+               }
+
+               public synchronized void progress(int done, int total){
+                       if(++progressCalls == crashAtProgress)
+                               throw new Crash();
+               }
+
+               public boolean isStopRequested(){
+                       return false;
+               }
+       }
+
+
+       @Test
+       public void cycleRecoversAfterEveryMove() throws IOException{
+               String[][] moves = { { "A", "B" }, { "B", "C" }, { "C", "A" } };
+               crashAfterEveryMove(moves, 1);
+       }
+
+
+       @Test
+       public void swapRecoversAfterEveryMove() throws IOException{
+               String[][] moves = { { "a", "b" }, { "b", "a" } };
+               crashAfterEveryMove(moves, 1);
+       }
+
+
+       @Test
+       public void cutChainRecoversAfterEveryMove() throws IOException{
+               crashAfterEveryMove(shift(CHAIN), 2);
+       }
+
+
+       @Test
+       public void cutChainBlockedGoesBackToOldNames() throws IOException{
+               String[][] moves = shift(CHAIN);
+               Path dir = fill(moves, "blocked");
+               Files.write(dir.resolve(page(CHAIN)), "outside".getBytes(UTF8));   //the new name of the last file is taken
+               RenameTransaction transaction = transaction(dir, moves, 2);
+
+               assertFalse(transaction.execute(new Listener(0, null, 0)));
+               assertEquals(moves.length, transaction.getFailCount());
+               assertOldNames(dir, moves);
+               assertEquals("outside", read(dir.resolve(page(CHAIN))));
+       }
+
+
+       @Test
+       public void cutChainBlockedRecoversWhileGoingBack() throws IOException{
+               String[][] moves = shift(CHAIN);
+               for(int k = 1; k <= 8; k++){
+                       Path dir = fill(moves, "back" + k);
+                       Files.write(dir.resolve(page(CHAIN)), "outside".getBytes(UTF8));
+                       try {
+                               transaction(dir, moves, 2).execute(new Listener(0, "back to its old name", k));
+                       }
+                       catch (Crash e) {
+                       }
+                       assertTrue(Files.exists(dir.resolve(RenameTransaction.JOURNAL)));
+                       assertTrue(RenameTransaction.recover(dir, new Listener(0, null, 0)));
+                       assertOldNames(dir, moves);
+               }
+       }
+
+
+       @Test
+       public void journalCutShortInItsHeaderIsRemoved() throws IOException{
+               String[] cuts = { "", "folio-rename jour", "folio-rename journal " };
+               for(int k = 0; k < cuts.length; k++){
+                       Path dir = folder.newFolder("header" + k).toPath();
+                       Files.write(dir.resolve(RenameTransaction.JOURNAL), cuts[k].getBytes(UTF8));
+                       assertFalse(RenameTransaction.recover(dir, new Listener(0, null, 0)));
+                       assertFalse(Files.exists(dir.resolve(RenameTransaction.JOURNAL)));
+               }
+       }
+
+
+       //the run is cut short after move k, for every k, then recovered
+       private void crashAfterEveryMove(String[][] moves, int parallelism) throws IOException{
+               //the moves of the chains, those to the temporary names, and the last progress
+               int calls = moves.length + moves.length + 1;
+               for(int k = 1; k <= calls; k++){
+                       Path dir = fill(moves, "crash" + k);
+                       boolean crashed = false;
+                       try {
+                               transaction(dir, moves, parallelism).execute(new Listener(k, null, 0));
+                       }
+                       catch (Crash e) {
+                               crashed = true;
+                       }
+                       catch (IOException e) {
+                               crashed = e.getCause() instanceof Crash;   //from a thread of Parallel
+                               if(crashed == false)
+                                       throw e;
+                       }
+                       if(crashed)
+                               RenameTransaction.recover(dir, new Listener(0, null, 0));
+                       for(String[] move : moves)
+                               assertEquals("k = " + k, move[0], read(dir.resolve(move[1])));
+                       assertNoToolFile(dir);
+               }
+       }
+
+
+       //p000 -> p001, ..., p039 -> p040: one chain, cut in pieces on two threads
+       private static String[][] shift(int n){
+               String[][] moves = new String[n][];
+               for(int i = 0; i < n; i++)
+                       moves[i] = new String[]{ page(i), page(i + 1) };
+               return moves;
+       }
+
+
+       private static String page(int i){
+               return String.format("p%03d", i);
+       }
+
+
+       //a new folder holding each old name, the name as its content
+       private Path fill(String[][] moves, String name) throws IOException{
+               Path dir = folder.newFolder(name).toPath();
+               for(String[] move : moves)
+                       Files.write(dir.resolve(move[0]), move[0].getBytes(UTF8));
+               return dir;
+       }
+
+
+       private static RenameTransaction transaction(Path dir, String[][] moves, int parallelism){
+               RenameTransaction transaction = new RenameTransaction(dir);
+               transaction.setParallelism(parallelism);
+               transaction.setCut(CUT);
+               for(String[] move : moves)
+                       transaction.add(move[0], move[1]);
+               return transaction;
+       }
+
+
+       private static void assertOldNames(Path dir, String[][] moves) throws IOException{
+               for(String[] move : moves)
+                       assertEquals(move[0], read(dir.resolve(move[0])));
+               assertNoToolFile(dir);
+       }
+
+
+       //no temporary name in use, no journal
+       private static void assertNoToolFile(Path dir) throws IOException{
+               List<String> left = new ArrayList<String>();
+               DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+               try {
+                       for(Path entry : stream){
+                               if(DirectoryScan.isToolFile(entry.getFileName().toString()))
+                                       left.add(entry.getFileName().toString());
+                       }
+               }
+               finally {
+                       stream.close();
+               }
+               assertEquals(new ArrayList<String>(), left);
+       }
+
+
+       private static String read(Path file) throws IOException{
+               return new String(Files.readAllBytes(file), UTF8);
+       }
+
+}